@@ -2,10 +2,15 @@
 
 package org.dolphinemu.dolphinemu;
 
+import android.app.Activity;
 import android.app.Application;
 import android.content.Context;
 import android.hardware.usb.UsbManager;
+import android.os.Bundle;
 
+import androidx.annotation.NonNull;
+
+import org.dolphinemu.dolphinemu.utils.AnalyticsQueue;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 import org.dolphinemu.dolphinemu.utils.Java_GCAdapter;
 import org.dolphinemu.dolphinemu.utils.Java_WiimoteAdapter;
@@ -28,6 +33,56 @@ public class DolphinApplication extends Application
 
     if (DirectoryInitialization.shouldStart(getApplicationContext()))
       DirectoryInitialization.start(getApplicationContext());
+
+    registerActivityLifecycleCallbacks(new BackgroundListener());
+  }
+
+  /**
+   * Uploads the queued analytics reports when the last activity of the app is no longer visible,
+   * since the app might not get to run again for a while.
+   */
+  private static final class BackgroundListener implements ActivityLifecycleCallbacks
+  {
+    private int mStartedActivities = 0;
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity)
+    {
+      mStartedActivities++;
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity)
+    {
+      mStartedActivities--;
+      if (mStartedActivities == 0 && !activity.isChangingConfigurations())
+        AnalyticsQueue.flush();
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState)
+    {
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity)
+    {
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity)
+    {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState)
+    {
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity)
+    {
+    }
   }
 
   public static Context getAppContext()
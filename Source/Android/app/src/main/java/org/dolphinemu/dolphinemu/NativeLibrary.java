@@ -283,6 +283,23 @@ public final class NativeLibrary
    */
   public static native void onGamePadMoveEvent(String Device, int Axis, float Value);
 
+  /**
+   * Event types used by {@link #onGamePadEvents}.
+   */
+  public static final int INPUT_EVENT_BUTTON = 0;
+  public static final int INPUT_EVENT_AXIS = 1;
+
+  /**
+   * Handles several button and movement events for a gamepad at once.
+   *
+   * @param Device The input descriptor of the gamepad.
+   * @param Events Packed (type, ID, value) tuples, where type is {@link #INPUT_EVENT_BUTTON}
+   *               or {@link #INPUT_EVENT_AXIS}, and value is a {@link ButtonState}
+   *               for buttons.
+   * @param Count  The number of tuples in Events.
+   */
+  public static native void onGamePadEvents(String Device, float[] Events, int Count);
+
   /**
    * Handles hotkeys events
    *
@@ -357,6 +374,22 @@ public final class NativeLibrary
    */
   public static native void SaveStateAs(String path, boolean wait);
 
+  /**
+   * Saves an uncompressed game state to the specified path, for resuming emulation quickly.
+   * Saving to the same path again only rewrites the parts of the state that have changed.
+   * Returns once the state has been copied out of the emulated memory.
+   *
+   * @param path The path to save state to.
+   */
+  public static native void SaveResumeStateAs(String path);
+
+  /**
+   * Makes sure that the state saved by SaveResumeStateAs won't be loaded anymore.
+   *
+   * @param path The path the state was saved to.
+   */
+  public static native void DiscardResumeState(String path);
+
   /**
    * Loads a game state from the slot number.
    *
@@ -397,6 +430,12 @@ public final class NativeLibrary
 
   public static native void ReloadConfig();
 
+  /**
+   * Like ReloadConfig, but only reads the settings in Dolphin.ini that aren't handled by the
+   * native config system. For when the native config is known to be up to date already.
+   */
+  public static native void ReloadLegacyConfig();
+
   public static native void UpdateGCAdapterScanThread();
 
   /**
@@ -506,6 +545,25 @@ public final class NativeLibrary
           int format, int blockSize, int compression, int compressionLevel, boolean scrub,
           CompressCallback callback);
 
+  /**
+   * Compresses samples from the given disc image the way ConvertDiscImage would and extrapolates
+   * from them. Blocks for a few seconds.
+   *
+   * @return The projected size of the converted file and the projected speed of the conversion in
+   * bytes per second, or null if the disc image couldn't be read
+   */
+  public static native long[] EstimateConversion(String inPath, int format, int blockSize,
+          int compression, int compressionLevel, boolean scrub);
+
+  /**
+   * Reads all of the given disc images and finds the data in each of them that also appears in
+   * one of the images before it in the array.
+   *
+   * @return The number of duplicate bytes in each image, or null if an image couldn't be read or
+   * the callback returned false
+   */
+  public static native long[] FindDuplicateData(String[] paths, CompressCallback callback);
+
   public static native String FormatSize(long bytes, int decimals);
 
   public static native void SetObscuredPixelsLeft(int width);
@@ -552,9 +610,13 @@ public final class NativeLibrary
   public static native int[] getRunningSettings();
 
   /**
-   * Set sysconf settings
+   * Set sysconf settings. Only the given settings are changed, and they take effect right away.
+   *
+   * @param settings The RunningSettingDialog.SettingsItem.SETTING_* values of the settings
+   * @param values   The new value of each setting
+   * @param count    The number of entries to use from the arrays
    */
-  public static native void setRunningSettings(int[] settings);
+  public static native void setRunningSettings(int[] settings, int[] values, int count);
 
   @Keep
   public static boolean displayAlertMsg(final String caption, final String text,
@@ -22,6 +22,14 @@ public class ConvertActivity extends AppCompatActivity
     context.startActivity(launcher);
   }
 
+  /**
+   * Converts every game in the library that can be converted, using ConversionQueue.
+   */
+  public static void launchBatch(Context context)
+  {
+    context.startActivity(new Intent(context, ConvertActivity.class));
+  }
+
   @Override
   protected void onCreate(Bundle savedInstanceState)
   {
@@ -50,15 +50,15 @@ import org.dolphinemu.dolphinemu.overlay.InputOverlay;
 import org.dolphinemu.dolphinemu.overlay.InputOverlayPointer;
 import org.dolphinemu.dolphinemu.ui.main.MainActivity;
 import org.dolphinemu.dolphinemu.utils.AfterDirectoryInitializationRunner;
-import org.dolphinemu.dolphinemu.utils.ControllerMappingHelper;
 import org.dolphinemu.dolphinemu.utils.FileBrowserHelper;
+import org.dolphinemu.dolphinemu.utils.GamepadAxisDispatcher;
 import org.dolphinemu.dolphinemu.utils.IniFile;
 import org.dolphinemu.dolphinemu.utils.MotionListener;
 import org.dolphinemu.dolphinemu.utils.Rumble;
+import org.dolphinemu.dolphinemu.utils.StateSlotIndex;
 
 import java.io.File;
 import java.lang.annotation.Retention;
-import java.util.List;
 
 import static java.lang.annotation.RetentionPolicy.SOURCE;
 
@@ -72,6 +72,7 @@ public final class EmulationActivity extends AppCompatActivity
 
   private SharedPreferences mPreferences;
   private MotionListener mMotionListener;
+  private GamepadAxisDispatcher mGamepadAxisDispatcher;
 
   private Settings mSettings;
 
@@ -330,6 +331,7 @@ public final class EmulationActivity extends AppCompatActivity
     }
 
     mMotionListener = new MotionListener(this);
+    mGamepadAxisDispatcher = new GamepadAxisDispatcher(this);
 
     // Set these options now so that the SurfaceView the game renders into is the right size.
     enableFullscreenImmersive();
@@ -393,6 +395,8 @@ public final class EmulationActivity extends AppCompatActivity
 
     if (NativeLibrary.IsGameMetadataValid())
       updateMotionListener();
+
+    mGamepadAxisDispatcher.register();
   }
 
   @Override
@@ -400,6 +404,7 @@ public final class EmulationActivity extends AppCompatActivity
   {
     super.onPause();
     mMotionListener.disable();
+    mGamepadAxisDispatcher.unregister();
   }
 
   @Override
@@ -653,11 +658,11 @@ public final class EmulationActivity extends AppCompatActivity
 
       // Quick save / load
       case MENU_ACTION_QUICK_SAVE:
-        NativeLibrary.SaveState(9, false);
+        saveState(StateSlotIndex.QUICK_SAVE_SLOT);
         break;
 
       case MENU_ACTION_QUICK_LOAD:
-        NativeLibrary.LoadState(9);
+        NativeLibrary.LoadState(StateSlotIndex.QUICK_SAVE_SLOT);
         break;
 
       case MENU_ACTION_SAVE_ROOT:
@@ -670,27 +675,27 @@ public final class EmulationActivity extends AppCompatActivity
 
       // Save state slots
       case MENU_ACTION_SAVE_SLOT1:
-        NativeLibrary.SaveState(0, false);
+        saveState(0);
         break;
 
       case MENU_ACTION_SAVE_SLOT2:
-        NativeLibrary.SaveState(1, false);
+        saveState(1);
         break;
 
       case MENU_ACTION_SAVE_SLOT3:
-        NativeLibrary.SaveState(2, false);
+        saveState(2);
         break;
 
       case MENU_ACTION_SAVE_SLOT4:
-        NativeLibrary.SaveState(3, false);
+        saveState(3);
         break;
 
       case MENU_ACTION_SAVE_SLOT5:
-        NativeLibrary.SaveState(4, false);
+        saveState(4);
         break;
 
       case MENU_ACTION_SAVE_SLOT6:
-        NativeLibrary.SaveState(5, false);
+        saveState(5);
         break;
 
       // Load state slots
@@ -756,6 +761,11 @@ public final class EmulationActivity extends AppCompatActivity
     }
   }
 
+  public void saveState(int slot)
+  {
+    mEmulationFragment.saveState(slot);
+  }
+
   public void changeDisc()
   {
     Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
@@ -1289,25 +1299,7 @@ public final class EmulationActivity extends AppCompatActivity
     if (event.getActionMasked() == MotionEvent.ACTION_CANCEL)
       return true;
 
-    InputDevice input = event.getDevice();
-    List<InputDevice.MotionRange> motions = input.getMotionRanges();
-
-    for (InputDevice.MotionRange range : motions)
-    {
-      int axis = range.getAxis();
-      float origValue = event.getAxisValue(axis);
-      float value = ControllerMappingHelper.scaleAxis(input, axis, origValue);
-      // If the input is still in the "flat" area, that means it's really zero.
-      // This is used to compensate for imprecision in joysticks.
-      if (Math.abs(value) > range.getFlat())
-      {
-        NativeLibrary.onGamePadMoveEvent(input.getDescriptor(), axis, value);
-      }
-      else
-      {
-        NativeLibrary.onGamePadMoveEvent(input.getDescriptor(), axis, 0.0f);
-      }
-    }
+    mGamepadAxisDispatcher.dispatch(event);
 
     return true;
   }
@@ -3,7 +3,6 @@
 package org.dolphinemu.dolphinemu.dialogs;
 
 import android.app.Dialog;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
@@ -133,10 +132,8 @@ public final class GameDetailsDialog extends DialogFragment
 
     picassoInstance
             .load(Uri.parse("iso:/" + gameFile.getPath()))
-            .fit()
             .noFade()
             .noPlaceholder()
-            .config(Bitmap.Config.RGB_565)
             .error(R.drawable.no_banner)
             .into(imageView);
   }
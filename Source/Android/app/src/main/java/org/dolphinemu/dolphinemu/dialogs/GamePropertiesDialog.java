@@ -4,7 +4,6 @@ package org.dolphinemu.dolphinemu.dialogs;
 
 import android.app.Dialog;
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.view.ViewGroup;
@@ -51,10 +50,8 @@ public class GamePropertiesDialog extends DialogFragment
 
     picassoInstance
             .load(Uri.parse("iso:/" + gameFile.getPath()))
-            .fit()
             .noFade()
             .noPlaceholder()
-            .config(Bitmap.Config.RGB_565)
             .error(R.drawable.no_banner)
             .into(imageView);
   }
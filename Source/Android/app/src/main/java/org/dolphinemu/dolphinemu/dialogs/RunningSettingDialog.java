@@ -8,6 +8,7 @@ import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.Debug;
 import android.os.Handler;
+import android.view.Choreographer;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.DialogFragment;
@@ -31,6 +32,7 @@ import org.dolphinemu.dolphinemu.activities.EmulationActivity;
 import org.dolphinemu.dolphinemu.features.settings.ui.MenuTag;
 import org.dolphinemu.dolphinemu.features.settings.ui.SettingsActivity;
 import org.dolphinemu.dolphinemu.features.settings.model.BooleanSetting;
+import org.dolphinemu.dolphinemu.utils.StateSlotIndex;
 
 import java.util.ArrayList;
 
@@ -50,6 +52,7 @@ public class RunningSettingDialog extends DialogFragment
     public static final int SETTING_OVERCLOCK_ENABLE = 7;
     public static final int SETTING_OVERCLOCK_PERCENT = 8;
     public static final int SETTING_JIT_FOLLOW_BRANCH = 9;
+    public static final int RUNNING_SETTING_COUNT = 10;
     // view type
     public static final int TYPE_CHECKBOX = 0;
     public static final int TYPE_RADIO_GROUP = 1;
@@ -135,7 +138,68 @@ public class RunningSettingDialog extends DialogFragment
 
     public void setValue(int value)
     {
+      if (mValue == value)
+        return;
+
       mValue = value;
+      if (mSetting < RUNNING_SETTING_COUNT)
+        mRunningSettingUpdates.set(mSetting, value);
+    }
+  }
+
+  /**
+   * Passes changed running settings on to native code once per frame, so that moving a slider
+   * takes effect right away without sending every value it passes through.
+   */
+  private static final class RunningSettingUpdates implements Choreographer.FrameCallback
+  {
+    private final boolean[] mPending = new boolean[SettingsItem.RUNNING_SETTING_COUNT];
+    private final int[] mPendingValues = new int[SettingsItem.RUNNING_SETTING_COUNT];
+    private final int[] mSettings = new int[SettingsItem.RUNNING_SETTING_COUNT];
+    private final int[] mValues = new int[SettingsItem.RUNNING_SETTING_COUNT];
+    private boolean mScheduled = false;
+
+    public void set(int setting, int value)
+    {
+      mPending[setting] = true;
+      mPendingValues[setting] = value;
+
+      if (!mScheduled)
+      {
+        mScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+      }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos)
+    {
+      mScheduled = false;
+      flush();
+    }
+
+    public void flush()
+    {
+      if (mScheduled)
+      {
+        Choreographer.getInstance().removeFrameCallback(this);
+        mScheduled = false;
+      }
+
+      int count = 0;
+      for (int setting = 0; setting < mPending.length; setting++)
+      {
+        if (mPending[setting])
+        {
+          mPending[setting] = false;
+          mSettings[count] = setting;
+          mValues[count] = mPendingValues[setting];
+          count++;
+        }
+      }
+
+      if (count > 0)
+        NativeLibrary.setRunningSettings(mSettings, mValues, count);
     }
   }
 
@@ -213,11 +277,11 @@ public class RunningSettingDialog extends DialogFragment
           dismiss();
           break;
         case SettingsItem.SETTING_QUICK_SAVE:
-          NativeLibrary.SaveState(9, false);
+          activity.saveState(StateSlotIndex.QUICK_SAVE_SLOT);
           dismiss();
           break;
         case SettingsItem.SETTING_QUICK_LOAD:
-          NativeLibrary.LoadState(9);
+          NativeLibrary.LoadState(StateSlotIndex.QUICK_SAVE_SLOT);
           dismiss();
           break;
         case SettingsItem.SETTING_CHANGE_DISC:
@@ -233,27 +297,27 @@ public class RunningSettingDialog extends DialogFragment
           break;
         // save state
         case SettingsItem.SETTING_STATE_SAVE_SLOT1:
-          NativeLibrary.SaveState(1, false);
+          activity.saveState(1);
           dismiss();
           break;
         case SettingsItem.SETTING_STATE_SAVE_SLOT2:
-          NativeLibrary.SaveState(2, false);
+          activity.saveState(2);
           dismiss();
           break;
         case SettingsItem.SETTING_STATE_SAVE_SLOT3:
-          NativeLibrary.SaveState(3, false);
+          activity.saveState(3);
           dismiss();
           break;
         case SettingsItem.SETTING_STATE_SAVE_SLOT4:
-          NativeLibrary.SaveState(4, false);
+          activity.saveState(4);
           dismiss();
           break;
         case SettingsItem.SETTING_STATE_SAVE_SLOT5:
-          NativeLibrary.SaveState(5, false);
+          activity.saveState(5);
           dismiss();
           break;
         case SettingsItem.SETTING_STATE_SAVE_SLOT6:
-          NativeLibrary.SaveState(6, false);
+          activity.saveState(6);
           dismiss();
           break;
         // load state
@@ -484,7 +548,6 @@ public class RunningSettingDialog extends DialogFragment
 
   public class SettingsAdapter extends RecyclerView.Adapter<SettingViewHolder>
   {
-    private int[] mRunningSettings;
     private ArrayList<SettingsItem> mSettings;
 
     public void loadMainMenu()
@@ -590,33 +653,33 @@ public class RunningSettingDialog extends DialogFragment
     public void loadQuickSettingsMenu()
     {
       int i = 0;
-      mRunningSettings = NativeLibrary.getRunningSettings();
+      int[] runningSettings = NativeLibrary.getRunningSettings();
       mSettings = new ArrayList<>();
 
       // gfx
       mSettings.add(new SettingsItem(SettingsItem.SETTING_SHOW_FPS, R.string.show_fps,
-              SettingsItem.TYPE_CHECKBOX, mRunningSettings[i++]));
+              SettingsItem.TYPE_CHECKBOX, runningSettings[i++]));
       mSettings.add(new SettingsItem(SettingsItem.SETTING_SKIP_EFB,
-              R.string.skip_efb_access, SettingsItem.TYPE_CHECKBOX, mRunningSettings[i++]));
+              R.string.skip_efb_access, SettingsItem.TYPE_CHECKBOX, runningSettings[i++]));
       mSettings.add(new SettingsItem(SettingsItem.SETTING_EFB_TEXTURE, R.string.efb_copy_method,
-              SettingsItem.TYPE_CHECKBOX, mRunningSettings[i++]));
+              SettingsItem.TYPE_CHECKBOX, runningSettings[i++]));
       mSettings.add(new SettingsItem(SettingsItem.SETTING_IGNORE_FORMAT,
-              R.string.ignore_format_changes, SettingsItem.TYPE_CHECKBOX, mRunningSettings[i++]));
+              R.string.ignore_format_changes, SettingsItem.TYPE_CHECKBOX, runningSettings[i++]));
       mSettings.add(new SettingsItem(SettingsItem.SETTING_ARBITRARY_MIPMAP_DETECTION,
               R.string.arbitrary_mipmap_detection, SettingsItem.TYPE_CHECKBOX,
-              mRunningSettings[i++]));
+              runningSettings[i++]));
       mSettings.add(new SettingsItem(SettingsItem.SETTING_IMMEDIATE_XFB,
-              R.string.immediate_xfb, SettingsItem.TYPE_CHECKBOX, mRunningSettings[i++]));
+              R.string.immediate_xfb, SettingsItem.TYPE_CHECKBOX, runningSettings[i++]));
 
       // core
       mSettings.add(new SettingsItem(SettingsItem.SETTING_SYNC_ON_SKIP_IDLE,
-              R.string.synchronize_gpu_thread, SettingsItem.TYPE_CHECKBOX, mRunningSettings[i++]));
+              R.string.synchronize_gpu_thread, SettingsItem.TYPE_CHECKBOX, runningSettings[i++]));
       mSettings.add(new SettingsItem(SettingsItem.SETTING_OVERCLOCK_ENABLE,
-              R.string.overclock_enable, SettingsItem.TYPE_CHECKBOX, mRunningSettings[i++]));
+              R.string.overclock_enable, SettingsItem.TYPE_CHECKBOX, runningSettings[i++]));
       mSettings.add(new SettingsItem(SettingsItem.SETTING_OVERCLOCK_PERCENT,
-              R.string.overclock_title, SettingsItem.TYPE_SEEK_BAR, mRunningSettings[i++]));
+              R.string.overclock_title, SettingsItem.TYPE_SEEK_BAR, runningSettings[i++]));
       mSettings.add(new SettingsItem(SettingsItem.SETTING_JIT_FOLLOW_BRANCH,
-              R.string.jit_follow_branch, SettingsItem.TYPE_CHECKBOX, mRunningSettings[i++]));
+              R.string.jit_follow_branch, SettingsItem.TYPE_CHECKBOX, runningSettings[i++]));
     }
 
     @NonNull
@@ -660,32 +723,6 @@ public class RunningSettingDialog extends DialogFragment
     {
       holder.bind(mSettings.get(position));
     }
-
-    public void saveSettings()
-    {
-      // don't constantly save settings
-      if (mRunningSettings == null)
-      {
-        return;
-      }
-
-      // settings
-      boolean isChanged = false;
-      int[] newSettings = new int[mRunningSettings.length];
-      for (int i = 0; i < mRunningSettings.length; ++i)
-      {
-        newSettings[i] = mSettings.get(i).getValue();
-        if (newSettings[i] != mRunningSettings[i])
-        {
-          isChanged = true;
-        }
-      }
-      // apply settings changed
-      if (isChanged)
-      {
-        NativeLibrary.setRunningSettings(newSettings);
-      }
-    }
   }
 
   public static RunningSettingDialog newInstance()
@@ -704,6 +741,7 @@ public class RunningSettingDialog extends DialogFragment
   private TextView mInfo;
   private Handler mHandler;
   private SettingsAdapter mAdapter;
+  private final RunningSettingUpdates mRunningSettingUpdates = new RunningSettingUpdates();
   private DialogInterface.OnDismissListener mDismissListener;
 
   @NonNull
@@ -755,10 +793,7 @@ public class RunningSettingDialog extends DialogFragment
   public void onDismiss(DialogInterface dialog)
   {
     super.onDismiss(dialog);
-    if (mMenu == MENU_SETTINGS)
-    {
-      mAdapter.saveSettings();
-    }
+    mRunningSettingUpdates.flush();
     if (mDismissListener != null)
     {
       mDismissListener.onDismiss(dialog);
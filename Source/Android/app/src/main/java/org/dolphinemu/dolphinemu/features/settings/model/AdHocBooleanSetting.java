@@ -37,18 +37,22 @@ public class AdHocBooleanSetting implements AbstractBooleanSetting
   @Override
   public boolean delete(Settings settings)
   {
+    // Deleting a key doesn't change the native config version
+    settings.getConfigSnapshot().invalidate();
+    settings.onNativeSettingChanged(mFile);
     return NativeConfig.deleteKey(settings.getWriteLayer(), mFile, mSection, mKey);
   }
 
   @Override
   public boolean getBoolean(Settings settings)
   {
-    return NativeConfig.getBoolean(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey, mDefaultValue);
+    return settings.getConfigSnapshot().getBoolean(mFile, mSection, mKey, mDefaultValue);
   }
 
   @Override
   public void setBoolean(Settings settings, boolean newValue)
   {
+    settings.onNativeSettingChanged(mFile);
     NativeConfig.setBoolean(settings.getWriteLayer(), mFile, mSection, mKey, newValue);
   }
 
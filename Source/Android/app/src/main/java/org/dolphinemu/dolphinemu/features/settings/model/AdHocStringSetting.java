@@ -37,18 +37,22 @@ public class AdHocStringSetting implements AbstractStringSetting
   @Override
   public boolean delete(Settings settings)
   {
+    // Deleting a key doesn't change the native config version
+    settings.getConfigSnapshot().invalidate();
+    settings.onNativeSettingChanged(mFile);
     return NativeConfig.deleteKey(settings.getWriteLayer(), mFile, mSection, mKey);
   }
 
   @Override
   public String getString(Settings settings)
   {
-    return NativeConfig.getString(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey, mDefaultValue);
+    return settings.getConfigSnapshot().getString(mFile, mSection, mKey, mDefaultValue);
   }
 
   @Override
   public void setString(Settings settings, String newValue)
   {
+    settings.onNativeSettingChanged(mFile);
     NativeConfig.setString(settings.getWriteLayer(), mFile, mSection, mKey, newValue);
   }
 
@@ -264,6 +264,9 @@ public enum BooleanSetting implements AbstractBooleanSetting
   private final String mKey;
   private final boolean mDefaultValue;
 
+  // Only depends on the location, so native code only has to be asked once
+  private Boolean mIsSaveable;
+
   BooleanSetting(String file, String section, String key, boolean defaultValue)
   {
     mFile = file;
@@ -275,7 +278,7 @@ public enum BooleanSetting implements AbstractBooleanSetting
   @Override
   public boolean isOverridden(Settings settings)
   {
-    if (settings.isGameSpecific() && !NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (settings.isGameSpecific() && !isSaveable())
       return settings.getSection(mFile, mSection).exists(mKey);
     else
       return NativeConfig.isOverridden(mFile, mSection, mKey);
@@ -293,14 +296,17 @@ public enum BooleanSetting implements AbstractBooleanSetting
         return false;
     }
 
-    return NativeConfig.isSettingSaveable(mFile, mSection, mKey);
+    return isSaveable();
   }
 
   @Override
   public boolean delete(Settings settings)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
+      // Deleting a key doesn't change the native config version
+      settings.getConfigSnapshot().invalidate();
+      settings.onNativeSettingChanged(mFile);
       return NativeConfig.deleteKey(settings.getWriteLayer(), mFile, mSection, mKey);
     }
     else
@@ -312,10 +318,9 @@ public enum BooleanSetting implements AbstractBooleanSetting
   @Override
   public boolean getBoolean(Settings settings)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
-      return NativeConfig.getBoolean(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey,
-              mDefaultValue);
+      return settings.getConfigSnapshot().getBoolean(mFile, mSection, mKey, mDefaultValue);
     }
     else
     {
@@ -326,8 +331,9 @@ public enum BooleanSetting implements AbstractBooleanSetting
   @Override
   public void setBoolean(Settings settings, boolean newValue)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
+      settings.onNativeSettingChanged(mFile);
       NativeConfig.setBoolean(settings.getWriteLayer(), mFile, mSection, mKey, newValue);
     }
     else
@@ -336,6 +342,13 @@ public enum BooleanSetting implements AbstractBooleanSetting
     }
   }
 
+  private boolean isSaveable()
+  {
+    if (mIsSaveable == null)
+      mIsSaveable = NativeConfig.isSettingSaveable(mFile, mSection, mKey);
+    return mIsSaveable;
+  }
+
   public boolean getBooleanGlobal()
   {
     return NativeConfig.getBoolean(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey, mDefaultValue);
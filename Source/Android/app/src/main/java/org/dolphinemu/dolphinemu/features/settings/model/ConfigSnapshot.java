@@ -0,0 +1,160 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.features.settings.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * A copy of the active values of the native config, made one whole section at a time so that
+ * building a settings menu doesn't need a JNI call with four strings for every single setting.
+ *
+ * A section is fetched the first time one of its settings is read. All sections are dropped
+ * as soon as the native config version changes.
+ */
+final class ConfigSnapshot
+{
+  // Mirrors what TryParse in Common/StringUtil.h accepts for floats
+  private static final Pattern FLOAT_PATTERN =
+          Pattern.compile("\\s*[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+  // Like config locations in native code, files, sections and keys are case-insensitive
+  private final Map<String, Map<String, Map<String, String>>> mFiles =
+          new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+  private long mConfigVersion = -1;
+
+  String getString(String file, String section, String key, String defaultValue)
+  {
+    String value = getSection(file, section).get(key);
+    return value != null ? value : defaultValue;
+  }
+
+  boolean getBoolean(String file, String section, String key, boolean defaultValue)
+  {
+    String value = getSection(file, section).get(key);
+    return value != null ? parseBoolean(value, defaultValue) : defaultValue;
+  }
+
+  int getInt(String file, String section, String key, int defaultValue)
+  {
+    String value = getSection(file, section).get(key);
+    return value != null ? parseInt(value, defaultValue) : defaultValue;
+  }
+
+  float getFloat(String file, String section, String key, float defaultValue)
+  {
+    String value = getSection(file, section).get(key);
+    return value != null ? parseFloat(value, defaultValue) : defaultValue;
+  }
+
+  /**
+   * Drops all sections. Needed after changes that don't bump the native config version.
+   */
+  void invalidate()
+  {
+    mFiles.clear();
+  }
+
+  private Map<String, String> getSection(String file, String section)
+  {
+    long configVersion = NativeConfig.getConfigVersion();
+    if (configVersion != mConfigVersion)
+    {
+      mFiles.clear();
+      mConfigVersion = configVersion;
+    }
+
+    Map<String, Map<String, String>> sections = mFiles.get(file);
+    if (sections == null)
+    {
+      sections = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      mFiles.put(file, sections);
+    }
+
+    Map<String, String> values = sections.get(section);
+    if (values == null)
+    {
+      values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      String[] pairs = NativeConfig.getSection(NativeConfig.LAYER_ACTIVE, file, section);
+      for (int i = 0; i + 1 < pairs.length; i += 2)
+      {
+        values.put(pairs[i], pairs[i + 1]);
+      }
+      sections.put(section, values);
+    }
+    return values;
+  }
+
+  static boolean parseBoolean(String value, boolean defaultValue)
+  {
+    if (value.equalsIgnoreCase("true"))
+      return true;
+    if (value.equalsIgnoreCase("false"))
+      return false;
+
+    float number = parseFloat(value, Float.NaN);
+    if (number == 1)
+      return true;
+    if (number == 0)
+      return false;
+    return defaultValue;
+  }
+
+  static int parseInt(String value, int defaultValue)
+  {
+    // Mirrors TryParse in Common/StringUtil.h, which uses strtoll with base 0
+    int length = value.length();
+    int i = 0;
+    while (i < length && Character.isWhitespace(value.charAt(i)))
+      i++;
+
+    boolean negative = false;
+    if (i < length && (value.charAt(i) == '+' || value.charAt(i) == '-'))
+    {
+      negative = value.charAt(i) == '-';
+      i++;
+    }
+
+    int radix = 10;
+    if (value.startsWith("0x", i) || value.startsWith("0X", i))
+    {
+      radix = 16;
+      i += 2;
+    }
+    else if (value.startsWith("0", i) && i + 1 < length)
+    {
+      radix = 8;
+    }
+
+    if (i == length || Character.digit(value.charAt(i), radix) < 0)
+      return defaultValue;
+
+    long result;
+    try
+    {
+      result = Long.parseLong(value.substring(i), radix);
+    }
+    catch (NumberFormatException e)
+    {
+      return defaultValue;
+    }
+
+    if (negative)
+      result = -result;
+    if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE)
+      return defaultValue;
+    return (int) result;
+  }
+
+  static float parseFloat(String value, float defaultValue)
+  {
+    String dotted = value.replace(',', '.');
+    if (!FLOAT_PATTERN.matcher(dotted).matches())
+      return defaultValue;
+
+    float result = Float.parseFloat(dotted);
+    return Float.isInfinite(result) ? defaultValue : result;
+  }
+}
@@ -27,6 +27,9 @@ public enum FloatSetting implements AbstractFloatSetting
   private final String mKey;
   private final float mDefaultValue;
 
+  // Only depends on the location, so native code only has to be asked once
+  private Boolean mIsSaveable;
+
   FloatSetting(String file, String section, String key, float defaultValue)
   {
     mFile = file;
@@ -38,7 +41,7 @@ public enum FloatSetting implements AbstractFloatSetting
   @Override
   public boolean isOverridden(Settings settings)
   {
-    if (settings.isGameSpecific() && !NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (settings.isGameSpecific() && !isSaveable())
       return settings.getSection(mFile, mSection).exists(mKey);
     else
       return NativeConfig.isOverridden(mFile, mSection, mKey);
@@ -53,14 +56,17 @@ public enum FloatSetting implements AbstractFloatSetting
         return false;
     }
 
-    return NativeConfig.isSettingSaveable(mFile, mSection, mKey);
+    return isSaveable();
   }
 
   @Override
   public boolean delete(Settings settings)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
+      // Deleting a key doesn't change the native config version
+      settings.getConfigSnapshot().invalidate();
+      settings.onNativeSettingChanged(mFile);
       return NativeConfig.deleteKey(settings.getWriteLayer(), mFile, mSection, mKey);
     }
     else
@@ -72,9 +78,9 @@ public enum FloatSetting implements AbstractFloatSetting
   @Override
   public float getFloat(Settings settings)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
-      return NativeConfig.getFloat(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey, mDefaultValue);
+      return settings.getConfigSnapshot().getFloat(mFile, mSection, mKey, mDefaultValue);
     }
     else
     {
@@ -85,8 +91,9 @@ public enum FloatSetting implements AbstractFloatSetting
   @Override
   public void setFloat(Settings settings, float newValue)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
+      settings.onNativeSettingChanged(mFile);
       NativeConfig.setFloat(settings.getWriteLayer(), mFile, mSection, mKey, newValue);
     }
     else
@@ -95,6 +102,13 @@ public enum FloatSetting implements AbstractFloatSetting
     }
   }
 
+  private boolean isSaveable()
+  {
+    if (mIsSaveable == null)
+      mIsSaveable = NativeConfig.isSettingSaveable(mFile, mSection, mKey);
+    return mIsSaveable;
+  }
+
   public float getFloatGlobal()
   {
     return NativeConfig.getFloat(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey, mDefaultValue);
@@ -77,6 +77,9 @@ public enum IntSetting implements AbstractIntSetting
   private final String mKey;
   private final int mDefaultValue;
 
+  // Only depends on the location, so native code only has to be asked once
+  private Boolean mIsSaveable;
+
   IntSetting(String file, String section, String key, int defaultValue)
   {
     mFile = file;
@@ -88,7 +91,7 @@ public enum IntSetting implements AbstractIntSetting
   @Override
   public boolean isOverridden(Settings settings)
   {
-    if (settings.isGameSpecific() && !NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (settings.isGameSpecific() && !isSaveable())
       return settings.getSection(mFile, mSection).exists(mKey);
     else
       return NativeConfig.isOverridden(mFile, mSection, mKey);
@@ -106,14 +109,17 @@ public enum IntSetting implements AbstractIntSetting
         return false;
     }
 
-    return NativeConfig.isSettingSaveable(mFile, mSection, mKey);
+    return isSaveable();
   }
 
   @Override
   public boolean delete(Settings settings)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
+      // Deleting a key doesn't change the native config version
+      settings.getConfigSnapshot().invalidate();
+      settings.onNativeSettingChanged(mFile);
       return NativeConfig.deleteKey(settings.getWriteLayer(), mFile, mSection, mKey);
     }
     else
@@ -125,9 +131,9 @@ public enum IntSetting implements AbstractIntSetting
   @Override
   public int getInt(Settings settings)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
-      return NativeConfig.getInt(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey, mDefaultValue);
+      return settings.getConfigSnapshot().getInt(mFile, mSection, mKey, mDefaultValue);
     }
     else
     {
@@ -138,8 +144,9 @@ public enum IntSetting implements AbstractIntSetting
   @Override
   public void setInt(Settings settings, int newValue)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
+      settings.onNativeSettingChanged(mFile);
       NativeConfig.setInt(settings.getWriteLayer(), mFile, mSection, mKey, newValue);
     }
     else
@@ -148,6 +155,13 @@ public enum IntSetting implements AbstractIntSetting
     }
   }
 
+  private boolean isSaveable()
+  {
+    if (mIsSaveable == null)
+      mIsSaveable = NativeConfig.isSettingSaveable(mFile, mSection, mKey);
+    return mIsSaveable;
+  }
+
   public int getIntGlobal()
   {
     return NativeConfig.getInt(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey, mDefaultValue);
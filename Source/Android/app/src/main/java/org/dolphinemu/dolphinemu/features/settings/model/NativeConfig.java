@@ -15,12 +15,31 @@ public class NativeConfig
 
   public static native void unloadGameInis();
 
+  /**
+   * Writes the layer to disk if anything in it was changed since it was last written.
+   */
   public static native void save(int layer);
 
+  /**
+   * Makes the next call to save write the layer even if nothing in it was changed.
+   */
+  public static native void markAsDirty(int layer);
+
   public static native boolean isOverridden(String file, String section, String key);
 
   public static native boolean deleteKey(int layer, String file, String section, String key);
 
+  /**
+   * Returns the values of all keys in a section that have a value in the given layer,
+   * as a flattened array of key/value pairs. Much cheaper than getting each key on its own.
+   */
+  public static native String[] getSection(int layer, String file, String section);
+
+  /**
+   * Returns a number that changes every time the native config changes.
+   */
+  public static native long getConfigVersion();
+
   public static native String getString(int layer, String file, String section, String key,
           String defaultValue);
 
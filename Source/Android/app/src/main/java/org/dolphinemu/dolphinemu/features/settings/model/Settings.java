@@ -3,6 +3,8 @@
 package org.dolphinemu.dolphinemu.features.settings.model;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.widget.Toast;
 
@@ -15,8 +17,11 @@ import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 import org.dolphinemu.dolphinemu.utils.IniFile;
 
 import java.io.Closeable;
+import java.io.File;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class Settings implements Closeable
 {
@@ -65,8 +70,16 @@ public class Settings implements Closeable
   private Map<String, IniFile> mIniFiles = new HashMap<>();
   private final Map<String, IniFile> mWiimoteProfileFiles = new HashMap<>();
 
+  private boolean mLoaded = false;
+  private SettingsActivityView mView;
+
+  private final ConfigSnapshot mConfigSnapshot = new ConfigSnapshot();
+
   private boolean mLoadedRecursiveIsoPathsValue = false;
 
+  private final Set<String> mChangedNativeFiles = new HashSet<>();
+  private boolean mCleared = false;
+
   private IniFile getGameSpecificFile()
   {
     if (!isGameSpecific() || mIniFiles.size() != 1)
@@ -79,7 +92,7 @@ public class Settings implements Closeable
   {
     if (!isGameSpecific())
     {
-      return mIniFiles.get(fileName).getOrCreateSection(sectionName);
+      return getIniFile(fileName).getOrCreateSection(sectionName);
     }
     else
     {
@@ -88,6 +101,27 @@ public class Settings implements Closeable
     }
   }
 
+  /**
+   * Reads the legacy INI file the first time one of its sections is needed, so that opening
+   * a settings menu doesn't have to parse files that none of its settings are stored in.
+   */
+  private IniFile getIniFile(String fileName)
+  {
+    IniFile ini = mIniFiles.get(fileName);
+    if (ini == null)
+    {
+      ini = new IniFile();
+      SettingsFile.readFile(fileName, ini, mView);
+      mIniFiles.put(fileName, ini);
+    }
+    return ini;
+  }
+
+  ConfigSnapshot getConfigSnapshot()
+  {
+    return mConfigSnapshot;
+  }
+
   public boolean isGameSpecific()
   {
     return !TextUtils.isEmpty(mGameId);
@@ -149,7 +183,7 @@ public class Settings implements Closeable
 
   public boolean isEmpty()
   {
-    return mIniFiles.isEmpty();
+    return !mLoaded;
   }
 
   public void loadSettings()
@@ -161,14 +195,15 @@ public class Settings implements Closeable
   public void loadSettings(SettingsActivityView view, boolean isWii)
   {
     mIsWii = isWii;
+    mView = view;
 
     mIniFiles = new HashMap<>();
+    mConfigSnapshot.invalidate();
+    mChangedNativeFiles.clear();
+    mCleared = false;
 
-    if (!isGameSpecific())
-    {
-      loadDolphinSettings(view);
-    }
-    else
+    // Global INI files are only read once they're used. See getIniFile.
+    if (isGameSpecific())
     {
       // Loading game INIs while the core is running will mess with the game INIs loaded by the core
       if (NativeLibrary.IsRunning())
@@ -178,19 +213,10 @@ public class Settings implements Closeable
       loadCustomGameSettings(mGameId, view);
     }
 
+    mLoaded = true;
     mLoadedRecursiveIsoPathsValue = BooleanSetting.MAIN_RECURSIVE_ISO_PATHS.getBoolean(this);
   }
 
-  private void loadDolphinSettings(SettingsActivityView view)
-  {
-    for (String fileName : configFiles)
-    {
-      IniFile ini = new IniFile();
-      SettingsFile.readFile(fileName, ini, view);
-      mIniFiles.put(fileName, ini);
-    }
-  }
-
   private void loadCustomGameSettings(String gameId, SettingsActivityView view)
   {
     IniFile ini = new IniFile();
@@ -205,64 +231,167 @@ public class Settings implements Closeable
     loadSettings(view, isWii);
   }
 
+  /**
+   * Saves the settings that have been changed and lets native code know about them.
+   *
+   * Everything is written in the background shortly afterwards, see
+   * {@link SettingsFile#writeChangesLater}. Changed keys in legacy INI files and native config
+   * layers are written by the same thread, since they are stored in the same files. Native code
+   * is only told to reload the parts of the config that something was changed in, and the user
+   * is told whether saving worked once everything is written.
+   */
   public void saveSettings(SettingsActivityView view, Context context)
   {
+    final boolean cleared = mCleared;
+    mCleared = false;
+
+    Runnable afterWrite = null;
+    final String savedMessage;
+
     if (!isGameSpecific())
     {
-      if (context != null)
-        Toast.makeText(context, R.string.settings_saved, Toast.LENGTH_SHORT).show();
+      savedMessage = context != null ? context.getString(R.string.settings_saved) : null;
 
-      for (Map.Entry<String, IniFile> entry : mIniFiles.entrySet())
-      {
-        SettingsFile.saveFile(entry.getKey(), entry.getValue(), view);
-      }
+      // A cleared INI file is written from scratch, so the native settings that are stored in
+      // the same file have to be written again
+      SettingsFile.saveNativeConfigLater(NativeConfig.LAYER_BASE, cleared);
 
-      NativeConfig.save(NativeConfig.LAYER_BASE);
+      // Native code reads the native config on its own, except for the Wii Remote sources
+      // and the logger settings
+      boolean dolphinChanged = false;
+      boolean coreChanged = false;
+      boolean wiimoteChanged = mChangedNativeFiles.contains(FILE_WIIMOTE);
+      boolean loggerChanged = mChangedNativeFiles.contains(FILE_LOGGER);
+      mChangedNativeFiles.clear();
 
-      if (!NativeLibrary.IsRunning())
+      // INI files that were never read can't have been changed
+      for (Map.Entry<String, IniFile> entry : mIniFiles.entrySet())
       {
-        // Notify the native code of the changes to legacy settings
-        NativeLibrary.ReloadConfig();
-        NativeLibrary.ReloadWiimoteConfig();
+        File file = SettingsFile.getSettingsFile(entry.getKey());
+        IniFile.Changes changes = entry.getValue().takeChanges(file);
+        if (changes == null)
+          continue;
+
+        SettingsFile.writeChangesLater(file, changes);
+
+        switch (entry.getKey())
+        {
+          case FILE_DOLPHIN:
+            dolphinChanged = true;
+            // The GameCube adapter is used depending on the SIDevice keys
+            coreChanged = changes.affectsSection(SECTION_INI_CORE);
+            break;
+          case FILE_WIIMOTE:
+            wiimoteChanged = true;
+            break;
+          case FILE_LOGGER:
+            loggerChanged = true;
+            break;
+        }
       }
 
-      // LogManager does use the new config system, but doesn't pick up on changes automatically
-      NativeLibrary.ReloadLoggerConfig();
-      NativeLibrary.UpdateGCAdapterScanThread();
+      final boolean reloadConfig = dolphinChanged;
+      final boolean reloadWiimoteConfig = wiimoteChanged;
+      final boolean reloadLoggerConfig = loggerChanged;
+      final boolean updateGCAdapterScanThread = coreChanged;
+      final boolean rescan = mLoadedRecursiveIsoPathsValue !=
+              BooleanSetting.MAIN_RECURSIVE_ISO_PATHS.getBoolean(this);
 
-      if (mLoadedRecursiveIsoPathsValue != BooleanSetting.MAIN_RECURSIVE_ISO_PATHS.getBoolean(this))
+      if (reloadConfig || reloadWiimoteConfig || reloadLoggerConfig || rescan)
       {
-        // Refresh game library
-        GameFileCacheManager.startRescan(context);
+        afterWrite = () ->
+        {
+          if (!NativeLibrary.IsRunning())
+          {
+            // Notify the native code of the changes to legacy settings. The native config layers
+            // are already up to date, so only the legacy settings have to be read again.
+            if (reloadConfig)
+              NativeLibrary.ReloadLegacyConfig();
+            if (reloadWiimoteConfig)
+              NativeLibrary.ReloadWiimoteConfig();
+          }
+
+          // LogManager does use the new config system, but doesn't pick up on changes
+          // automatically
+          if (reloadLoggerConfig)
+            NativeLibrary.ReloadLoggerConfig();
+          if (updateGCAdapterScanThread)
+            NativeLibrary.UpdateGCAdapterScanThread();
+
+          if (rescan)
+          {
+            // Refresh game library
+            new Handler(Looper.getMainLooper())
+                    .post(() -> GameFileCacheManager.startRescan(context));
+          }
+        };
       }
     }
     else
     {
       // custom game settings
 
-      if (context != null)
-      {
-        Toast.makeText(context, context.getString(R.string.settings_saved_game_specific, mGameId),
-                Toast.LENGTH_SHORT).show();
-      }
+      savedMessage = context != null ?
+              context.getString(R.string.settings_saved_game_specific, mGameId) : null;
 
       SettingsFile.saveCustomGameSettings(mGameId, getGameSpecificFile());
-
-      NativeConfig.save(NativeConfig.LAYER_LOCAL_GAME);
+      SettingsFile.saveNativeConfigLater(NativeConfig.LAYER_LOCAL_GAME, cleared);
     }
 
     for (Map.Entry<String, IniFile> entry : mWiimoteProfileFiles.entrySet())
     {
-      entry.getValue().save(SettingsFile.getWiiProfile(entry.getKey()));
+      File file = SettingsFile.getWiiProfile(entry.getKey());
+      SettingsFile.writeChangesLater(file, entry.getValue().takeChanges(file));
     }
+
+    final Runnable reload = afterWrite;
+    final Context appContext = context != null ? context.getApplicationContext() : null;
+    SettingsFile.runAfterPendingWrites(success ->
+    {
+      // Whatever did get written should still be picked up
+      if (reload != null)
+        reload.run();
+
+      if (appContext != null)
+      {
+        new Handler(Looper.getMainLooper()).post(() -> Toast.makeText(appContext,
+                success ? savedMessage : appContext.getString(R.string.settings_save_failed),
+                Toast.LENGTH_SHORT).show());
+      }
+    });
+  }
+
+  /**
+   * Remembers that a setting stored in the native config was changed, so that the parts of
+   * native code that only read the config on startup get told about it when saving.
+   */
+  void onNativeSettingChanged(String file)
+  {
+    mChangedNativeFiles.add(file);
   }
 
   public void clearSettings()
   {
-    for (String fileName : mIniFiles.keySet())
+    if (!isGameSpecific())
+    {
+      for (String fileName : configFiles)
+      {
+        mIniFiles.put(fileName, newClearedIniFile());
+      }
+    }
+    else
     {
-      mIniFiles.put(fileName, new IniFile());
+      mIniFiles.put(GAME_SETTINGS_PLACEHOLDER_FILE_NAME, newClearedIniFile());
     }
+    mCleared = true;
+  }
+
+  private static IniFile newClearedIniFile()
+  {
+    // Makes the next save write the whole (empty) file instead of only changed keys
+    IniFile ini = new IniFile();
+    ini.clear();
+    return ini;
   }
 
   public boolean gameIniContainsJunk()
@@ -296,6 +425,8 @@ public class Settings implements Closeable
   {
     if (isGameSpecific())
     {
+      // The local game layer is saved by the writer thread, so it has to stay loaded until then
+      SettingsFile.flushPendingWrites();
       NativeConfig.unloadGameInis();
     }
   }
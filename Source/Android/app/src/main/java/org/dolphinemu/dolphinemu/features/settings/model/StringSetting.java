@@ -41,6 +41,9 @@ public enum StringSetting implements AbstractStringSetting
   private final String mKey;
   private final String mDefaultValue;
 
+  // Only depends on the location, so native code only has to be asked once
+  private Boolean mIsSaveable;
+
   StringSetting(String file, String section, String key, String defaultValue)
   {
     mFile = file;
@@ -52,7 +55,7 @@ public enum StringSetting implements AbstractStringSetting
   @Override
   public boolean isOverridden(Settings settings)
   {
-    if (settings.isGameSpecific() && !NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (settings.isGameSpecific() && !isSaveable())
       return settings.getSection(mFile, mSection).exists(mKey);
     else
       return NativeConfig.isOverridden(mFile, mSection, mKey);
@@ -67,14 +70,17 @@ public enum StringSetting implements AbstractStringSetting
         return false;
     }
 
-    return NativeConfig.isSettingSaveable(mFile, mSection, mKey);
+    return isSaveable();
   }
 
   @Override
   public boolean delete(Settings settings)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
+      // Deleting a key doesn't change the native config version
+      settings.getConfigSnapshot().invalidate();
+      settings.onNativeSettingChanged(mFile);
       return NativeConfig.deleteKey(settings.getWriteLayer(), mFile, mSection, mKey);
     }
     else
@@ -86,10 +92,9 @@ public enum StringSetting implements AbstractStringSetting
   @Override
   public String getString(Settings settings)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
-      return NativeConfig.getString(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey,
-              mDefaultValue);
+      return settings.getConfigSnapshot().getString(mFile, mSection, mKey, mDefaultValue);
     }
     else
     {
@@ -100,8 +105,9 @@ public enum StringSetting implements AbstractStringSetting
   @Override
   public void setString(Settings settings, String newValue)
   {
-    if (NativeConfig.isSettingSaveable(mFile, mSection, mKey))
+    if (isSaveable())
     {
+      settings.onNativeSettingChanged(mFile);
       NativeConfig.setString(settings.getWriteLayer(), mFile, mSection, mKey, newValue);
     }
     else
@@ -110,6 +116,13 @@ public enum StringSetting implements AbstractStringSetting
     }
   }
 
+  private boolean isSaveable()
+  {
+    if (mIsSaveable == null)
+      mIsSaveable = NativeConfig.isSettingSaveable(mFile, mSection, mKey);
+    return mIsSaveable;
+  }
+
   public String getStringGlobal()
   {
     return NativeConfig.getString(NativeConfig.LAYER_ACTIVE, mFile, mSection, mKey, mDefaultValue);
@@ -3,15 +3,27 @@
 package org.dolphinemu.dolphinemu.features.settings.utils;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import org.dolphinemu.dolphinemu.features.settings.model.NativeConfig;
 import org.dolphinemu.dolphinemu.features.settings.model.Settings;
 import org.dolphinemu.dolphinemu.features.settings.ui.SettingsActivityView;
+import org.dolphinemu.dolphinemu.utils.Action1;
 import org.dolphinemu.dolphinemu.utils.BiMap;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 import org.dolphinemu.dolphinemu.utils.IniFile;
 import org.dolphinemu.dolphinemu.utils.Log;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Contains static methods for interacting with .ini files in which settings are stored.
@@ -197,6 +209,20 @@ public final class SettingsFile
     sectionsMap.add("GameSpecific", "Video");
   }
 
+  // Long enough for a few saves in a row (e.g. leaving nested settings menus) to share a write
+  private static final long WRITE_DELAY_MS = 500;
+
+  private static final ScheduledExecutorService sWriteExecutor =
+          Executors.newSingleThreadScheduledExecutor();
+
+  // Everything below is guarded by the lock of sPendingWrites
+  private static final Map<String, List<IniFile.Changes>> sPendingWrites = new LinkedHashMap<>();
+  // Native config layers to save, and whether to save them even if they have no changes
+  private static final Map<Integer, Boolean> sPendingNativeSaves = new LinkedHashMap<>();
+  private static final List<Action1<Boolean>> sPendingCallbacks = new ArrayList<>();
+  private static ScheduledFuture<?> sScheduledWrite;
+  private static boolean sWriting;
+
   private SettingsFile()
   {
   }
@@ -239,26 +265,158 @@ public final class SettingsFile
   }
 
   /**
-   * Saves a given .ini file on disk.
-   * If unsuccessful, outputs an error telling why it failed.
+   * Queues the changes made to the custom settings of a game to be written to disk.
+   */
+  public static void saveCustomGameSettings(final String gameId, IniFile ini)
+  {
+    File file = getCustomGameSettingsFile(gameId);
+    writeChangesLater(file, ini.takeChanges(file));
+  }
+
+  /**
+   * Writes changes to an .ini file on a background thread after a short delay. Changes to the
+   * same file that are queued during the delay get written together, and only the changed keys
+   * are touched, so that anything else written to the file in the meantime is kept.
    *
-   * @param fileName The target filename without a path or extension.
-   * @param ini      The IniFile we want to serialize.
-   * @param view     The current view.
+   * @param changes The changes to write, or null if there are none.
    */
-  public static void saveFile(final String fileName, IniFile ini, SettingsActivityView view)
+  public static void writeChangesLater(File file, @Nullable IniFile.Changes changes)
   {
-    if (!ini.save(getSettingsFile(fileName)))
+    if (changes == null)
+      return;
+
+    synchronized (sPendingWrites)
     {
-      Log.error("[SettingsFile] Error saving to: " + fileName + ".ini");
-      if (view != null)
-        view.showToastMessage("Error saving " + fileName + ".ini");
+      List<IniFile.Changes> changesList = sPendingWrites.get(file.getPath());
+      if (changesList == null)
+      {
+        changesList = new ArrayList<>();
+        sPendingWrites.put(file.getPath(), changesList);
+      }
+      changesList.add(changes);
+
+      scheduleWrite();
     }
   }
 
-  public static void saveCustomGameSettings(final String gameId, IniFile ini)
+  /**
+   * Saves a native config layer on the writer thread after the changes to .ini files that are
+   * queued along with it. Native layers are stored in the same files as the legacy settings,
+   * so they must never be written at the same time.
+   *
+   * @param markAsDirty Whether to save the whole layer even if nothing in it was changed, which
+   *                    is needed after the file it's stored in was written from scratch.
+   */
+  public static void saveNativeConfigLater(int layer, boolean markAsDirty)
+  {
+    synchronized (sPendingWrites)
+    {
+      Boolean alreadyDirty = sPendingNativeSaves.get(layer);
+      sPendingNativeSaves.put(layer, markAsDirty || (alreadyDirty != null && alreadyDirty));
+
+      scheduleWrite();
+    }
+  }
+
+  /**
+   * Runs the callback on the writer thread once all changes queued so far have been written.
+   * It's passed whether all of them were written successfully.
+   */
+  public static void runAfterPendingWrites(Action1<Boolean> callback)
   {
-    ini.save(getCustomGameSettingsFile(gameId));
+    synchronized (sPendingWrites)
+    {
+      sPendingCallbacks.add(callback);
+      scheduleWrite();
+    }
+  }
+
+  private static void scheduleWrite()
+  {
+    if (sScheduledWrite == null)
+    {
+      sScheduledWrite = sWriteExecutor.schedule(SettingsFile::writePendingChanges, WRITE_DELAY_MS,
+              TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Writes all queued changes right away and waits until they're on disk. Must be called before
+   * reading a settings file straight from disk. Returns immediately if nothing is queued.
+   */
+  public static void flushPendingWrites()
+  {
+    synchronized (sPendingWrites)
+    {
+      if (sScheduledWrite == null && !sWriting)
+        return;
+    }
+
+    try
+    {
+      sWriteExecutor.submit(SettingsFile::writePendingChanges).get();
+    }
+    catch (ExecutionException | InterruptedException e)
+    {
+      Log.error("[SettingsFile] Failed to write pending changes: " + e);
+    }
+  }
+
+  private static void writePendingChanges()
+  {
+    Map<String, List<IniFile.Changes>> writes;
+    Map<Integer, Boolean> nativeSaves;
+    List<Action1<Boolean>> callbacks;
+    synchronized (sPendingWrites)
+    {
+      if (sScheduledWrite != null)
+      {
+        sScheduledWrite.cancel(false);
+        sScheduledWrite = null;
+      }
+
+      writes = new LinkedHashMap<>(sPendingWrites);
+      nativeSaves = new LinkedHashMap<>(sPendingNativeSaves);
+      callbacks = new ArrayList<>(sPendingCallbacks);
+      sPendingWrites.clear();
+      sPendingNativeSaves.clear();
+      sPendingCallbacks.clear();
+      sWriting = true;
+    }
+
+    try
+    {
+      boolean success = true;
+      for (Map.Entry<String, List<IniFile.Changes>> entry : writes.entrySet())
+      {
+        if (!IniFile.Changes.write(entry.getKey(), entry.getValue()))
+        {
+          Log.error("[SettingsFile] Error saving to: " + entry.getKey());
+          success = false;
+        }
+      }
+
+      // After the .ini changes, since a file that was written from scratch needs the native
+      // settings written into it again
+      for (Map.Entry<Integer, Boolean> entry : nativeSaves.entrySet())
+      {
+        if (entry.getValue())
+          NativeConfig.markAsDirty(entry.getKey());
+        NativeConfig.save(entry.getKey());
+      }
+
+      for (Action1<Boolean> callback : callbacks)
+      {
+        callback.call(success);
+      }
+    }
+    finally
+    {
+      synchronized (sPendingWrites)
+      {
+        sWriting = false;
+      }
+    }
   }
 
   public static String mapSectionNameFromIni(String generalSectionName)
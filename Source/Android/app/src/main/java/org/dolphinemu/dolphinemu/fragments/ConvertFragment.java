@@ -6,6 +6,7 @@ import android.app.Activity;
 import android.app.ProgressDialog;
 import android.content.Context;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.provider.DocumentsContract;
@@ -14,17 +15,27 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.Spinner;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.model.GameFileCache;
+import org.dolphinemu.dolphinemu.services.ConversionQueue;
 import org.dolphinemu.dolphinemu.services.GameFileCacheManager;
 import org.dolphinemu.dolphinemu.ui.platform.Platform;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
@@ -99,6 +110,7 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
   private static final String KEY_REMOVE_JUNK_DATA = "remove_junk_data";
 
   private static final int REQUEST_CODE_SAVE_FILE = 0;
+  private static final int REQUEST_CODE_OUTPUT_FOLDER = 1;
 
   private static final int BLOB_TYPE_PLAIN = 0;
   private static final int BLOB_TYPE_GCZ = 3;
@@ -117,11 +129,19 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
   private SpinnerValue mCompression = new SpinnerValue();
   private SpinnerValue mCompressionLevel = new SpinnerValue();
 
+  // Exactly one of these is set, depending on whether one game or the whole library is converted
   private GameFile gameFile;
+  private List<GameFile> mBatchGames;
 
   private volatile boolean mCanceled;
   private volatile Thread mThread = null;
 
+  private static final ExecutorService sEstimateExecutor = Executors.newSingleThreadExecutor();
+  private final AtomicInteger mEstimateGeneration = new AtomicInteger();
+
+  /**
+   * @param gamePath The game to convert, or null to convert every game in the library
+   */
   public static ConvertFragment newInstance(String gamePath)
   {
     Bundle args = new Bundle();
@@ -136,7 +156,21 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
   public void onCreate(Bundle savedInstanceState)
   {
     super.onCreate(savedInstanceState);
-    gameFile = GameFileCacheManager.addOrGet(requireArguments().getString(ARG_GAME_PATH));
+
+    String gamePath = requireArguments().getString(ARG_GAME_PATH);
+    if (gamePath != null)
+    {
+      gameFile = GameFileCacheManager.addOrGet(gamePath);
+    }
+    else
+    {
+      mBatchGames = new ArrayList<>();
+      for (GameFile game : GameFileCacheManager.getAllGameFiles())
+      {
+        if (game.shouldAllowConversion())
+          mBatchGames.add(game);
+      }
+    }
   }
 
   @Override
@@ -160,7 +194,21 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
     mCompression.addCallback(this::populateCompressionLevel);
     mFormat.addCallback(this::populateRemoveJunkData);
 
-    view.findViewById(R.id.button_convert).setOnClickListener(this);
+    mFormat.addCallback(this::updateEstimate);
+    mBlockSize.addCallback(this::updateEstimate);
+    mCompression.addCallback(this::updateEstimate);
+    mCompressionLevel.addCallback(this::updateEstimate);
+    CheckBox removeJunkDataCheckBox = view.findViewById(R.id.checkbox_remove_junk_data);
+    removeJunkDataCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> updateEstimate());
+
+    Button convertButton = view.findViewById(R.id.button_convert);
+    convertButton.setOnClickListener(this);
+    if (mBatchGames != null)
+    {
+      convertButton.setText(getString(R.string.convert_convert_all, mBatchGames.size()));
+      convertButton.setEnabled(!mBatchGames.isEmpty());
+      view.findViewById(R.id.text_estimate).setVisibility(View.GONE);
+    }
 
     if (savedInstanceState != null)
     {
@@ -175,6 +223,8 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
       CheckBox removeJunkData = requireView().findViewById(R.id.checkbox_remove_junk_data);
       removeJunkData.setChecked(savedInstanceState.getBoolean(KEY_REMOVE_JUNK_DATA));
     }
+
+    updateEstimate();
   }
 
   @Override
@@ -243,7 +293,7 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
     Spinner spinner = populateSpinner(R.id.spinner_format, R.array.convertFormatEntries,
             R.array.convertFormatValues, mFormat);
 
-    if (gameFile.getBlobType() == BLOB_TYPE_PLAIN)
+    if (gameFile == null || gameFile.getBlobType() == BLOB_TYPE_PLAIN)
       spinner.setSelection(spinner.getCount() - 1);
   }
 
@@ -314,8 +364,9 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
 
   private void populateRemoveJunkData()
   {
+    // When converting the library, Datel discs are simply converted without scrubbing
     boolean scrubbingAllowed = mFormat.getValue(requireContext()) != BLOB_TYPE_RVZ &&
-            !gameFile.isDatelDisc();
+            (gameFile == null || !gameFile.isDatelDisc());
 
     CheckBox removeJunkData = requireView().findViewById(R.id.checkbox_remove_junk_data);
     removeJunkData.setEnabled(scrubbingAllowed);
@@ -323,6 +374,59 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
       removeJunkData.setChecked(false);
   }
 
+  /**
+   * Shows how big the converted file would be with the current settings, and how fast the
+   * conversion would go. Only available when converting a single game.
+   */
+  private void updateEstimate()
+  {
+    View view = getView();
+    if (gameFile == null || view == null)
+      return;
+
+    Context context = requireContext();
+    String path = gameFile.getPath();
+    long currentSize = gameFile.getFileSize();
+    int format = mFormat.getValue(context);
+    int blockSize = mBlockSize.getValueOr(context, 0);
+    int compression = mCompression.getValueOr(context, 0);
+    int compressionLevel = mCompressionLevel.getValueOr(context, 0);
+    boolean scrub = getRemoveJunkData();
+
+    TextView estimateView = view.findViewById(R.id.text_estimate);
+    estimateView.setText(R.string.convert_estimating);
+
+    int generation = mEstimateGeneration.incrementAndGet();
+    sEstimateExecutor.execute(() ->
+    {
+      // Changing one setting often changes others too, so skip estimates that are already outdated
+      if (mEstimateGeneration.get() != generation)
+        return;
+
+      long[] estimate = NativeLibrary.EstimateConversion(path, format, blockSize, compression,
+              compressionLevel, scrub);
+
+      String text;
+      if (estimate == null)
+      {
+        text = context.getString(R.string.convert_estimate_failed);
+      }
+      else
+      {
+        int percentage = currentSize > 0 ? (int) (100 * estimate[0] / currentSize) : 100;
+        text = context.getString(R.string.convert_estimate,
+                NativeLibrary.FormatSize(estimate[0], 2), percentage,
+                NativeLibrary.FormatSize(estimate[1], 1));
+      }
+
+      estimateView.post(() ->
+      {
+        if (mEstimateGeneration.get() == generation)
+          estimateView.setText(text);
+      });
+    });
+  }
+
   private boolean getRemoveJunkData()
   {
     CheckBox checkBoxScrub = requireView().findViewById(R.id.checkbox_remove_junk_data);
@@ -335,15 +439,15 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
     boolean scrub = getRemoveJunkData();
     int format = mFormat.getValue(requireContext());
 
-    Runnable action = this::showSavePrompt;
+    Runnable action = mBatchGames != null ? this::showOutputFolderPrompt : this::showSavePrompt;
 
-    if (gameFile.isNKit())
+    if (anyGame(GameFile::isNKit))
     {
       action = addAreYouSureDialog(action, R.string.convert_warning_nkit);
     }
 
-    if (!scrub && format == BLOB_TYPE_GCZ && !gameFile.isDatelDisc() &&
-            gameFile.getPlatform() == Platform.WII.toInt())
+    if (!scrub && format == BLOB_TYPE_GCZ && anyGame(game -> !game.isDatelDisc() &&
+            game.getPlatform() == Platform.WII.toInt()))
     {
       action = addAreYouSureDialog(action, R.string.convert_warning_gcz);
     }
@@ -356,6 +460,19 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
     action.run();
   }
 
+  private boolean anyGame(Predicate<GameFile> predicate)
+  {
+    if (gameFile != null)
+      return predicate.test(gameFile);
+
+    for (GameFile game : mBatchGames)
+    {
+      if (predicate.test(game))
+        return true;
+    }
+    return false;
+  }
+
   private Runnable addAreYouSureDialog(Runnable action, @StringRes int warning_text)
   {
     return () ->
@@ -378,21 +495,7 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
     int dotIndex = filename.lastIndexOf(".");
     if (dotIndex != -1)
       filename.setLength(dotIndex);
-    switch (mFormat.getValue(requireContext()))
-    {
-      case BLOB_TYPE_PLAIN:
-        filename.append(".iso");
-        break;
-      case BLOB_TYPE_GCZ:
-        filename.append(".gcz");
-        break;
-      case BLOB_TYPE_WIA:
-        filename.append(".wia");
-        break;
-      case BLOB_TYPE_RVZ:
-        filename.append(".rvz");
-        break;
-    }
+    filename.append('.').append(getExtension(mFormat.getValue(requireContext())));
 
     Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
     intent.addCategory(Intent.CATEGORY_OPENABLE);
@@ -403,6 +506,31 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
     startActivityForResult(intent, REQUEST_CODE_SAVE_FILE);
   }
 
+  private void showOutputFolderPrompt()
+  {
+    Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE);
+    intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION |
+            Intent.FLAG_GRANT_WRITE_URI_PERMISSION |
+            Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION);
+    startActivityForResult(intent, REQUEST_CODE_OUTPUT_FOLDER);
+  }
+
+  private static String getExtension(int format)
+  {
+    switch (format)
+    {
+      case BLOB_TYPE_GCZ:
+        return "gcz";
+      case BLOB_TYPE_WIA:
+        return "wia";
+      case BLOB_TYPE_RVZ:
+        return "rvz";
+      case BLOB_TYPE_PLAIN:
+      default:
+        return "iso";
+    }
+  }
+
   @Override
   public void onActivityResult(int requestCode, int resultCode, Intent data)
   {
@@ -410,6 +538,41 @@ public class ConvertFragment extends Fragment implements View.OnClickListener
     {
       convert(data.getData().toString());
     }
+    else if (requestCode == REQUEST_CODE_OUTPUT_FOLDER && resultCode == Activity.RESULT_OK)
+    {
+      enqueueBatch(data);
+    }
+  }
+
+  private void enqueueBatch(Intent result)
+  {
+    Context context = requireContext();
+    Uri uri = result.getData();
+
+    // The queue continues after the app has been restarted, so it needs to keep its access
+    int takeFlags = result.getFlags() &
+            (Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+    context.getContentResolver().takePersistableUriPermission(uri, takeFlags);
+
+    // Without this, the next rescan would remove the converted games from the game list again
+    GameFileCache.addGameFolder(uri.toString());
+
+    int format = mFormat.getValue(context);
+    ArrayList<GameFile> games = new ArrayList<>();
+    for (GameFile game : mBatchGames)
+    {
+      if (game.getBlobType() != format)
+        games.add(game);
+    }
+
+    ConversionQueue.Preset preset = new ConversionQueue.Preset(format,
+            mBlockSize.getValueOr(context, 0), mCompression.getValueOr(context, 0),
+            mCompressionLevel.getValueOr(context, 0), getRemoveJunkData(), getExtension(format));
+    ConversionQueue.enqueue(games, preset, uri.toString());
+
+    Toast.makeText(context, getString(R.string.convert_queued, games.size()), Toast.LENGTH_LONG)
+            .show();
+    requireActivity().finish();
   }
 
   private void convert(String outPath)
@@ -3,9 +3,15 @@
 package org.dolphinemu.dolphinemu.fragments;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Rect;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
+import android.view.PixelCopy;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.view.View;
@@ -20,8 +26,10 @@ import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.activities.EmulationActivity;
 import org.dolphinemu.dolphinemu.features.settings.model.BooleanSetting;
 import org.dolphinemu.dolphinemu.features.settings.model.Settings;
+import org.dolphinemu.dolphinemu.features.settings.utils.SettingsFile;
 import org.dolphinemu.dolphinemu.overlay.InputOverlay;
 import org.dolphinemu.dolphinemu.utils.Log;
+import org.dolphinemu.dolphinemu.utils.StateSlotIndex;
 
 import java.io.File;
 
@@ -31,6 +39,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
   private static final String KEY_RIIVOLUTION = "riivolution";
   private static final String KEY_SYSTEM_MENU = "systemMenu";
 
+  private SurfaceView mSurfaceView;
   private InputOverlay mInputOverlay;
 
   private String[] mGamePaths;
@@ -96,6 +105,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
 
     SurfaceView surfaceView = contents.findViewById(R.id.surface_emulation);
     surfaceView.getHolder().addCallback(this);
+    mSurfaceView = surfaceView;
 
     mInputOverlay = contents.findViewById(R.id.surface_input_overlay);
 
@@ -249,7 +259,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
       if (NativeLibrary.IsRunning())
       {
         mLoadPreviousTemporaryState = false;
-        deleteFile(getTemporaryStateFilePath());
+        NativeLibrary.DiscardResumeState(getTemporaryStateFilePath());
       }
       else
       {
@@ -261,7 +271,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
       Log.debug("[EmulationFragment] activity resumed or fresh start");
       mLoadPreviousTemporaryState = false;
       // activity resumed without being killed or this is the first run
-      deleteFile(getTemporaryStateFilePath());
+      NativeLibrary.DiscardResumeState(getTemporaryStateFilePath());
     }
 
     // If the surface is set, run now. Otherwise, wait for it to get set.
@@ -280,6 +290,10 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
     mRunWhenSurfaceIsValid = false;
     if (!NativeLibrary.IsRunning())
     {
+      // Settings that were saved just before launching may not be on disk yet. This has to
+      // happen before SetIsBooting, since native code is only told about them when not running.
+      SettingsFile.flushPendingWrites();
+
       NativeLibrary.SetIsBooting();
 
       Thread emulationThread = new Thread(() ->
@@ -289,7 +303,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
           Log.debug("[EmulationFragment] Starting emulation thread from previous state.");
           NativeLibrary.Run(mGamePaths, mRiivolution, getTemporaryStateFilePath(), true);
         }
-        if (mLaunchSystemMenu)
+        else if (mLaunchSystemMenu)
         {
           Log.debug("[EmulationFragment] Starting emulation thread for the Wii Menu.");
           NativeLibrary.RunSystemMenu();
@@ -315,26 +329,51 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
 
   public void saveTemporaryState()
   {
-    NativeLibrary.SaveStateAs(getTemporaryStateFilePath(), true);
+    // Only waits until the state has been copied out of the emulated memory. The file is written
+    // in the background, uncompressed so that it loads quickly, and if the previous temporary
+    // state is still there, only the parts that changed since then are rewritten.
+    long startTime = SystemClock.elapsedRealtime();
+    NativeLibrary.SaveResumeStateAs(getTemporaryStateFilePath());
+    Log.info("[EmulationFragment] Captured temporary state in " +
+            (SystemClock.elapsedRealtime() - startTime) + " ms");
   }
 
-  private String getTemporaryStateFilePath()
+  /**
+   * Saves a state to the given slot and records it in the slot index, along with a thumbnail of
+   * what's currently on screen.
+   */
+  public void saveState(int slot)
   {
-    return getContext().getFilesDir() + File.separator + "temp.sav";
-  }
+    String gameId = NativeLibrary.GetCurrentGameID();
+    NativeLibrary.SaveState(slot, false);
 
-  private static void deleteFile(String path)
-  {
-    try
+    // PixelCopy scales the frame down to the size of the bitmap while copying it
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N || mSurfaceView == null ||
+            mSurfaceView.getWidth() == 0 || !mSurfaceView.getHolder().getSurface().isValid())
     {
-      File file = new File(path);
-      if (!file.delete())
-      {
-        Log.error("[EmulationFragment] Failed to delete " + file.getAbsolutePath());
-      }
+      StateSlotIndex.recordSave(gameId, slot, null);
+      return;
     }
-    catch (Exception ignored)
+
+    int width = StateSlotIndex.THUMBNAIL_WIDTH;
+    int height = Math.max(1, width * mSurfaceView.getHeight() / mSurfaceView.getWidth());
+    Bitmap thumbnail = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    PixelCopy.request(mSurfaceView, thumbnail, result ->
     {
-    }
+      if (result == PixelCopy.SUCCESS)
+      {
+        StateSlotIndex.recordSave(gameId, slot, thumbnail);
+      }
+      else
+      {
+        thumbnail.recycle();
+        StateSlotIndex.recordSave(gameId, slot, null);
+      }
+    }, new Handler(Looper.getMainLooper()));
+  }
+
+  private String getTemporaryStateFilePath()
+  {
+    return getContext().getFilesDir() + File.separator + "temp.sav";
   }
 }
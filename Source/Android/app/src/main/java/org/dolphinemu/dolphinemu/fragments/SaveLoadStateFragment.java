@@ -4,21 +4,28 @@ package org.dolphinemu.dolphinemu.fragments;
 
 import android.os.Bundle;
 import android.text.format.DateUtils;
-import android.util.SparseIntArray;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
-import android.widget.GridLayout;
+import android.widget.ImageView;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.squareup.picasso.Picasso;
 
 import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.activities.EmulationActivity;
+import org.dolphinemu.dolphinemu.utils.CoverHelper;
+import org.dolphinemu.dolphinemu.utils.StateSlotIndex;
 
-public final class SaveLoadStateFragment extends Fragment implements View.OnClickListener
+public final class SaveLoadStateFragment extends Fragment
 {
   public enum SaveOrLoad
   {
@@ -27,37 +34,8 @@ public final class SaveLoadStateFragment extends Fragment implements View.OnClic
 
   private static final String KEY_SAVEORLOAD = "saveorload";
 
-  private static int[] saveActionsMap = new int[]{
-          EmulationActivity.MENU_ACTION_SAVE_SLOT1,
-          EmulationActivity.MENU_ACTION_SAVE_SLOT2,
-          EmulationActivity.MENU_ACTION_SAVE_SLOT3,
-          EmulationActivity.MENU_ACTION_SAVE_SLOT4,
-          EmulationActivity.MENU_ACTION_SAVE_SLOT5,
-          EmulationActivity.MENU_ACTION_SAVE_SLOT6,
-  };
-
-  private static int[] loadActionsMap = new int[]{
-          EmulationActivity.MENU_ACTION_LOAD_SLOT1,
-          EmulationActivity.MENU_ACTION_LOAD_SLOT2,
-          EmulationActivity.MENU_ACTION_LOAD_SLOT3,
-          EmulationActivity.MENU_ACTION_LOAD_SLOT4,
-          EmulationActivity.MENU_ACTION_LOAD_SLOT5,
-          EmulationActivity.MENU_ACTION_LOAD_SLOT6,
-  };
-
-  private static SparseIntArray buttonsMap = new SparseIntArray();
-
-  static
-  {
-    buttonsMap.append(R.id.loadsave_state_button_1, 0);
-    buttonsMap.append(R.id.loadsave_state_button_2, 1);
-    buttonsMap.append(R.id.loadsave_state_button_3, 2);
-    buttonsMap.append(R.id.loadsave_state_button_4, 3);
-    buttonsMap.append(R.id.loadsave_state_button_5, 4);
-    buttonsMap.append(R.id.loadsave_state_button_6, 5);
-  }
-
   private SaveOrLoad mSaveOrLoad;
+  private SlotAdapter mAdapter;
 
   public static SaveLoadStateFragment newInstance(SaveOrLoad saveOrLoad)
   {
@@ -83,13 +61,19 @@ public final class SaveLoadStateFragment extends Fragment implements View.OnClic
   {
     View rootView = inflater.inflate(R.layout.fragment_saveload_state, container, false);
 
-    GridLayout grid = rootView.findViewById(R.id.grid_state_slots);
-    for (int childIndex = 0; childIndex < grid.getChildCount(); childIndex++)
+    int columns = getResources().getInteger(R.integer.loadsave_state_columns);
+    int pageSize = columns * getResources().getInteger(R.integer.loadsave_state_rows);
+
+    RecyclerView grid = rootView.findViewById(R.id.grid_state_slots);
+    grid.setLayoutManager(new GridLayoutManager(getContext(), columns));
+    mAdapter = new SlotAdapter(pageSize);
+    grid.setAdapter(mAdapter);
+
+    StateSlotIndex.load(NativeLibrary.GetCurrentGameID(), slots ->
     {
-      Button button = (Button) grid.getChildAt(childIndex);
-      setButtonText(button, childIndex);
-      button.setOnClickListener(this);
-    }
+      if (mAdapter != null)
+        mAdapter.setSlots(slots);
+    });
 
     // So that item clicked to start this Fragment is no longer the focused item.
     grid.requestFocus();
@@ -98,36 +82,168 @@ public final class SaveLoadStateFragment extends Fragment implements View.OnClic
   }
 
   @Override
-  public void onClick(View view)
+  public void onDestroyView()
   {
-    int buttonIndex = buttonsMap.get(view.getId(), -1);
-
-    int action = (mSaveOrLoad == SaveOrLoad.SAVE ? saveActionsMap : loadActionsMap)[buttonIndex];
-    ((EmulationActivity) getActivity()).handleMenuAction(action);
+    super.onDestroyView();
+    mAdapter = null;
+  }
 
+  private void onSlotClicked(int slot)
+  {
+    EmulationActivity activity = (EmulationActivity) requireActivity();
     if (mSaveOrLoad == SaveOrLoad.SAVE)
     {
-      // Update the "last modified" time.
-      // The savestate most likely hasn't gotten saved to disk yet (it happens asynchronously),
-      // so we unfortunately can't rely on setButtonText/GetUnixTimeOfStateSlot here.
+      activity.saveState(slot);
 
-      Button button = (Button) view;
-      CharSequence time = DateUtils.getRelativeTimeSpanString(0, 0, DateUtils.MINUTE_IN_MILLIS);
-      button.setText(getString(R.string.emulation_state_slot, buttonIndex + 1, time));
+      // The savestate and its thumbnail most likely haven't been written yet (that happens
+      // asynchronously), so show the slot as saved just now for the time being.
+      mAdapter.setSlot(new StateSlotIndex.Slot(slot, System.currentTimeMillis(), 0, null));
+    }
+    else
+    {
+      NativeLibrary.LoadState(slot);
     }
   }
 
-  private void setButtonText(Button button, int index)
+  /**
+   * Shows the slots one page at a time, adding another page whenever the last row is reached.
+   * The quick save slot isn't shown.
+   */
+  private final class SlotAdapter extends RecyclerView.Adapter<SlotViewHolder>
   {
-    long creationTime = NativeLibrary.GetUnixTimeOfStateSlot(index);
-    if (creationTime != 0)
+    private final int mPageSize;
+    private SparseArray<StateSlotIndex.Slot> mSlots;
+    private int mItemCount;
+    private boolean mAddingPage;
+
+    SlotAdapter(int pageSize)
     {
-      CharSequence relativeTime = DateUtils.getRelativeTimeSpanString(creationTime);
-      button.setText(getString(R.string.emulation_state_slot, index + 1, relativeTime));
+      mPageSize = pageSize;
     }
-    else
+
+    void setSlots(SparseArray<StateSlotIndex.Slot> slots)
+    {
+      mSlots = slots;
+
+      // Always leave room for at least one more state after the last used slot
+      int used = 0;
+      for (int i = 0; i < slots.size(); i++)
+      {
+        int slot = slots.keyAt(i);
+        if (slot != StateSlotIndex.QUICK_SAVE_SLOT)
+          used = Math.max(used, getPosition(slot) + 1);
+      }
+      mItemCount = (used / mPageSize + 1) * mPageSize;
+      notifyDataSetChanged();
+    }
+
+    void setSlot(StateSlotIndex.Slot slot)
+    {
+      if (mSlots == null)
+        return;
+
+      mSlots.put(slot.number, slot);
+      notifyItemChanged(getPosition(slot.number));
+    }
+
+    @NonNull @Override
+    public SlotViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType)
+    {
+      View view = LayoutInflater.from(parent.getContext())
+              .inflate(R.layout.list_item_state_slot, parent, false);
+      return new SlotViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SlotViewHolder holder, int position)
+    {
+      int slot = getSlot(position);
+      holder.bind(position, slot, mSlots.get(slot));
+
+      if (position >= mItemCount - mPageSize / 2 && !mAddingPage)
+      {
+        // Adapters mustn't be changed while the RecyclerView is laying out its children
+        mAddingPage = true;
+        holder.itemView.post(this::addPage);
+      }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull SlotViewHolder holder)
+    {
+      holder.unbind();
+    }
+
+    @Override
+    public int getItemCount()
+    {
+      return mItemCount;
+    }
+
+    private void addPage()
+    {
+      mAddingPage = false;
+      int start = mItemCount;
+      mItemCount += mPageSize;
+      notifyItemRangeInserted(start, mPageSize);
+    }
+
+    private int getSlot(int position)
+    {
+      return position < StateSlotIndex.QUICK_SAVE_SLOT ? position : position + 1;
+    }
+
+    private int getPosition(int slot)
+    {
+      return slot < StateSlotIndex.QUICK_SAVE_SLOT ? slot : slot - 1;
+    }
+  }
+
+  private final class SlotViewHolder extends RecyclerView.ViewHolder
+  {
+    private final ImageView mThumbnail;
+    private final Button mButton;
+
+    SlotViewHolder(View itemView)
+    {
+      super(itemView);
+      mThumbnail = itemView.findViewById(R.id.image_state_thumbnail);
+      mButton = itemView.findViewById(R.id.button_state_slot);
+    }
+
+    void bind(int position, int slot, @Nullable StateSlotIndex.Slot state)
+    {
+      mButton.setOnClickListener(view -> onSlotClicked(slot));
+
+      if (state == null)
+      {
+        mButton.setText(getString(R.string.emulation_state_slot_empty, position + 1));
+        unbind();
+        return;
+      }
+
+      CharSequence relativeTime = DateUtils.getRelativeTimeSpanString(state.time,
+              System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS);
+      mButton.setText(getString(R.string.emulation_state_slot, position + 1, relativeTime));
+
+      Picasso picasso = CoverHelper.getCoverPicasso(itemView.getContext());
+      if (state.thumbnail != null)
+      {
+        // Thumbnails are overwritten in place, so the time tells the cached versions apart
+        picasso.load(state.thumbnail)
+                .stableKey(state.thumbnail.getPath() + "@" + state.time)
+                .into(mThumbnail);
+      }
+      else
+      {
+        unbind();
+      }
+    }
+
+    void unbind()
     {
-      button.setText(getString(R.string.emulation_state_slot_empty, index + 1));
+      CoverHelper.getCoverPicasso(itemView.getContext()).cancelRequest(mThumbnail);
+      mThumbnail.setImageDrawable(null);
     }
   }
 }
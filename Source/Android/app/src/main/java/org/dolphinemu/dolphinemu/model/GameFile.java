@@ -5,13 +5,13 @@ package org.dolphinemu.dolphinemu.model;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
-import android.net.Uri;
 import android.widget.ImageView;
 
-import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.utils.CoverHelper;
+import org.dolphinemu.dolphinemu.utils.CoverPrefetcher;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
+import org.dolphinemu.dolphinemu.utils.GameBannerCache;
 
 import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
@@ -21,6 +21,7 @@ import androidx.annotation.Keep;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class GameFile
 {
@@ -80,6 +81,12 @@ public class GameFile
 
   public native int[] getBanner();
 
+  /**
+   * Writes the banner as premultiplied RGBA into a direct buffer, ready for
+   * Bitmap.copyPixelsFromBuffer. Returns false if there is no banner or the buffer is too small.
+   */
+  public native boolean getBannerPixels(ByteBuffer buffer);
+
   public native int getBannerWidth();
 
   public native int getBannerHeight();
@@ -101,6 +108,9 @@ public class GameFile
 
   public void loadGameBanner(ImageView imageView)
   {
+    // The view may be bound to another game by the time a downloaded cover arrives
+    imageView.setTag(this);
+
     if (mCoverType == COVER_UNKNOWN)
     {
       if (loadFromCache(imageView))
@@ -109,29 +119,20 @@ public class GameFile
         return;
       }
 
-      mCoverType = COVER_NONE;
-      loadFromNetwork(imageView, new Callback()
+      CoverHelper.getCoverPicasso(imageView.getContext()).cancelRequest(imageView);
+      imageView.setImageResource(R.drawable.no_banner);
+      CoverPrefetcher.fetchCover(imageView.getContext(), this, downloaded ->
       {
-        @Override public void onSuccess()
-        {
+        if (mCoverType != COVER_UNKNOWN)
+          return;
+
+        if (downloaded || loadFromISO(imageView.getContext()))
           mCoverType = COVER_CACHE;
-          CoverHelper.saveCover(((BitmapDrawable) imageView.getDrawable()).getBitmap(),
-                  getCoverPath(imageView.getContext()));
-        }
-
-        @Override public void onError(Exception e)
-        {
-          if (loadFromISO(imageView))
-          {
-            mCoverType = COVER_CACHE;
-          }
-          else if (NativeLibrary.isNetworkConnected(imageView.getContext()))
-          {
-            // save placeholder to file
-            CoverHelper.saveCover(((BitmapDrawable) imageView.getDrawable()).getBitmap(),
-                    getCoverPath(imageView.getContext()));
-          }
-        }
+        else
+          mCoverType = COVER_NONE;
+
+        if (imageView.getTag() == this)
+          loadGameBanner(imageView);
       });
     }
     else if (mCoverType == COVER_CACHE)
@@ -140,89 +141,69 @@ public class GameFile
     }
     else
     {
+      CoverHelper.getCoverPicasso(imageView.getContext()).cancelRequest(imageView);
       imageView.setImageResource(R.drawable.no_banner);
     }
   }
 
   private boolean loadFromCache(ImageView imageView)
   {
-    File file = new File(getCoverPath(imageView.getContext()));
-    if (file.exists())
+    Context context = imageView.getContext();
+    String coverPath = getCoverPath(context);
+    Picasso picasso = CoverHelper.getCoverPicasso(context);
+
+    File thumbnail = new File(CoverHelper.getThumbnailPath(coverPath));
+    if (thumbnail.exists())
     {
-      imageView.setImageURI(Uri.parse("file://" + getCoverPath(imageView.getContext())));
+      picasso.load(thumbnail)
+              .noFade()
+              .placeholder(R.drawable.no_banner)
+              .into(imageView);
       return true;
     }
-    return false;
-  }
-
-  private void loadFromNetwork(ImageView imageView, Callback callback)
-  {
-    Picasso.get()
-            .load(CoverHelper.buildGameTDBUrl(this, null))
-            .placeholder(R.drawable.no_banner)
-            .error(R.drawable.no_banner)
-            .into(imageView, new Callback()
-            {
-              @Override
-              public void onSuccess()
-              {
-                callback.onSuccess();
-              }
 
-              @Override
-              public void onError(Exception e)
+    File cover = new File(coverPath);
+    if (cover.exists())
+    {
+      // The cover was saved without a thumbnail. Scale it down once and keep the result.
+      int thumbnailWidth = CoverHelper.getThumbnailWidth(context);
+      picasso.load(cover)
+              .resize(thumbnailWidth, 0)
+              .onlyScaleDown()
+              .noFade()
+              .placeholder(R.drawable.no_banner)
+              .into(imageView, new Callback()
               {
-                String id = getGameTdbId();
-                String region = null;
-                if (id.length() < 3)
-                {
-                  callback.onError(e);
-                  return;
-                }
-                else if (id.charAt(3) != 'E')
+                @Override
+                public void onSuccess()
                 {
-                  region = "US";
+                  CoverHelper.saveThumbnail(((BitmapDrawable) imageView.getDrawable()).getBitmap(),
+                          coverPath, thumbnailWidth);
                 }
-                else if (id.charAt(3) != 'J')
-                {
-                  region = "JA";
-                }
-                else
+
+                @Override
+                public void onError(Exception e)
                 {
-                  callback.onError(e);
-                  return;
                 }
-                Picasso.get()
-                        .load(CoverHelper.buildGameTDBUrl(GameFile.this, region))
-                        .placeholder(R.drawable.no_banner)
-                        .error(R.drawable.no_banner)
-                        .into(imageView, callback);
-              }
-            });
+              });
+      return true;
+    }
+    return false;
   }
 
-  private boolean loadFromISO(ImageView imageView)
+  private boolean loadFromISO(Context context)
   {
-    int[] vector = getBanner();
-    int width = getBannerWidth();
-    int height = getBannerHeight();
-    if (vector.length > 0 && width > 0 && height > 0)
+    Bitmap bitmap = GameBannerCache.getBanner(this);
+    if (bitmap == null)
+      return false;
+
+    try (FileOutputStream out = new FileOutputStream(getCoverPath(context)))
     {
-      File file = new File(getCoverPath(imageView.getContext()));
-      Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-      bitmap.setPixels(vector, 0, width, 0, 0, width, height);
-      try
-      {
-        FileOutputStream out = new FileOutputStream(file);
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
-        out.close();
-      }
-      catch (Exception e)
-      {
-        return false;
-      }
-      return loadFromCache(imageView);
+      return bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+    }
+    catch (IOException e)
+    {
+      return false;
     }
-    return false;
   }
 }
@@ -31,6 +31,8 @@ public class GameFileCache
 
   public static void addGameFolder(String path)
   {
+    SettingsFile.flushPendingWrites();
+
     File dolphinFile = SettingsFile.getSettingsFile(Settings.FILE_DOLPHIN);
     IniFile dolphinIni = new IniFile(dolphinFile);
     LinkedHashSet<String> pathSet = getPathSet(false);
@@ -50,6 +52,8 @@ public class GameFileCache
 
   private static LinkedHashSet<String> getPathSet(boolean removeNonExistentFolders)
   {
+    SettingsFile.flushPendingWrites();
+
     File dolphinFile = SettingsFile.getSettingsFile(Settings.FILE_DOLPHIN);
     IniFile dolphinIni = new IniFile(dolphinFile);
     LinkedHashSet<String> pathSet = new LinkedHashSet<>();
@@ -107,6 +111,14 @@ public class GameFileCache
     return getAllGamePaths(folderPaths, recursiveScan);
   }
 
+  /**
+   * Returns the configured game folders, removing the ones that no longer exist from the config.
+   */
+  public static String[] getGameFolderPaths()
+  {
+    return getPathSet(true).toArray(new String[0]);
+  }
+
   public static native String[] getAllGamePaths(String[] folderPaths, boolean recursiveScan);
 
   public native int getSize();
@@ -125,6 +137,24 @@ public class GameFileCache
    */
   public native boolean update(String[] gamePaths);
 
+  /**
+   * Like update, except that games which aren't in the cache are not scanned. Instead, their
+   * paths are returned so that the caller can parse them and pass the results to addGames.
+   *
+   * Games in changedGamePaths are removed from the cache and returned for rescanning even if
+   * they already were in the cache.
+   *
+   * @return the paths of the games that need to be scanned
+   */
+  public native String[] prune(String[] gamePaths, String[] changedGamePaths);
+
+  /**
+   * Adds already parsed games to the cache. Games whose path already is in the cache are ignored.
+   *
+   * @return true if the cache was modified
+   */
+  public native boolean addGames(GameFile[] gameFiles);
+
   /**
    * For each game that already is in the cache, scans the folder that contains the game
    * for additional metadata files (PNG/XML).
@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.overlay;
+
+import org.dolphinemu.dolphinemu.NativeLibrary;
+
+import java.util.Arrays;
+
+/**
+ * Collects the button and axis changes made while handling one touch event, so that they can be
+ * passed to native code with a single {@link NativeLibrary#onGamePadEvents} call.
+ *
+ * Remembers the last value sent for every input ID and drops events that wouldn't change it.
+ */
+final class InputEventBatch
+{
+  private static final int TUPLE_SIZE = 3;
+
+  private final String mDevice;
+
+  // Packed (type, ID, value) tuples, reused across touch events
+  private float[] mEvents = new float[32 * TUPLE_SIZE];
+  private int mCount = 0;
+
+  // Indexed by input ID. NaN means that nothing has been sent yet.
+  private float[] mLastValues = new float[0];
+
+  InputEventBatch(String device)
+  {
+    mDevice = device;
+  }
+
+  void addButton(int id, int state)
+  {
+    add(NativeLibrary.INPUT_EVENT_BUTTON, id, state);
+  }
+
+  void addAxis(int id, float value)
+  {
+    add(NativeLibrary.INPUT_EVENT_AXIS, id, value);
+  }
+
+  /**
+   * Sends all collected events to native code.
+   */
+  void flush()
+  {
+    if (mCount == 0)
+      return;
+
+    NativeLibrary.onGamePadEvents(mDevice, mEvents, mCount);
+    mCount = 0;
+  }
+
+  /**
+   * Forgets the last sent values, so that the next event for every input is sent even if
+   * its value is unchanged.
+   */
+  void reset()
+  {
+    Arrays.fill(mLastValues, Float.NaN);
+  }
+
+  private void add(int type, int id, float value)
+  {
+    if (id >= mLastValues.length)
+    {
+      int oldLength = mLastValues.length;
+      mLastValues = Arrays.copyOf(mLastValues, Math.max(id + 1, oldLength * 2));
+      Arrays.fill(mLastValues, oldLength, mLastValues.length, Float.NaN);
+    }
+    else if (mLastValues[id] == value)
+    {
+      return;
+    }
+    mLastValues[id] = value;
+
+    int offset = mCount * TUPLE_SIZE;
+    if (offset + TUPLE_SIZE > mEvents.length)
+      mEvents = Arrays.copyOf(mEvents, mEvents.length * 2);
+
+    mEvents[offset] = type;
+    mEvents[offset + 1] = id;
+    mEvents[offset + 2] = value;
+    mCount++;
+  }
+}
@@ -37,6 +37,7 @@ import org.dolphinemu.dolphinemu.features.settings.utils.SettingsFile;
 import org.dolphinemu.dolphinemu.utils.IniFile;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -63,6 +64,9 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
   private final Set<InputOverlayDrawableHotkey> overlayHotkeys = new HashSet<>();
   private InputOverlayPointer overlayPointer = null;
 
+  private final InputEventBatch mInputEvents = new InputEventBatch(NativeLibrary.TouchScreenDevice);
+  private final boolean[] mDpadPressed = new boolean[4];
+
   private Rect mSurfacePosition = null;
 
   private boolean mIsFirstRun = true;
@@ -211,6 +215,9 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
     boolean buttonPressed = false;
     boolean joystickPressed = false;
 
+    // Whether any control's appearance changed during this event
+    boolean redraw = false;
+
     for (InputOverlayDrawableButton button : overlayButtons)
     {
       // Determine the button state to apply based on the MotionEvent action flag.
@@ -225,8 +232,8 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
             button.setPressedState(true);
             button.setTrackId(event.getPointerId(pointerIndex));
             buttonPressed = true;
-            NativeLibrary.onGamePadEvent(NativeLibrary.TouchScreenDevice, button.getId(),
-                    ButtonState.PRESSED);
+            mInputEvents.addButton(button.getId(), ButtonState.PRESSED);
+            redraw = true;
           }
           break;
         case MotionEvent.ACTION_UP:
@@ -235,9 +242,9 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
           if (button.getTrackId() == event.getPointerId(pointerIndex))
           {
             button.setPressedState(false);
-            NativeLibrary.onGamePadEvent(NativeLibrary.TouchScreenDevice, button.getId(),
-                    ButtonState.RELEASED);
+            mInputEvents.addButton(button.getId(), ButtonState.RELEASED);
             button.setTrackId(-1);
+            redraw = true;
           }
           break;
       }
@@ -245,6 +252,8 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
 
     for (InputOverlayDrawableDpad dpad : overlayDpads)
     {
+      int previousState = dpad.getState();
+
       // Determine the button state to apply based on the MotionEvent action flag.
       switch (event.getAction() & MotionEvent.ACTION_MASK)
       {
@@ -261,7 +270,8 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
           if (dpad.getTrackId() == event.getPointerId(pointerIndex))
           {
             // Up, Down, Left, Right
-            boolean[] dpadPressed = {false, false, false, false};
+            boolean[] dpadPressed = mDpadPressed;
+            Arrays.fill(dpadPressed, false);
 
             if (dpad.getBounds().top + (dpad.getHeight() / 3) > (int) event.getY(pointerIndex))
               dpadPressed[0] = true;
@@ -276,19 +286,13 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
             for (int i = 0; i < dpadPressed.length; i++)
             {
               if (!dpadPressed[i])
-              {
-                NativeLibrary.onGamePadEvent(NativeLibrary.TouchScreenDevice, dpad.getId(i),
-                        ButtonState.RELEASED);
-              }
+                mInputEvents.addButton(dpad.getId(i), ButtonState.RELEASED);
             }
             // Press buttons
             for (int i = 0; i < dpadPressed.length; i++)
             {
               if (dpadPressed[i])
-              {
-                NativeLibrary.onGamePadEvent(NativeLibrary.TouchScreenDevice, dpad.getId(i),
-                        ButtonState.PRESSED);
-              }
+                mInputEvents.addButton(dpad.getId(i), ButtonState.PRESSED);
             }
             setDpadState(dpad, dpadPressed[0], dpadPressed[1], dpadPressed[2], dpadPressed[3]);
           }
@@ -301,22 +305,30 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
             for (int i = 0; i < 4; i++)
             {
               dpad.setState(InputOverlayDrawableDpad.STATE_DEFAULT);
-              NativeLibrary.onGamePadEvent(NativeLibrary.TouchScreenDevice, dpad.getId(i),
-                      ButtonState.RELEASED);
+              mInputEvents.addButton(dpad.getId(i), ButtonState.RELEASED);
             }
             dpad.setTrackId(-1);
           }
           break;
       }
+
+      if (dpad.getState() != previousState)
+        redraw = true;
     }
 
     for (InputOverlayDrawableJoystick joystick : overlayJoysticks)
     {
+      boolean wasTracking = joystick.getTrackId() != -1;
+
       if (joystick.TrackEvent(event))
       {
         if (joystick.getTrackId() != -1)
           joystickPressed = true;
       }
+
+      if (wasTracking || joystick.getTrackId() != -1)
+        redraw = true;
+
       int[] axisIDs = joystick.getAxisIDs();
       float[] axises = joystick.getAxisValues();
 
@@ -324,7 +336,7 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
       {
         for (int i = 0; i < 4; i++)
         {
-          NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice, axisIDs[i], axises[i]);
+          mInputEvents.addAxis(axisIDs[i], axises[i]);
         }
       }
     }
@@ -337,12 +349,13 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
 
       for (int i = 0; i < 4; i++)
       {
-        NativeLibrary
-                .onGamePadMoveEvent(NativeLibrary.TouchScreenDevice, ButtonType.WIIMOTE_IR_UP + i,
-                        axes[i]);
+        mInputEvents.addAxis(ButtonType.WIIMOTE_IR_UP + i, axes[i]);
       }
     }
 
+    // Send the controller state before any hotkey gets handled
+    mInputEvents.flush();
+
     for (InputOverlayDrawableHotkey hotkey : overlayHotkeys)
     {
       // Determine the hotkey state to apply based on the MotionEvent action flag.
@@ -358,6 +371,7 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
             hotkey.setPressedState(true);
             hotkey.setTrackId(event.getPointerId(event.getActionIndex()));
             buttonPressed = true;
+            redraw = true;
           }
           break;
         case MotionEvent.ACTION_UP:
@@ -370,12 +384,14 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
                     NativeLibrary.onHotkeyEvent(hotkey.getHotkeyId(), true));
             hotkey.setTrackId(-1);
             buttonPressed = true;
+            redraw = true;
           }
           break;
       }
     }
 
-    invalidate();
+    if (redraw)
+      invalidate();
 
     return true;
   }
@@ -838,6 +854,9 @@ public final class InputOverlay extends SurfaceView implements OnTouchListener
     overlayJoysticks.removeAll(overlayJoysticks);
     overlayHotkeys.removeAll(overlayHotkeys);
 
+    // Send the next state of every control, even if it's the same as the last one sent
+    mInputEvents.reset();
+
     String orientation =
             getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT ?
                     "-Portrait" : "";
@@ -204,6 +204,11 @@ public final class InputOverlayDrawableDpad
     return mHeight;
   }
 
+  public int getState()
+  {
+    return mPressState;
+  }
+
   public void setState(int pressState)
   {
     mPressState = pressState;
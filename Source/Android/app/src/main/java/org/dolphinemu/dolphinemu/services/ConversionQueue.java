@@ -0,0 +1,365 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.dolphinemu.dolphinemu.DolphinApplication;
+import org.dolphinemu.dolphinemu.NativeLibrary;
+import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.utils.ContentHandler;
+import org.dolphinemu.dolphinemu.utils.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Converts many disc images in the background, one preset per batch, for migrating a whole
+ * library to another format.
+ *
+ * The queue is stored in the app's files directory and is picked up again by {@link #resume}
+ * when the app is next started, so a batch survives the process being killed. A conversion
+ * that was interrupted starts over from the beginning. Converted games are added to the game
+ * file cache as soon as they are done. The original files are left alone.
+ */
+public final class ConversionQueue
+{
+  // Each conversion already compresses on all fast cores, but it also spends a lot of its time
+  // waiting for storage. Running two at once lets one of them read and write while the other
+  // one compresses.
+  private static final int CONCURRENT_JOBS = 2;
+
+  private static final String QUEUE_FILE_NAME = "conversion_queue.json";
+
+  private static final ExecutorService sExecutor = Executors.newFixedThreadPool(CONCURRENT_JOBS);
+
+  private static final ArrayList<Job> sJobs = new ArrayList<>();
+  private static boolean sLoaded = false;
+  private static int sFailedJobs = 0;
+
+  public static final class Preset
+  {
+    public final int format;
+    public final int blockSize;
+    public final int compression;
+    public final int compressionLevel;
+    public final boolean scrub;
+
+    /**
+     * The file extension of the converted games, without the dot.
+     */
+    public final String extension;
+
+    public Preset(int format, int blockSize, int compression, int compressionLevel,
+            boolean scrub, String extension)
+    {
+      this.format = format;
+      this.blockSize = blockSize;
+      this.compression = compression;
+      this.compressionLevel = compressionLevel;
+      this.scrub = scrub;
+      this.extension = extension;
+    }
+  }
+
+  private static final class Job
+  {
+    final String inputPath;
+    final int platform;
+    final Preset preset;
+    final String outputDirectory;
+
+    // Set once the output file has been created, so that it can be cleaned up after a restart
+    @Nullable String outputUri;
+
+    volatile boolean running;
+    volatile boolean canceled;
+    volatile String progress = "";
+
+    Job(String inputPath, int platform, Preset preset, String outputDirectory)
+    {
+      this.inputPath = inputPath;
+      this.platform = platform;
+      this.preset = preset;
+      this.outputDirectory = outputDirectory;
+    }
+  }
+
+  private ConversionQueue()
+  {
+  }
+
+  /**
+   * Adds the given games to the end of the queue and starts converting them.
+   *
+   * @param outputDirectory A directory tree that we have persistable write access to
+   */
+  public static synchronized void enqueue(@NonNull List<GameFile> games, @NonNull Preset preset,
+          @NonNull String outputDirectory)
+  {
+    load();
+    sFailedJobs = 0;
+
+    ArrayList<Job> newJobs = new ArrayList<>(games.size());
+    for (GameFile game : games)
+    {
+      // Datel discs can't be scrubbed, but there's no reason to leave them out of the batch
+      Preset gamePreset = preset;
+      if (preset.scrub && game.isDatelDisc())
+      {
+        gamePreset = new Preset(preset.format, preset.blockSize, preset.compression,
+                preset.compressionLevel, false, preset.extension);
+      }
+      newJobs.add(new Job(game.getPath(), game.getPlatform(), gamePreset, outputDirectory));
+    }
+
+    sJobs.addAll(newJobs);
+    save();
+
+    for (Job job : newJobs)
+      sExecutor.execute(() -> run(job));
+  }
+
+  /**
+   * Loads the queue that was saved the last time the app ran and continues converting.
+   * Has no effect if the queue has already been loaded.
+   */
+  public static synchronized void resume()
+  {
+    load();
+  }
+
+  /**
+   * Removes all games that haven't been converted yet from the queue and stops the ones that
+   * are being converted right now.
+   */
+  public static synchronized void cancel()
+  {
+    load();
+    for (Job job : sJobs)
+      job.canceled = true;
+    sJobs.clear();
+    sFailedJobs = 0;
+    save();
+  }
+
+  /**
+   * Returns the number of games that are waiting to be converted or being converted. Loads the
+   * queue first if needed, so that a batch left over from the last time the app ran is counted.
+   */
+  public static synchronized int getRemainingJobCount()
+  {
+    load();
+    return sJobs.size();
+  }
+
+  /**
+   * Returns the number of games in the current batch that couldn't be converted.
+   */
+  public static synchronized int getFailedJobCount()
+  {
+    load();
+    return sFailedJobs;
+  }
+
+  /**
+   * Returns the progress text of each conversion that is running right now.
+   */
+  public static synchronized List<String> getProgress()
+  {
+    load();
+    ArrayList<String> progress = new ArrayList<>();
+    for (Job job : sJobs)
+    {
+      if (job.running)
+        progress.add(job.progress);
+    }
+    return progress;
+  }
+
+  private static void run(Job job)
+  {
+    String previousOutputUri;
+    synchronized (ConversionQueue.class)
+    {
+      if (job.canceled)
+        return;
+      job.running = true;
+      previousOutputUri = job.outputUri;
+    }
+
+    // A conversion that was interrupted can't be continued, so start over in a new file
+    if (previousOutputUri != null)
+      ContentHandler.delete(previousOutputUri);
+
+    String outputUri = ContentHandler.createFile(job.outputDirectory, getOutputName(job));
+    String outputName = outputUri == null ? null : ContentHandler.getDisplayName(outputUri);
+
+    boolean success = false;
+    if (outputName != null)
+    {
+      synchronized (ConversionQueue.class)
+      {
+        job.outputUri = outputUri;
+        save();
+      }
+
+      Preset preset = job.preset;
+      success = NativeLibrary.ConvertDiscImage(job.inputPath, outputUri, job.platform,
+              preset.format, preset.blockSize, preset.compression, preset.compressionLevel,
+              preset.scrub, (text, completion) ->
+              {
+                job.progress = text;
+                return !job.canceled;
+              });
+
+      if (!success)
+        ContentHandler.delete(outputUri);
+    }
+    else if (outputUri != null)
+    {
+      ContentHandler.delete(outputUri);
+    }
+
+    synchronized (ConversionQueue.class)
+    {
+      job.running = false;
+      if (!job.canceled)
+      {
+        sJobs.remove(job);
+        if (!success)
+          sFailedJobs++;
+        save();
+      }
+    }
+
+    if (success)
+    {
+      // Use the same kind of path as a scan of the output directory would find
+      GameFileCacheManager.addConvertedGame(job.outputDirectory + "/" + outputName);
+    }
+    else if (!job.canceled)
+    {
+      Log.error("[ConversionQueue] Failed to convert " + job.inputPath);
+    }
+  }
+
+  private static String getOutputName(Job job)
+  {
+    String name = null;
+    if (job.inputPath.startsWith("content://"))
+      name = ContentHandler.getDisplayName(job.inputPath);
+    if (name == null)
+      name = new File(job.inputPath).getName();
+
+    int dotIndex = name.lastIndexOf('.');
+    if (dotIndex != -1)
+      name = name.substring(0, dotIndex);
+    return name + "." + job.preset.extension;
+  }
+
+  /**
+   * Reads the saved queue and schedules its jobs. Only does anything the first time it's called.
+   */
+  private static void load()
+  {
+    if (sLoaded)
+      return;
+    sLoaded = true;
+
+    File queueFile = getQueueFile();
+    if (!queueFile.exists())
+      return;
+
+    StringBuilder json = new StringBuilder();
+    try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(queueFile), StandardCharsets.UTF_8)))
+    {
+      char[] buffer = new char[4096];
+      int read;
+      while ((read = reader.read(buffer)) != -1)
+        json.append(buffer, 0, read);
+
+      JSONArray jobs = new JSONObject(json.toString()).getJSONArray("jobs");
+      for (int i = 0; i < jobs.length(); i++)
+      {
+        JSONObject job = jobs.getJSONObject(i);
+        Preset preset = new Preset(job.getInt("format"), job.getInt("blockSize"),
+                job.getInt("compression"), job.getInt("compressionLevel"),
+                job.getBoolean("scrub"), job.getString("extension"));
+        Job loadedJob = new Job(job.getString("input"), job.getInt("platform"), preset,
+                job.getString("outputDirectory"));
+        loadedJob.outputUri = job.optString("output", null);
+        sJobs.add(loadedJob);
+      }
+    }
+    catch (IOException | JSONException e)
+    {
+      Log.error("[ConversionQueue] Failed to read " + queueFile + ": " + e.getMessage());
+      sJobs.clear();
+    }
+
+    for (Job job : sJobs)
+      sExecutor.execute(() -> run(job));
+  }
+
+  private static void save()
+  {
+    File queueFile = getQueueFile();
+    File tempFile = new File(queueFile.getPath() + ".tmp");
+    try
+    {
+      JSONArray jobs = new JSONArray();
+      for (Job job : sJobs)
+      {
+        JSONObject entry = new JSONObject();
+        entry.put("input", job.inputPath);
+        entry.put("platform", job.platform);
+        entry.put("format", job.preset.format);
+        entry.put("blockSize", job.preset.blockSize);
+        entry.put("compression", job.preset.compression);
+        entry.put("compressionLevel", job.preset.compressionLevel);
+        entry.put("scrub", job.preset.scrub);
+        entry.put("extension", job.preset.extension);
+        entry.put("outputDirectory", job.outputDirectory);
+        if (job.outputUri != null)
+          entry.put("output", job.outputUri);
+        jobs.put(entry);
+      }
+
+      try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile),
+              StandardCharsets.UTF_8))
+      {
+        writer.write(new JSONObject().put("jobs", jobs).toString());
+      }
+
+      if (!tempFile.renameTo(queueFile))
+        throw new IOException("Failed to rename " + tempFile);
+    }
+    catch (IOException | JSONException e)
+    {
+      Log.error("[ConversionQueue] Failed to write " + queueFile + ": " + e.getMessage());
+      tempFile.delete();
+    }
+  }
+
+  private static File getQueueFile()
+  {
+    return new File(DolphinApplication.getAppContext().getFilesDir(), QUEUE_FILE_NAME);
+  }
+}
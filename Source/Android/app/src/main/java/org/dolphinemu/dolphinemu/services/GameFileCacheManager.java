@@ -7,16 +7,26 @@ import android.content.Context;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import org.dolphinemu.dolphinemu.DolphinApplication;
+import org.dolphinemu.dolphinemu.features.settings.model.BooleanSetting;
 import org.dolphinemu.dolphinemu.model.GameFile;
 import org.dolphinemu.dolphinemu.model.GameFileCache;
 import org.dolphinemu.dolphinemu.ui.platform.Platform;
 import org.dolphinemu.dolphinemu.utils.AfterDirectoryInitializationRunner;
+import org.dolphinemu.dolphinemu.utils.CoverPrefetcher;
+import org.dolphinemu.dolphinemu.utils.Log;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Loads game list data on a separate thread.
@@ -28,6 +38,14 @@ public final class GameFileCacheManager
           new MutableLiveData<>(new GameFile[]{});
 
   private static final ExecutorService executor = Executors.newFixedThreadPool(1);
+
+  // Folder traversal and game parsing during a rescan are fanned out over this pool.
+  // It is kept small since the work is mostly bound by storage speed.
+  private static final int SCAN_THREADS =
+          Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+  private static final int SCAN_BATCH_SIZE = 16;
+  private static final ExecutorService scanExecutor = Executors.newFixedThreadPool(SCAN_THREADS);
+  private static final GameFileScanIndex scanIndex = new GameFileScanIndex();
   private static final MutableLiveData<Boolean> loadInProgress = new MutableLiveData<>(false);
   private static final MutableLiveData<Boolean> rescanInProgress = new MutableLiveData<>(false);
 
@@ -59,6 +77,15 @@ public final class GameFileCacheManager
     return platformGames;
   }
 
+  /**
+   * Returns the modification time the game file had when the game library was last scanned,
+   * or 0 if it hasn't been scanned. Unlike asking the file system, this never blocks on storage.
+   */
+  public static long getScannedLastModified(String gamePath)
+  {
+    return scanIndex.getLastModified(gamePath);
+  }
+
   public static GameFile getGameFileByGameId(String gameId)
   {
     GameFile[] allGames = gameFiles.getValue();
@@ -174,6 +201,38 @@ public final class GameFileCacheManager
     }
   }
 
+  /**
+   * Asynchronously adds a game that was just written by ConversionQueue to the cache, so that it
+   * shows up in the game list right away instead of on the next rescan.
+   * If load hasn't been called before this, this has no effect.
+   */
+  public static void addConvertedGame(String gamePath)
+  {
+    executor.execute(() ->
+    {
+      if (gameFileCache == null)
+        return;
+
+      GameFile gameFile;
+      synchronized (gameFileCache)
+      {
+        gameFile = gameFileCache.addOrGet(gamePath);
+      }
+      if (gameFile == null)
+        return;
+
+      updateGameFileArray();
+      gameFileCache.save();
+
+      long[] fingerprint = GameFileScanIndex.getFingerprint(gamePath);
+      if (fingerprint != null)
+      {
+        scanIndex.put(gamePath, fingerprint);
+        scanIndex.save();
+      }
+    });
+  }
+
   /**
    * Loads the game file cache from disk, without checking if the
    * games are still present in the user's configured folders.
@@ -188,6 +247,7 @@ public final class GameFileCacheManager
       {
         gameFileCache = temp;
         gameFileCache.load();
+        scanIndex.load();
         if (gameFileCache.getSize() != 0)
         {
           updateGameFileArray();
@@ -202,23 +262,68 @@ public final class GameFileCacheManager
    * Scans for games in the user's configured folders,
    * updating the game file cache with the results.
    * If load hasn't been called before this, this has no effect.
+   *
+   * Only games that are new or whose size or modification time changed since the last save
+   * are parsed. Parsing happens on scanExecutor, and the game list is published after each
+   * batch so that the UI can show results before the whole library has been scanned.
    */
   private static void rescan()
   {
     if (gameFileCache != null)
     {
-      String[] gamePaths = GameFileCache.getAllGamePaths();
+      String[] gamePaths = findAllGamePaths();
+      HashMap<String, long[]> fingerprints = getFingerprints(gamePaths);
 
+      ArrayList<String> changedPaths = new ArrayList<>();
+      for (String path : gamePaths)
+      {
+        if (scanIndex.hasChanged(path, fingerprints.get(path)))
+          changedPaths.add(path);
+      }
+
+      String[] pathsToScan;
       boolean changed;
       synchronized (gameFileCache)
       {
-        changed = gameFileCache.update(gamePaths);
+        int oldSize = gameFileCache.getSize();
+        pathsToScan = gameFileCache.prune(gamePaths, changedPaths.toArray(new String[0]));
+        changed = gameFileCache.getSize() != oldSize;
       }
       if (changed)
       {
         updateGameFileArray();
       }
 
+      // Already in use for the banners of the games that are about to be parsed.
+      // It's only saved once the game file cache has been saved too.
+      scanIndex.replaceAll(fingerprints);
+
+      CompletionService<GameFile[]> completionService =
+              new ExecutorCompletionService<>(scanExecutor);
+      int batches = 0;
+      for (int i = 0; i < pathsToScan.length; i += SCAN_BATCH_SIZE)
+      {
+        String[] batch = Arrays.copyOfRange(pathsToScan, i,
+                Math.min(i + SCAN_BATCH_SIZE, pathsToScan.length));
+        completionService.submit(() -> parseGameFiles(batch));
+        batches++;
+      }
+
+      for (int i = 0; i < batches; i++)
+      {
+        GameFile[] parsedGames = getResult(take(completionService), new GameFile[0]);
+        boolean batchChanged;
+        synchronized (gameFileCache)
+        {
+          batchChanged = gameFileCache.addGames(parsedGames);
+        }
+        if (batchChanged)
+        {
+          changed = true;
+          updateGameFileArray();
+        }
+      }
+
       boolean additionalMetadataChanged = gameFileCache.updateAdditionalMetadata();
       if (additionalMetadataChanged)
       {
@@ -229,11 +334,117 @@ public final class GameFileCacheManager
       {
         gameFileCache.save();
       }
+
+      scanIndex.save();
+
+      GameFile[] allGames;
+      synchronized (gameFileCache)
+      {
+        allGames = gameFileCache.getAllGames();
+      }
+      CoverPrefetcher.startPrefetch(DolphinApplication.getAppContext(), Arrays.asList(allGames));
     }
 
     rescanInProgress.postValue(false);
   }
 
+  /**
+   * Searches each configured folder on its own scan thread.
+   */
+  private static String[] findAllGamePaths()
+  {
+    boolean recursiveScan = BooleanSetting.MAIN_RECURSIVE_ISO_PATHS.getBooleanGlobal();
+
+    ArrayList<Future<String[]>> searches = new ArrayList<>();
+    for (String folderPath : GameFileCache.getGameFolderPaths())
+    {
+      searches.add(scanExecutor.submit(() ->
+              GameFileCache.getAllGamePaths(new String[]{folderPath}, recursiveScan)));
+    }
+
+    // Folders may overlap, so filter out duplicates while keeping the order of the folders
+    LinkedHashSet<String> gamePaths = new LinkedHashSet<>();
+    for (Future<String[]> search : searches)
+    {
+      gamePaths.addAll(Arrays.asList(getResult(search, new String[0])));
+    }
+    return gamePaths.toArray(new String[0]);
+  }
+
+  private static HashMap<String, long[]> getFingerprints(String[] gamePaths)
+  {
+    ArrayList<Future<long[][]>> chunks = new ArrayList<>();
+    for (int i = 0; i < gamePaths.length; i += SCAN_BATCH_SIZE)
+    {
+      int start = i;
+      int end = Math.min(i + SCAN_BATCH_SIZE, gamePaths.length);
+      chunks.add(scanExecutor.submit(() ->
+      {
+        long[][] result = new long[end - start][];
+        for (int j = start; j < end; j++)
+          result[j - start] = GameFileScanIndex.getFingerprint(gamePaths[j]);
+        return result;
+      }));
+    }
+
+    HashMap<String, long[]> fingerprints = new HashMap<>();
+    for (int i = 0; i < chunks.size(); i++)
+    {
+      long[][] chunk = getResult(chunks.get(i), new long[0][]);
+      for (int j = 0; j < chunk.length; j++)
+      {
+        if (chunk[j] != null)
+          fingerprints.put(gamePaths[i * SCAN_BATCH_SIZE + j], chunk[j]);
+      }
+    }
+    return fingerprints;
+  }
+
+  private static GameFile[] parseGameFiles(String[] gamePaths)
+  {
+    ArrayList<GameFile> result = new ArrayList<>(gamePaths.length);
+    for (String path : gamePaths)
+    {
+      GameFile gameFile = GameFile.parse(path);
+      if (gameFile != null)
+        result.add(gameFile);
+    }
+    return result.toArray(new GameFile[0]);
+  }
+
+  private static <T> Future<T> take(CompletionService<T> completionService)
+  {
+    while (true)
+    {
+      try
+      {
+        return completionService.take();
+      }
+      catch (InterruptedException ignored)
+      {
+      }
+    }
+  }
+
+  private static <T> T getResult(Future<T> future, T fallback)
+  {
+    while (true)
+    {
+      try
+      {
+        return future.get();
+      }
+      catch (InterruptedException ignored)
+      {
+      }
+      catch (ExecutionException e)
+      {
+        Log.error("[GameFileCacheManager] Scan task failed: " + e.getCause());
+        return fallback;
+      }
+    }
+  }
+
   private static void updateGameFileArray()
   {
     GameFile[] gameFilesTemp = gameFileCache.getAllGames();
@@ -0,0 +1,140 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.dolphinemu.dolphinemu.DolphinApplication;
+import org.dolphinemu.dolphinemu.utils.ContentHandler;
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the size and modification time each game file had when the game file cache was
+ * last saved, so that a rescan only has to parse the games that actually changed on disk.
+ */
+final class GameFileScanIndex
+{
+  private static final int INDEX_REVISION = 1;
+  private static final String INDEX_FILE_NAME = "gamelist.index";
+
+  private final HashMap<String, long[]> mFingerprints = new HashMap<>();
+
+  /**
+   * Returns {size, last modified time} for the given game, or null if it can't be accessed.
+   */
+  @Nullable
+  static long[] getFingerprint(@NonNull String path)
+  {
+    if (path.startsWith("content://"))
+      return ContentHandler.getSizeAndLastModified(path);
+
+    File file = new File(path);
+    long lastModified = file.lastModified();
+    return lastModified == 0 ? null : new long[]{file.length(), lastModified};
+  }
+
+  /**
+   * Returns true if the game has been seen before with a different size or modification time.
+   * Games that aren't in the index are assumed to be unchanged.
+   */
+  synchronized boolean hasChanged(@NonNull String path, @Nullable long[] fingerprint)
+  {
+    long[] previous = mFingerprints.get(path);
+    return previous != null && fingerprint != null &&
+            (previous[0] != fingerprint[0] || previous[1] != fingerprint[1]);
+  }
+
+  /**
+   * Returns the modification time the game had when it was last scanned, or 0 if it's not in
+   * the index.
+   */
+  synchronized long getLastModified(@NonNull String path)
+  {
+    long[] fingerprint = mFingerprints.get(path);
+    return fingerprint == null ? 0 : fingerprint[1];
+  }
+
+  synchronized void put(@NonNull String path, @NonNull long[] fingerprint)
+  {
+    mFingerprints.put(path, fingerprint);
+  }
+
+  synchronized void replaceAll(@NonNull Map<String, long[]> fingerprints)
+  {
+    mFingerprints.clear();
+    mFingerprints.putAll(fingerprints);
+  }
+
+  synchronized void load()
+  {
+    mFingerprints.clear();
+
+    File file = getIndexFile();
+    if (file == null || !file.exists())
+      return;
+
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(file))))
+    {
+      if (in.readInt() != INDEX_REVISION)
+        return;
+
+      int count = in.readInt();
+      for (int i = 0; i < count; i++)
+      {
+        String path = in.readUTF();
+        mFingerprints.put(path, new long[]{in.readLong(), in.readLong()});
+      }
+    }
+    catch (IOException e)
+    {
+      Log.warning("[GameFileScanIndex] Discarding unreadable index: " + e.getMessage());
+      mFingerprints.clear();
+    }
+  }
+
+  synchronized void save()
+  {
+    File file = getIndexFile();
+    if (file == null)
+      return;
+
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file))))
+    {
+      out.writeInt(INDEX_REVISION);
+      out.writeInt(mFingerprints.size());
+      for (Map.Entry<String, long[]> entry : mFingerprints.entrySet())
+      {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue()[0]);
+        out.writeLong(entry.getValue()[1]);
+      }
+    }
+    catch (IOException e)
+    {
+      Log.error("[GameFileScanIndex] Failed to save index: " + e.getMessage());
+      if (!file.delete())
+        Log.error("[GameFileScanIndex] Failed to delete " + file.getPath());
+    }
+  }
+
+  @Nullable
+  private static File getIndexFile()
+  {
+    File cacheDir = DolphinApplication.getAppContext().getExternalCacheDir();
+    return cacheDir == null ? null : new File(cacheDir, INDEX_FILE_NAME);
+  }
+}
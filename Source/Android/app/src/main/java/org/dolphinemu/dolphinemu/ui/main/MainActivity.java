@@ -2,6 +2,7 @@
 
 package org.dolphinemu.dolphinemu.ui.main;
 
+import android.app.ProgressDialog;
 import android.content.ContentResolver;
 import android.content.Intent;
 import android.content.SharedPreferences;
@@ -26,23 +27,29 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.nononsenseapps.filepicker.DividerItemDecoration;
 
+import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.R;
+import org.dolphinemu.dolphinemu.activities.ConvertActivity;
 import org.dolphinemu.dolphinemu.activities.EmulationActivity;
 import org.dolphinemu.dolphinemu.adapters.GameAdapter;
 import org.dolphinemu.dolphinemu.features.settings.model.BooleanSetting;
 import org.dolphinemu.dolphinemu.features.settings.model.NativeConfig;
 import org.dolphinemu.dolphinemu.features.settings.ui.MenuTag;
 import org.dolphinemu.dolphinemu.features.settings.ui.SettingsActivity;
+import org.dolphinemu.dolphinemu.features.settings.utils.SettingsFile;
 import org.dolphinemu.dolphinemu.features.sysupdate.ui.OnlineUpdateProgressBarDialogFragment;
 import org.dolphinemu.dolphinemu.features.sysupdate.ui.SystemMenuNotInstalledDialogFragment;
 import org.dolphinemu.dolphinemu.features.sysupdate.ui.SystemUpdateViewModel;
+import org.dolphinemu.dolphinemu.model.GameFile;
 import org.dolphinemu.dolphinemu.model.GameFileCache;
+import org.dolphinemu.dolphinemu.services.ConversionQueue;
 import org.dolphinemu.dolphinemu.services.GameFileCacheManager;
 import org.dolphinemu.dolphinemu.utils.AfterDirectoryInitializationRunner;
 import org.dolphinemu.dolphinemu.utils.BooleanSupplier;
 import org.dolphinemu.dolphinemu.utils.CompletableFuture;
 import org.dolphinemu.dolphinemu.utils.ContentHandler;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
+import org.dolphinemu.dolphinemu.utils.DuplicateDataReport;
 import org.dolphinemu.dolphinemu.utils.FileBrowserHelper;
 import org.dolphinemu.dolphinemu.utils.PermissionsHandler;
 import org.dolphinemu.dolphinemu.utils.StartupHandler;
@@ -50,7 +57,9 @@ import org.dolphinemu.dolphinemu.utils.UpdaterUtils;
 import org.dolphinemu.dolphinemu.utils.WiiUtils;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
 public final class MainActivity extends AppCompatActivity
@@ -147,6 +156,14 @@ public final class MainActivity extends AppCompatActivity
                   () -> launchOpenFileActivity(REQUEST_NAND_BIN_FILE));
           return true;
 
+        case R.id.menu_convert_library:
+          convertLibrary();
+          return true;
+
+        case R.id.menu_find_duplicate_data:
+          findDuplicateData();
+          return true;
+
         case R.id.menu_refresh:
           mSwipeRefreshLayout.setRefreshing(true);
           GameFileCacheManager.startRescan(this);
@@ -228,7 +245,7 @@ public final class MainActivity extends AppCompatActivity
     else if (DirectoryInitialization.areDolphinDirectoriesReady())
     {
       // If the currently selected platform tab changed, save it to disk
-      NativeConfig.save(NativeConfig.LAYER_BASE);
+      SettingsFile.saveNativeConfigLater(NativeConfig.LAYER_BASE, false);
     }
 
     StartupHandler.setSessionTime(this);
@@ -329,6 +346,92 @@ public final class MainActivity extends AppCompatActivity
     startActivityForResult(intent, requestCode);
   }
 
+  /**
+   * Starts converting the library, or shows how far along the conversion is if it has already
+   * been started.
+   */
+  private void convertLibrary()
+  {
+    int remaining = ConversionQueue.getRemainingJobCount();
+    if (remaining == 0)
+    {
+      ConvertActivity.launchBatch(this);
+      return;
+    }
+
+    StringBuilder message = new StringBuilder(getString(R.string.convert_queue_status, remaining,
+            ConversionQueue.getFailedJobCount()));
+    for (String progress : ConversionQueue.getProgress())
+      message.append("\n\n").append(progress);
+
+    new AlertDialog.Builder(this, R.style.DolphinDialogBase)
+            .setMessage(message)
+            .setPositiveButton(R.string.ok, null)
+            .setNegativeButton(R.string.convert_queue_cancel,
+                    (dialog, i) -> ConversionQueue.cancel())
+            .show();
+  }
+
+  private void findDuplicateData()
+  {
+    final int PROGRESS_RESOLUTION = 1000;
+
+    AtomicBoolean canceled = new AtomicBoolean(false);
+
+    // Same as in ConvertFragment, a themed ProgressDialog gets white text on white in dark mode
+    ProgressDialog progressDialog = new ProgressDialog(this);
+    progressDialog.setTitle(R.string.duplicate_data_checking);
+    progressDialog.setIndeterminate(false);
+    progressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+    progressDialog.setMax(PROGRESS_RESOLUTION);
+    progressDialog.setCancelable(true);
+    progressDialog.setOnCancelListener((dialog) -> canceled.set(true));
+    progressDialog.show();
+
+    List<GameFile> games = GameFileCacheManager.getAllGameFiles();
+    new Thread(() ->
+    {
+      List<DuplicateDataReport.Group> groups = DuplicateDataReport.create(games,
+              (text, completion) ->
+              {
+                runOnUiThread(() ->
+                {
+                  progressDialog.setMessage(text);
+                  progressDialog.setProgress((int) (completion * PROGRESS_RESOLUTION));
+                });
+                return !canceled.get();
+              });
+
+      if (groups == null)
+        return;
+
+      StringBuilder message = new StringBuilder();
+      long total = 0;
+      for (DuplicateDataReport.Group group : groups)
+      {
+        message.append(getString(R.string.duplicate_data_group, group.title, group.games.size(),
+                NativeLibrary.FormatSize(group.duplicateBytes, 2))).append("\n");
+        total += group.duplicateBytes;
+      }
+
+      if (groups.isEmpty())
+        message.append(getString(R.string.duplicate_data_none));
+      else
+        message.append("\n").append(getString(R.string.duplicate_data_total,
+                NativeLibrary.FormatSize(total, 2)));
+
+      runOnUiThread(() ->
+      {
+        progressDialog.dismiss();
+
+        new AlertDialog.Builder(this, R.style.DolphinDialogBase)
+                .setMessage(message)
+                .setPositiveButton(R.string.ok, null)
+                .show();
+      });
+    }, getString(R.string.duplicate_data_checking)).start();
+  }
+
   public void openUpdaterDialog()
   {
     UpdaterUtils.openUpdaterWindow(this, null);
@@ -622,5 +725,8 @@ public final class MainActivity extends AppCompatActivity
   {
     showGames();
     GameFileCacheManager.startLoad(this);
+
+    // Continue a library conversion that was interrupted by the app being closed
+    ConversionQueue.resume();
   }
 }
@@ -8,9 +8,6 @@ import android.os.Build;
 import androidx.annotation.Keep;
 import androidx.appcompat.app.AlertDialog;
 
-import com.android.volley.Request;
-import com.android.volley.toolbox.StringRequest;
-
 import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.features.settings.model.BooleanSetting;
 import org.dolphinemu.dolphinemu.features.settings.model.Settings;
@@ -66,17 +63,7 @@ public class Analytics
   @Keep
   public static void sendReport(String endpoint, byte[] data)
   {
-    StringRequest request = new StringRequest(Request.Method.POST, endpoint,
-            null, error -> Log.debug("Failed to send report"))
-    {
-      @Override
-      public byte[] getBody()
-      {
-        return data;
-      }
-    };
-
-    VolleyUtil.getQueue().add(request);
+    AnalyticsQueue.add(endpoint, data);
   }
 
   @Keep
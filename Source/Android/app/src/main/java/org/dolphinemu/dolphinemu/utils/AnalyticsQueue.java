@@ -0,0 +1,513 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.utils;
+
+import androidx.annotation.Nullable;
+
+import org.dolphinemu.dolphinemu.DolphinApplication;
+import org.dolphinemu.dolphinemu.features.settings.model.BooleanSetting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores analytics reports on disk and uploads them in batches, so that a busy session doesn't
+ * wake up the radio for every report.
+ *
+ * Reports are appended to a pending file as they come in. Once enough of them have piled up,
+ * some time has passed, or the app goes to the background, the pending file is compressed into
+ * a batch and all batches are uploaded one report after another, which lets the connection
+ * be reused. The server takes one report per request, so batches are only compressed on disk.
+ * Failed uploads are retried with exponential backoff, and the oldest batches are dropped when
+ * the queue grows past a fixed size.
+ *
+ * Every report is stored with its length and a checksum. A report that was only partly written
+ * when the app got killed is cut off the pending file before anything else is appended to it.
+ *
+ * Nothing is uploaded while analytics are disabled. The queue is deleted instead, so that reports
+ * from before the user turned analytics off are never sent.
+ *
+ * All work happens on one background thread, so none of it needs locking.
+ */
+public final class AnalyticsQueue
+{
+  private static final String QUEUE_DIRECTORY_NAME = "analytics";
+  private static final String PENDING_FILE_NAME = "pending";
+  private static final String BATCH_PREFIX = "batch-";
+  private static final String BATCH_SUFFIX = ".gz";
+
+  private static final long FLUSH_SIZE = 32 * 1024;
+  private static final long FLUSH_INTERVAL_MS = 15 * 60 * 1000;
+  private static final long MAX_QUEUED_BYTES = 1024 * 1024;
+
+  private static final long INITIAL_RETRY_DELAY_MS = 30 * 1000;
+  private static final long MAX_RETRY_DELAY_MS = 6 * 60 * 60 * 1000;
+
+  private static final int TIMEOUT_MS = 15000;
+
+  // The length and the checksum of the record
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private static final ScheduledExecutorService sExecutor =
+          Executors.newSingleThreadScheduledExecutor();
+
+  @Nullable private static ScheduledFuture<?> sScheduledFlush;
+  @Nullable private static ScheduledFuture<?> sScheduledRetry;
+  private static int sFailedUploads = 0;
+  // Whether the pending file is known to end with a complete report
+  private static boolean sPendingFileChecked = false;
+
+  private static final class Report
+  {
+    final String endpoint;
+    final byte[] data;
+
+    Report(String endpoint, byte[] data)
+    {
+      this.endpoint = endpoint;
+      this.data = data;
+    }
+  }
+
+  private AnalyticsQueue()
+  {
+  }
+
+  /**
+   * Queues a report for uploading. Returns right away.
+   */
+  public static void add(String endpoint, byte[] data)
+  {
+    sExecutor.execute(() -> addOnExecutor(new Report(endpoint, data)));
+  }
+
+  /**
+   * Uploads all queued reports now, unless an upload failed recently. Returns right away.
+   */
+  public static void flush()
+  {
+    sExecutor.execute(AnalyticsQueue::flushOnExecutor);
+  }
+
+  private static void addOnExecutor(Report report)
+  {
+    File pendingFile = getPendingFile();
+    truncatePendingFile(pendingFile);
+
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(pendingFile, true))))
+    {
+      writeReport(out, report);
+    }
+    catch (IOException e)
+    {
+      // Part of the report may have made it into the file
+      sPendingFileChecked = false;
+      Log.error("[AnalyticsQueue] Failed to write " + pendingFile + ": " + e.getMessage());
+      return;
+    }
+
+    if (pendingFile.length() >= FLUSH_SIZE)
+    {
+      flushOnExecutor();
+    }
+    else if (sScheduledFlush == null || sScheduledFlush.isDone())
+    {
+      sScheduledFlush = sExecutor.schedule(AnalyticsQueue::flushOnExecutor, FLUSH_INTERVAL_MS,
+              TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static void flushOnExecutor()
+  {
+    if (sScheduledFlush != null)
+    {
+      sScheduledFlush.cancel(false);
+      sScheduledFlush = null;
+    }
+
+    // The setting can't be read yet, so leave the queue as it is until the next flush
+    if (!DirectoryInitialization.areDolphinDirectoriesReady())
+      return;
+
+    if (!BooleanSetting.MAIN_ANALYTICS_ENABLED.getBooleanGlobal())
+    {
+      deleteQueue();
+      return;
+    }
+
+    compressPendingReports();
+    dropOldestBatches();
+
+    // Trying again before the backoff is over would defeat its purpose
+    if (sScheduledRetry != null)
+      return;
+
+    upload();
+  }
+
+  private static void compressPendingReports()
+  {
+    File pendingFile = getPendingFile();
+    truncatePendingFile(pendingFile);
+    if (!pendingFile.exists())
+      return;
+
+    // The timestamp keeps the batches in order when sorted by name
+    File batchFile = new File(getQueueDirectory(),
+            String.format(Locale.US, "%s%016d%s", BATCH_PREFIX, System.currentTimeMillis(), BATCH_SUFFIX));
+    File tempFile = new File(batchFile.getPath() + ".tmp");
+
+    try
+    {
+      try (InputStream in = new FileInputStream(pendingFile);
+           OutputStream out = new GZIPOutputStream(new FileOutputStream(tempFile)))
+      {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+          out.write(buffer, 0, read);
+      }
+
+      if (!tempFile.renameTo(batchFile))
+        throw new IOException("Failed to rename " + tempFile);
+
+      pendingFile.delete();
+    }
+    catch (IOException e)
+    {
+      Log.error("[AnalyticsQueue] Failed to write " + batchFile + ": " + e.getMessage());
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * Cuts off a report that was only partly written when the app got killed. Otherwise, the
+   * reports appended after it couldn't be read anymore.
+   */
+  private static void truncatePendingFile(File pendingFile)
+  {
+    if (sPendingFileChecked)
+      return;
+
+    if (!pendingFile.exists())
+    {
+      sPendingFileChecked = true;
+      return;
+    }
+
+    long validLength = 0;
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(pendingFile))))
+    {
+      while (true)
+        validLength += RECORD_HEADER_SIZE + readRecord(in).length;
+    }
+    catch (IOException e)
+    {
+      // Reached the end of the file or a report that is cut off or corrupt
+    }
+
+    if (validLength < pendingFile.length())
+    {
+      try (RandomAccessFile file = new RandomAccessFile(pendingFile, "rw"))
+      {
+        file.setLength(validLength);
+        Log.warning("[AnalyticsQueue] Dropped an incomplete report from " + pendingFile);
+      }
+      catch (IOException e)
+      {
+        Log.error("[AnalyticsQueue] Failed to truncate " + pendingFile + ": " + e.getMessage());
+        return;
+      }
+    }
+
+    sPendingFileChecked = true;
+  }
+
+  private static void deleteQueue()
+  {
+    if (sScheduledRetry != null)
+    {
+      sScheduledRetry.cancel(false);
+      sScheduledRetry = null;
+    }
+    sFailedUploads = 0;
+
+    File directory = new File(DolphinApplication.getAppContext().getFilesDir(),
+            QUEUE_DIRECTORY_NAME);
+    File[] files = directory.listFiles();
+    if (files == null)
+      return;
+
+    for (File file : files)
+    {
+      if (!file.delete())
+        Log.error("[AnalyticsQueue] Failed to delete " + file);
+    }
+    directory.delete();
+    Log.debug("[AnalyticsQueue] Analytics are disabled, deleted " + files.length + " queued files");
+  }
+
+  private static void dropOldestBatches()
+  {
+    List<File> batches = getBatches();
+
+    long totalSize = getPendingFile().length();
+    for (File batch : batches)
+      totalSize += batch.length();
+
+    for (File batch : batches)
+    {
+      if (totalSize <= MAX_QUEUED_BYTES)
+        break;
+
+      totalSize -= batch.length();
+      batch.delete();
+      Log.warning("[AnalyticsQueue] Queue is full, dropped " + batch.getName());
+    }
+  }
+
+  private static void upload()
+  {
+    for (File batch : getBatches())
+    {
+      List<Report> reports = readBatch(batch);
+
+      int sent = 0;
+      while (sent < reports.size() && send(reports.get(sent)))
+        sent++;
+
+      if (sent == reports.size())
+      {
+        batch.delete();
+        continue;
+      }
+
+      // Keep only what's left, so that nothing gets sent twice
+      if (sent > 0)
+        writeBatch(batch, reports.subList(sent, reports.size()));
+
+      sFailedUploads++;
+      long delay = Math.min(MAX_RETRY_DELAY_MS,
+              INITIAL_RETRY_DELAY_MS << Math.min(sFailedUploads - 1, 16));
+      sScheduledRetry = sExecutor.schedule(() ->
+      {
+        sScheduledRetry = null;
+        flushOnExecutor();
+      }, delay, TimeUnit.MILLISECONDS);
+      Log.debug("[AnalyticsQueue] Upload failed, trying again in " + delay / 1000 + " s");
+      return;
+    }
+
+    sFailedUploads = 0;
+  }
+
+  /**
+   * @return Whether the report is done with, either because it was sent or because the server
+   * will never take it. False if it should be sent again later.
+   */
+  private static boolean send(Report report)
+  {
+    try
+    {
+      URLConnection urlConnection = new URL(report.endpoint).openConnection();
+      if (!(urlConnection instanceof HttpURLConnection))
+        throw new MalformedURLException("Not an HTTP URL: " + report.endpoint);
+
+      HttpURLConnection connection = (HttpURLConnection) urlConnection;
+      connection.setConnectTimeout(TIMEOUT_MS);
+      connection.setReadTimeout(TIMEOUT_MS);
+      connection.setRequestMethod("POST");
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(report.data.length);
+
+      try (OutputStream out = connection.getOutputStream())
+      {
+        out.write(report.data);
+      }
+
+      int responseCode = connection.getResponseCode();
+
+      // Reading the whole response and not disconnecting lets the next report reuse the
+      // connection
+      InputStream in = responseCode < HttpURLConnection.HTTP_BAD_REQUEST ?
+              connection.getInputStream() : connection.getErrorStream();
+      if (in != null)
+      {
+        try (InputStream response = in)
+        {
+          byte[] buffer = new byte[1024];
+          int read;
+          do
+          {
+            read = response.read(buffer);
+          }
+          while (read != -1);
+        }
+      }
+
+      if (responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR)
+        return false;
+
+      if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST)
+        Log.debug("[AnalyticsQueue] Report was rejected with HTTP " + responseCode);
+
+      return true;
+    }
+    catch (MalformedURLException | ProtocolException e)
+    {
+      // Sending this report again won't work any better
+      Log.error("[AnalyticsQueue] Dropped a report that can't be sent: " + e.getMessage());
+      return true;
+    }
+    catch (IOException e)
+    {
+      return false;
+    }
+  }
+
+  private static List<Report> readBatch(File batch)
+  {
+    ArrayList<Report> reports = new ArrayList<>();
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new GZIPInputStream(new FileInputStream(batch)))))
+    {
+      while (true)
+        reports.add(readReport(in));
+    }
+    catch (EOFException e)
+    {
+      // End of the batch
+    }
+    catch (IOException e)
+    {
+      // The reports before the one that couldn't be read are fine
+      Log.error("[AnalyticsQueue] Failed to read " + batch + ": " + e.getMessage());
+    }
+    return reports;
+  }
+
+  private static void writeBatch(File batch, List<Report> reports)
+  {
+    File tempFile = new File(batch.getPath() + ".tmp");
+    try
+    {
+      try (DataOutputStream out = new DataOutputStream(
+              new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile)))))
+      {
+        for (Report report : reports)
+          writeReport(out, report);
+      }
+
+      if (!tempFile.renameTo(batch))
+        throw new IOException("Failed to rename " + tempFile);
+    }
+    catch (IOException e)
+    {
+      Log.error("[AnalyticsQueue] Failed to write " + batch + ": " + e.getMessage());
+      tempFile.delete();
+    }
+  }
+
+  private static Report readReport(DataInputStream in) throws IOException
+  {
+    DataInputStream record = new DataInputStream(new ByteArrayInputStream(readRecord(in)));
+    String endpoint = record.readUTF();
+    byte[] data = new byte[record.readInt()];
+    record.readFully(data);
+    return new Report(endpoint, data);
+  }
+
+  /**
+   * Reads the contents of one record and checks them against the stored checksum.
+   *
+   * @throws EOFException if the stream ends before the record does
+   */
+  private static byte[] readRecord(DataInputStream in) throws IOException
+  {
+    int length = in.readInt();
+    if (length < 0 || length > MAX_QUEUED_BYTES)
+      throw new IOException("Invalid report length " + length);
+
+    int checksum = in.readInt();
+    byte[] contents = new byte[length];
+    in.readFully(contents);
+
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+    if ((int) crc.getValue() != checksum)
+      throw new IOException("Report checksum mismatch");
+
+    return contents;
+  }
+
+  private static void writeReport(DataOutputStream out, Report report) throws IOException
+  {
+    ByteArrayOutputStream contents = new ByteArrayOutputStream(report.data.length + 64);
+    DataOutputStream record = new DataOutputStream(contents);
+    record.writeUTF(report.endpoint);
+    record.writeInt(report.data.length);
+    record.write(report.data);
+
+    CRC32 crc = new CRC32();
+    crc.update(contents.toByteArray());
+
+    out.writeInt(contents.size());
+    out.writeInt((int) crc.getValue());
+    contents.writeTo(out);
+  }
+
+  private static List<File> getBatches()
+  {
+    File[] files = getQueueDirectory().listFiles((dir, name) ->
+            name.startsWith(BATCH_PREFIX) && name.endsWith(BATCH_SUFFIX));
+    if (files == null)
+      return new ArrayList<>();
+
+    Arrays.sort(files, (lhs, rhs) -> lhs.getName().compareTo(rhs.getName()));
+    return Arrays.asList(files);
+  }
+
+  private static File getPendingFile()
+  {
+    return new File(getQueueDirectory(), PENDING_FILE_NAME);
+  }
+
+  private static File getQueueDirectory()
+  {
+    File directory = new File(DolphinApplication.getAppContext().getFilesDir(),
+            QUEUE_DIRECTORY_NAME);
+    if (!directory.isDirectory() && !directory.mkdirs())
+      Log.error("[AnalyticsQueue] Failed to create folder " + directory.getAbsolutePath());
+    return directory;
+  }
+}
@@ -18,7 +18,9 @@ import org.dolphinemu.dolphinemu.DolphinApplication;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 
 /*
@@ -38,6 +40,8 @@ import java.util.function.Predicate;
 
 public class ContentHandler
 {
+  private static final long UNKNOWN_LAST_MODIFIED = -1;
+
   @Keep
   public static int openFd(@NonNull String uri, @NonNull String mode)
   {
@@ -79,6 +83,32 @@ public class ContentHandler
     return false;
   }
 
+  /**
+   * Creates an empty file in the given directory. The storage provider may pick a different name
+   * if a file with the requested name already exists.
+   *
+   * @return The URI of the new file, or null on failure
+   */
+  @Nullable
+  public static String createFile(@NonNull String directoryUri, @NonNull String name)
+  {
+    try
+    {
+      Uri uri = DocumentsContract.createDocument(getContentResolver(),
+              treeToDocument(unmangle(directoryUri)), "application/octet-stream", name);
+      return uri == null ? null : uri.toString();
+    }
+    catch (SecurityException e)
+    {
+      Log.error("Tried to create " + name + " in " + directoryUri + " without permission");
+    }
+    catch (Exception ignored)
+    {
+    }
+
+    return null;
+  }
+
   public static boolean exists(@NonNull String uri)
   {
     try
@@ -133,6 +163,38 @@ public class ContentHandler
     return -1;
   }
 
+  /**
+   * @return null if not found or if directory, {size, last modified time in ms} otherwise
+   */
+  @Nullable
+  public static long[] getSizeAndLastModified(@NonNull String uri)
+  {
+    try
+    {
+      Uri documentUri = treeToDocument(unmangle(uri));
+      final String[] projection = new String[]{Document.COLUMN_MIME_TYPE, Document.COLUMN_SIZE,
+              Document.COLUMN_LAST_MODIFIED};
+      try (Cursor cursor = getContentResolver().query(documentUri, projection, null, null, null))
+      {
+        if (cursor != null && cursor.moveToFirst() &&
+                !Document.MIME_TYPE_DIR.equals(cursor.getString(0)))
+        {
+          return new long[]{cursor.isNull(1) ? 0 : cursor.getLong(1),
+                  cursor.isNull(2) ? 0 : cursor.getLong(2)};
+        }
+      }
+    }
+    catch (SecurityException e)
+    {
+      Log.error("Tried to get metadata for " + uri + " without permission");
+    }
+    catch (Exception ignored)
+    {
+    }
+
+    return null;
+  }
+
   @Nullable @Keep
   public static String getDisplayName(@NonNull String uri)
   {
@@ -226,7 +288,19 @@ public class ContentHandler
         String extension = FileBrowserHelper.getExtension(displayName, true);
         return extension != null && Arrays.stream(extensions).anyMatch(extension::equalsIgnoreCase);
       };
-      doFileSearch(uri, directory, documentId, recursive, result, acceptAll, extensionCheck);
+
+      DocumentListingCache listingCache = DocumentListingCache.getInstance();
+      Map<String, DocumentListingCache.Listing> previousListings =
+              listingCache.getListings(directory);
+      HashMap<String, DocumentListingCache.Listing> listings = new HashMap<>();
+
+      doFileSearch(uri, directory, documentId, UNKNOWN_LAST_MODIFIED, recursive, result,
+              acceptAll, extensionCheck, previousListings, listings);
+
+      // Only remember complete recursive searches, since a non-recursive search
+      // would make us forget the listings of all subdirectories.
+      if (recursive || previousListings.isEmpty())
+        listingCache.setListings(directory, listings);
     }
     catch (Exception ignored)
     {
@@ -236,22 +310,114 @@ public class ContentHandler
   }
 
   private static void doFileSearch(@NonNull Uri baseUri, @NonNull String path,
-          @NonNull String documentId, boolean recursive, @NonNull List<String> resultOut,
-          boolean acceptAll, @NonNull Predicate<String> extensionCheck)
+          @NonNull String documentId, long lastModified, boolean recursive,
+          @NonNull List<String> resultOut, boolean acceptAll,
+          @NonNull Predicate<String> extensionCheck,
+          @NonNull Map<String, DocumentListingCache.Listing> previousListings,
+          @NonNull Map<String, DocumentListingCache.Listing> listingsOut)
   {
-    forEachChild(baseUri, documentId, (displayName, childDocumentId, isDirectory) ->
+    DocumentListingCache.Listing listing =
+            getListing(baseUri, documentId, lastModified, previousListings);
+    if (listing == null)
+      return;
+
+    listingsOut.put(documentId, listing);
+    boolean fromCache = listing == previousListings.get(documentId);
+
+    for (DocumentListingCache.Child child : listing.children)
     {
-      String childPath = path + '/' + displayName;
-      if (acceptAll || (!isDirectory && extensionCheck.test(displayName)))
+      String childPath = path + '/' + child.displayName;
+      if (acceptAll || (!child.isDirectory && extensionCheck.test(child.displayName)))
       {
         resultOut.add(childPath);
       }
-      if (recursive && isDirectory)
+      if (recursive && child.isDirectory)
       {
-        doFileSearch(baseUri, childPath, childDocumentId, recursive, resultOut, acceptAll,
-                extensionCheck);
+        // A directory's last modified time only changes when its direct children change,
+        // so the times stored in a cached listing can't be trusted for subdirectories.
+        // Each of them costs a single-row query for its time, even when nothing changed.
+        long childLastModified = fromCache ? UNKNOWN_LAST_MODIFIED : child.lastModified;
+        doFileSearch(baseUri, childPath, child.documentId, childLastModified, recursive,
+                resultOut, acceptAll, extensionCheck, previousListings, listingsOut);
       }
-    });
+    }
+  }
+
+  /**
+   * Returns the cached listing of a directory if the directory's last modified time matches,
+   * or queries the children of the directory otherwise. Returns null if the query fails.
+   */
+  @Nullable
+  private static DocumentListingCache.Listing getListing(@NonNull Uri uri,
+          @NonNull String documentId, long lastModified,
+          @NonNull Map<String, DocumentListingCache.Listing> previousListings)
+  {
+    if (lastModified == UNKNOWN_LAST_MODIFIED)
+      lastModified = getLastModified(uri, documentId);
+
+    // Providers which don't report a time for directories use 0. Always query those.
+    DocumentListingCache.Listing previous = previousListings.get(documentId);
+    if (previous != null && lastModified > 0 && previous.lastModified == lastModified)
+      return previous;
+
+    try
+    {
+      Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(uri, documentId);
+
+      final String[] projection = new String[]{Document.COLUMN_DISPLAY_NAME,
+              Document.COLUMN_MIME_TYPE, Document.COLUMN_DOCUMENT_ID,
+              Document.COLUMN_LAST_MODIFIED};
+      try (Cursor cursor = getContentResolver().query(childrenUri, projection, null, null, null))
+      {
+        if (cursor == null)
+          return null;
+
+        ArrayList<DocumentListingCache.Child> children = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext())
+        {
+          children.add(new DocumentListingCache.Child(cursor.getString(0), cursor.getString(2),
+                  Document.MIME_TYPE_DIR.equals(cursor.getString(1)),
+                  cursor.isNull(3) ? 0 : cursor.getLong(3)));
+        }
+        return new DocumentListingCache.Listing(lastModified,
+                children.toArray(new DocumentListingCache.Child[0]));
+      }
+    }
+    catch (SecurityException e)
+    {
+      Log.error("Tried to get children of " + uri + " without permission");
+    }
+    catch (Exception ignored)
+    {
+    }
+
+    return null;
+  }
+
+  /**
+   * @return 0 if unknown, last modified time in ms otherwise
+   */
+  private static long getLastModified(@NonNull Uri uri, @NonNull String documentId)
+  {
+    try
+    {
+      Uri documentUri = DocumentsContract.buildDocumentUriUsingTree(uri, documentId);
+      final String[] projection = new String[]{Document.COLUMN_LAST_MODIFIED};
+      try (Cursor cursor = getContentResolver().query(documentUri, projection, null, null, null))
+      {
+        if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0))
+          return cursor.getLong(0);
+      }
+    }
+    catch (SecurityException e)
+    {
+      Log.error("Tried to get metadata for " + uri + " without permission");
+    }
+    catch (Exception ignored)
+    {
+    }
+
+    return 0;
   }
 
   private interface ForEachChildCallback
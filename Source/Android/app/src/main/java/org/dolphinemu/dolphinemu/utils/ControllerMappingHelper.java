@@ -29,26 +29,28 @@ public class ControllerMappingHelper
    * Scale an axis to be zero-centered with a proper range.
    */
   public static float scaleAxis(InputDevice inputDevice, int axis, float value)
+  {
+    return needsAxisScaling(inputDevice, axis) ? (value + 1) / 2.0f : value;
+  }
+
+  /**
+   * Whether {@link #scaleAxis} changes the values of the given axis.
+   */
+  public static boolean needsAxisScaling(InputDevice inputDevice, int axis)
   {
     if (isDualShock4(inputDevice))
     {
       // Android doesn't have correct mappings for this controller's triggers. It reports them
       // as RX & RY, centered at -1.0, and with a range of [-1.0, 1.0]
       // Scale them to properly zero-centered with a range of [0.0, 1.0].
-      if (axis == MotionEvent.AXIS_RX || axis == MotionEvent.AXIS_RY)
-      {
-        return (value + 1) / 2.0f;
-      }
+      return axis == MotionEvent.AXIS_RX || axis == MotionEvent.AXIS_RY;
     }
     else if (isXboxOneWireless(inputDevice))
     {
       // Same as the DualShock 4, the mappings are missing.
-      if (axis == MotionEvent.AXIS_Z || axis == MotionEvent.AXIS_RZ)
-      {
-        return (value + 1) / 2.0f;
-      }
+      return axis == MotionEvent.AXIS_Z || axis == MotionEvent.AXIS_RZ;
     }
-    return value;
+    return false;
   }
 
   private static boolean isDualShock4(InputDevice inputDevice)
@@ -2,27 +2,95 @@
 
 package org.dolphinemu.dolphinemu.utils;
 
+import android.content.Context;
 import android.graphics.Bitmap;
+import android.util.DisplayMetrics;
 
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.Picasso;
+
+import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.model.GameFile;
 
+import java.io.File;
 import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public final class CoverHelper
 {
-  public static String buildGameTDBUrl(GameFile game, String region)
+  // Thumbnails are what the game grid shows. Full covers are only kept on disk next to them.
+  private static final String THUMBNAIL_DIRECTORY = "thumbnails";
+  private static final String THUMBNAIL_EXTENSION = ".jpg";
+  private static final int THUMBNAIL_QUALITY = 85;
+  private static final int MEMORY_CACHE_HEAP_DIVISOR = 8;
+  private static final int LIST_COVER_WIDTH_DP = 96;
+
+  public static final String GAMETDB_COVER_URL = "https://art.gametdb.com/wii/cover/%s/%s.png";
+
+  private static Picasso sCoverPicasso;
+  private static int sThumbnailWidth;
+  private static final ExecutorService sWriteExecutor = Executors.newSingleThreadExecutor();
+
+  /**
+   * Returns the Picasso instance used for the game grid. Its memory cache holds decoded
+   * thumbnails and is sized to a fraction of the heap.
+   */
+  public static synchronized Picasso getCoverPicasso(Context context)
+  {
+    if (sCoverPicasso == null)
+    {
+      int cacheSize = (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_DIVISOR);
+      sCoverPicasso = new Picasso.Builder(context.getApplicationContext())
+              .memoryCache(new LruCache(cacheSize))
+              .build();
+    }
+    return sCoverPicasso;
+  }
+
+  /**
+   * Returns the width in pixels of the widest cell the game grid uses for covers.
+   */
+  public static synchronized int getThumbnailWidth(Context context)
   {
-    final String baseUrl = "https://art.gametdb.com/wii/cover/%s/%s.png";
-    String id = game.getGameTdbId();
-    if (region == null)
+    if (sThumbnailWidth == 0)
     {
-      region = getRegion(game);
+      DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+      int columns = context.getResources().getInteger(R.integer.game_grid_columns) * 2 + 1;
+      int screenWidth = Math.max(metrics.widthPixels, metrics.heightPixels);
+      sThumbnailWidth = Math.max(screenWidth / columns,
+              (int) (LIST_COVER_WIDTH_DP * metrics.density));
     }
-    else
+    return sThumbnailWidth;
+  }
+
+  public static String getThumbnailPath(String coverPath)
+  {
+    File cover = new File(coverPath);
+    String name = cover.getName();
+    int extensionStart = name.lastIndexOf('.');
+    if (extensionStart > 0)
+      name = name.substring(0, extensionStart);
+    return cover.getParent() + File.separator + THUMBNAIL_DIRECTORY + File.separator + name +
+            THUMBNAIL_EXTENSION;
+  }
+
+  /**
+   * Returns the URLs to try for a cover, starting with the game's own region and falling back
+   * to the US and Japanese covers like the game grid does.
+   */
+  public static String[] buildCoverUrls(String urlTemplate, String gameTdbId, String region)
+  {
+    ArrayList<String> urls = new ArrayList<>();
+    urls.add(String.format(urlTemplate, region, gameTdbId));
+    for (String fallbackRegion : new String[]{"US", "JA"})
     {
-      id = toRegion(id, region);
+      String url = String.format(urlTemplate, fallbackRegion, toRegion(gameTdbId, fallbackRegion));
+      if (!urls.contains(url))
+        urls.add(url);
     }
-    return String.format(baseUrl, region, id);
+    return urls.toArray(new String[0]);
   }
 
   private static String toRegion(String id, String region)
@@ -94,12 +162,45 @@ public final class CoverHelper
     return region;
   }
 
-  public static void saveCover(Bitmap cover, String path)
+  /**
+   * Writes a thumbnail for a cover that already is on disk, on a background thread.
+   */
+  public static void saveThumbnail(Bitmap cover, String coverPath, int thumbnailWidth)
+  {
+    sWriteExecutor.execute(() -> writeThumbnail(cover, coverPath, thumbnailWidth));
+  }
+
+  static void writeThumbnail(Bitmap cover, String coverPath, int thumbnailWidth)
+  {
+    String thumbnailPath = getThumbnailPath(coverPath);
+    File thumbnailDirectory = new File(thumbnailPath).getParentFile();
+    if (thumbnailDirectory != null && !thumbnailDirectory.isDirectory() &&
+            !thumbnailDirectory.mkdirs())
+    {
+      Log.error("[CoverHelper] Failed to create " + thumbnailDirectory.getPath());
+      return;
+    }
+
+    Bitmap thumbnail = cover;
+    if (cover.getWidth() > thumbnailWidth)
+    {
+      int thumbnailHeight = Math.max(1, cover.getHeight() * thumbnailWidth / cover.getWidth());
+      thumbnail = Bitmap.createScaledBitmap(cover, thumbnailWidth, thumbnailHeight, true);
+    }
+
+    writeBitmap(thumbnail, thumbnailPath, Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY);
+
+    if (thumbnail != cover)
+      thumbnail.recycle();
+  }
+
+  private static void writeBitmap(Bitmap bitmap, String path, Bitmap.CompressFormat format,
+          int quality)
   {
     try
     {
       FileOutputStream out = new FileOutputStream(path);
-      cover.compress(Bitmap.CompressFormat.PNG, 100, out);
+      bitmap.compress(format, quality, out);
       out.close();
     }
     catch (Exception ignored)
@@ -0,0 +1,431 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.dolphinemu.dolphinemu.NativeLibrary;
+import org.dolphinemu.dolphinemu.model.GameFile;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads all missing covers of the game library in one go, instead of letting the game grid
+ * fetch them one by one as cards get bound. Covers are written together with their thumbnails.
+ *
+ * The game grid fetches covers through here too, so a cover is never downloaded twice at once.
+ * Covers that GameTDB doesn't have are remembered for a while, so that rescans and rebinding
+ * cards don't keep asking for them.
+ */
+public final class CoverPrefetcher
+{
+  public static final class Cover
+  {
+    public final String gameTdbId;
+    public final String region;
+
+    public Cover(String gameTdbId, String region)
+    {
+      this.gameTdbId = gameTdbId;
+      this.region = region;
+    }
+  }
+
+  private static final class Fetch
+  {
+    final CompletableFuture<Boolean> result = new CompletableFuture<>();
+    final ArrayList<Action1<Boolean>> callbacks = new ArrayList<>();
+  }
+
+  private static final int MAX_CONCURRENT_DOWNLOADS = 4;
+  private static final int TIMEOUT_MS = 10000;
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private static final String MISSING_COVERS_FILE_NAME = "missing.json";
+  // For covers that GameTDB answered 404 for
+  private static final long MISSING_COVER_RETRY_MS = 24 * 60 * 60 * 1000;
+  // For covers that couldn't be downloaded for some other reason
+  private static final long FAILED_COVER_RETRY_MS = 30 * 60 * 1000;
+
+  // Makes prefetch jobs from consecutive rescans run one after another
+  private static final ExecutorService sJobExecutor = Executors.newSingleThreadExecutor();
+  private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+  private static CoverPrefetcher sInstance;
+
+  private final String mUrlTemplate;
+  private final int mThumbnailWidth;
+  private final File mCoverDirectory;
+  private final ThreadPoolExecutor mDownloadExecutor;
+
+  // Guarded by this
+  private final HashMap<String, Fetch> mFetches = new HashMap<>();
+  // When each cover that couldn't be downloaded may be tried again, by GameTDB ID
+  @Nullable private HashMap<String, Long> mMissingCovers;
+
+  /**
+   * @param urlTemplate A format string taking the region and the GameTDB ID, in that order
+   */
+  public CoverPrefetcher(@NonNull String urlTemplate, int maxConcurrentDownloads,
+          int thumbnailWidth, @NonNull File coverDirectory)
+  {
+    mUrlTemplate = urlTemplate;
+    mThumbnailWidth = thumbnailWidth;
+    mCoverDirectory = coverDirectory;
+    mDownloadExecutor = new ThreadPoolExecutor(maxConcurrentDownloads, maxConcurrentDownloads,
+            TIMEOUT_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    mDownloadExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  @Nullable
+  private static synchronized CoverPrefetcher getInstance(@NonNull Context context)
+  {
+    if (sInstance == null)
+    {
+      File cacheDir = context.getExternalCacheDir();
+      if (cacheDir == null)
+        return null;
+
+      // Same location as GameFile.getCoverPath
+      sInstance = new CoverPrefetcher(CoverHelper.GAMETDB_COVER_URL, MAX_CONCURRENT_DOWNLOADS,
+              CoverHelper.getThumbnailWidth(context), new File(cacheDir, "GameCovers"));
+    }
+    return sInstance;
+  }
+
+  /**
+   * Queues a background job that downloads the GameTDB covers the given games are missing.
+   * Does nothing if there's no network connection.
+   */
+  public static void startPrefetch(@NonNull Context context, @NonNull List<GameFile> games)
+  {
+    if (games.isEmpty() || !NativeLibrary.isNetworkConnected(context))
+      return;
+
+    CoverPrefetcher prefetcher = getInstance(context);
+    if (prefetcher == null)
+      return;
+
+    // Multiple discs of a game share one cover
+    LinkedHashMap<String, Cover> covers = new LinkedHashMap<>();
+    for (GameFile game : games)
+    {
+      String gameTdbId = game.getGameTdbId();
+      if (!gameTdbId.isEmpty() && !covers.containsKey(gameTdbId))
+        covers.put(gameTdbId, new Cover(gameTdbId, CoverHelper.getRegion(game)));
+    }
+
+    List<Cover> coverList = new ArrayList<>(covers.values());
+    sJobExecutor.execute(() ->
+    {
+      int downloaded = prefetcher.prefetch(coverList);
+      Log.info("[CoverPrefetcher] Downloaded " + downloaded + " covers");
+    });
+  }
+
+  /**
+   * Downloads the cover of a game for the game grid, or waits for the download that's already
+   * running for it. The callback is called on the main thread, with false if there's no cover to
+   * be had right now.
+   */
+  public static void fetchCover(@NonNull Context context, @NonNull GameFile game,
+          @NonNull Action1<Boolean> callback)
+  {
+    CoverPrefetcher prefetcher = getInstance(context);
+    String gameTdbId = game.getGameTdbId();
+    if (prefetcher == null || gameTdbId.isEmpty() || !NativeLibrary.isNetworkConnected(context))
+    {
+      sMainHandler.post(() -> callback.call(false));
+      return;
+    }
+
+    prefetcher.fetch(new Cover(gameTdbId, CoverHelper.getRegion(game)), callback);
+  }
+
+  /**
+   * Downloads the covers that don't exist in the cover directory yet, running at most
+   * maxConcurrentDownloads downloads at once. Blocks until all downloads are done.
+   *
+   * @return the number of covers that were downloaded
+   */
+  public int prefetch(@NonNull List<Cover> covers)
+  {
+    ArrayList<Fetch> fetches = new ArrayList<>();
+    for (Cover cover : covers)
+    {
+      Fetch fetch = fetch(cover, null);
+      if (fetch != null)
+        fetches.add(fetch);
+    }
+
+    int downloaded = 0;
+    try
+    {
+      for (Fetch fetch : fetches)
+      {
+        if (fetch.result.get())
+          downloaded++;
+      }
+    }
+    catch (InterruptedException | ExecutionException e)
+    {
+      Log.error("[CoverPrefetcher] Prefetch aborted: " + e);
+    }
+    return downloaded;
+  }
+
+  /**
+   * Starts downloading a cover unless it's on disk, known to be missing or already being
+   * downloaded.
+   *
+   * @return The download the callback was added to, or null if nothing needs to be downloaded
+   */
+  @Nullable
+  private synchronized Fetch fetch(@NonNull Cover cover, @Nullable Action1<Boolean> callback)
+  {
+    Fetch fetch = mFetches.get(cover.gameTdbId);
+    if (fetch == null)
+    {
+      File coverFile = new File(mCoverDirectory, cover.gameTdbId + ".png");
+      boolean exists = coverFile.exists();
+      if (exists || isMissing(cover.gameTdbId))
+      {
+        if (callback != null)
+          sMainHandler.post(() -> callback.call(exists));
+        return null;
+      }
+
+      Fetch newFetch = new Fetch();
+      mFetches.put(cover.gameTdbId, newFetch);
+      mDownloadExecutor.execute(() ->
+              finishFetch(cover, newFetch, downloadCover(cover, coverFile)));
+      fetch = newFetch;
+    }
+
+    if (callback != null)
+      fetch.callbacks.add(callback);
+    return fetch;
+  }
+
+  private void finishFetch(@NonNull Cover cover, @NonNull Fetch fetch, boolean downloaded)
+  {
+    synchronized (this)
+    {
+      mFetches.remove(cover.gameTdbId);
+    }
+
+    fetch.result.complete(downloaded);
+    for (Action1<Boolean> callback : fetch.callbacks)
+      sMainHandler.post(() -> callback.call(downloaded));
+  }
+
+  private boolean downloadCover(@NonNull Cover cover, @NonNull File coverFile)
+  {
+    if (!mCoverDirectory.isDirectory() && !mCoverDirectory.mkdirs())
+    {
+      Log.error("[CoverPrefetcher] Failed to create " + mCoverDirectory.getPath());
+      return false;
+    }
+
+    byte[] data = null;
+    boolean failed = false;
+    for (String url : CoverHelper.buildCoverUrls(mUrlTemplate, cover.gameTdbId, cover.region))
+    {
+      try
+      {
+        data = download(url);
+        if (data != null)
+          break;
+      }
+      catch (IOException e)
+      {
+        Log.debug("[CoverPrefetcher] Failed to download " + url + ": " + e.getMessage());
+        failed = true;
+      }
+    }
+    if (data == null)
+    {
+      setMissing(cover.gameTdbId, failed ? FAILED_COVER_RETRY_MS : MISSING_COVER_RETRY_MS);
+      return false;
+    }
+
+    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+    if (bitmap == null)
+    {
+      setMissing(cover.gameTdbId, MISSING_COVER_RETRY_MS);
+      return false;
+    }
+
+    // Write to a temporary file first so that the game grid never sees a partial cover
+    File tempFile = new File(coverFile.getPath() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(tempFile))
+    {
+      out.write(data);
+    }
+    catch (IOException e)
+    {
+      Log.error("[CoverPrefetcher] Failed to write " + tempFile.getPath() + ": " + e.getMessage());
+      tempFile.delete();
+      bitmap.recycle();
+      return false;
+    }
+
+    CoverHelper.writeThumbnail(bitmap, coverFile.getPath(), mThumbnailWidth);
+    bitmap.recycle();
+    return tempFile.renameTo(coverFile);
+  }
+
+  /**
+   * @return The cover, or null if the server doesn't have it
+   */
+  @Nullable
+  private static byte[] download(@NonNull String url) throws IOException
+  {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    try
+    {
+      connection.setConnectTimeout(TIMEOUT_MS);
+      connection.setReadTimeout(TIMEOUT_MS);
+      int responseCode = connection.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_NOT_FOUND)
+        return null;
+      if (responseCode != HttpURLConnection.HTTP_OK)
+        throw new IOException("HTTP " + responseCode);
+
+      try (InputStream in = connection.getInputStream())
+      {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+          out.write(buffer, 0, read);
+        return out.toByteArray();
+      }
+    }
+    finally
+    {
+      connection.disconnect();
+    }
+  }
+
+  private synchronized boolean isMissing(@NonNull String gameTdbId)
+  {
+    Long retryTime = getMissingCovers().get(gameTdbId);
+    return retryTime != null && retryTime > System.currentTimeMillis();
+  }
+
+  private synchronized void setMissing(@NonNull String gameTdbId, long retryDelayMs)
+  {
+    HashMap<String, Long> missingCovers = getMissingCovers();
+    long now = System.currentTimeMillis();
+    Iterator<Long> it = missingCovers.values().iterator();
+    while (it.hasNext())
+    {
+      if (it.next() <= now)
+        it.remove();
+    }
+
+    missingCovers.put(gameTdbId, now + retryDelayMs);
+    writeMissingCovers(missingCovers);
+  }
+
+  private HashMap<String, Long> getMissingCovers()
+  {
+    if (mMissingCovers == null)
+      mMissingCovers = readMissingCovers();
+    return mMissingCovers;
+  }
+
+  private HashMap<String, Long> readMissingCovers()
+  {
+    HashMap<String, Long> missingCovers = new HashMap<>();
+    File file = new File(mCoverDirectory, MISSING_COVERS_FILE_NAME);
+    if (!file.exists())
+      return missingCovers;
+
+    StringBuilder json = new StringBuilder();
+    try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+    {
+      char[] buffer = new char[4096];
+      int read;
+      while ((read = reader.read(buffer)) != -1)
+        json.append(buffer, 0, read);
+
+      JSONObject covers = new JSONObject(json.toString());
+      Iterator<String> keys = covers.keys();
+      while (keys.hasNext())
+      {
+        String gameTdbId = keys.next();
+        missingCovers.put(gameTdbId, covers.getLong(gameTdbId));
+      }
+    }
+    catch (IOException | JSONException e)
+    {
+      // Worst case, the covers get looked for again
+      Log.warning("[CoverPrefetcher] Failed to read " + file + ": " + e.getMessage());
+      missingCovers.clear();
+    }
+    return missingCovers;
+  }
+
+  private void writeMissingCovers(Map<String, Long> missingCovers)
+  {
+    File file = new File(mCoverDirectory, MISSING_COVERS_FILE_NAME);
+    File tempFile = new File(file.getPath() + ".tmp");
+    try
+    {
+      JSONObject covers = new JSONObject();
+      for (Map.Entry<String, Long> cover : missingCovers.entrySet())
+        covers.put(cover.getKey(), (long) cover.getValue());
+
+      try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile),
+              StandardCharsets.UTF_8))
+      {
+        writer.write(covers.toString());
+      }
+
+      if (!tempFile.renameTo(file))
+        throw new IOException("Failed to rename " + tempFile);
+    }
+    catch (IOException | JSONException e)
+    {
+      Log.error("[CoverPrefetcher] Failed to write " + file + ": " + e.getMessage());
+      tempFile.delete();
+    }
+  }
+}
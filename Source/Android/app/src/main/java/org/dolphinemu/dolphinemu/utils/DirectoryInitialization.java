@@ -8,7 +8,9 @@ package org.dolphinemu.dolphinemu.utils;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.res.AssetManager;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 
 import androidx.annotation.NonNull;
@@ -18,11 +20,27 @@ import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.activities.EmulationActivity;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -36,6 +54,16 @@ public final class DirectoryInitialization
 
   public static final String EXTRA_STATE = "directoryState";
   private static final int WiimoteNewVersion = 5;  // Last changed in PR 8907
+
+  // Lists the SHA-1 of every file in Sys. Generated by the CMake build and stored next to Sys
+  // both in the APK's assets and in the files directory, for what the last extraction wrote.
+  private static final String SYS_MANIFEST = "SysManifest.txt";
+
+  // Most of the files in Sys are small, so extraction is bound by the time it takes to open and
+  // close files rather than by the copying, and that can be done in parallel
+  private static final int EXTRACTION_THREADS = 4;
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
   private static volatile DirectoryInitializationState directoryState =
           DirectoryInitializationState.NOT_YET_INITIALIZED;
   private static volatile boolean areDirectoriesAvailable = false;
@@ -141,16 +169,40 @@ public final class DirectoryInitialization
     {
       // There is no extracted Sys directory, or there is a Sys directory from another
       // version of Dolphin that might contain outdated files. Let's (re-)extract Sys.
-      deleteDirectoryRecursively(sysDirectory);
-      copyAssetFolder("Sys", sysDirectory, true, context);
+      long startTime = SystemClock.elapsedRealtime();
+
+      Map<String, String> manifest = readAssetManifest(context);
+      boolean extracted;
+      if (manifest != null)
+      {
+        extracted = extractSysDirectory(sysDirectory, manifest, context);
+      }
+      else
+      {
+        // Whatever an earlier extraction wrote down is about to be out of date
+        new File(context.getFilesDir(), SYS_MANIFEST).delete();
+        deleteDirectoryRecursively(sysDirectory);
+        copyAssetFolder("Sys", sysDirectory, true, context);
+        extracted = true;
+      }
+
+      Log.info("[DirectoryInitialization] Extracted Sys in " +
+              (SystemClock.elapsedRealtime() - startTime) + " ms");
 
-      SharedPreferences.Editor editor = preferences.edit();
-      editor.putString("sysDirectoryVersion", revision);
-      editor.apply();
+      // If some files couldn't be written, try again on the next launch
+      if (extracted)
+      {
+        SharedPreferences.Editor editor = preferences.edit();
+        editor.putString("sysDirectoryVersion", revision);
+        editor.apply();
+      }
     }
 
     // Let the native code know where the Sys directory is.
     SetSysDirectory(sysDirectory.getPath());
+
+    // The game INIs make up most of Sys but are only ever read, so they stay in the APK
+    SetSysGameSettingsAssets(context.getAssets());
   }
 
   // Returns whether the WiimoteNew.ini file was written to
@@ -212,6 +264,163 @@ public final class DirectoryInitialization
     }
   }
 
+  /**
+   * Brings the extracted Sys directory in line with the APK by comparing the file hashes in the
+   * APK's manifest with the ones from the last extraction. Only files that were added or changed
+   * are written, and files that are no longer in the APK are deleted.
+   *
+   * @return Whether every file was extracted
+   */
+  private static boolean extractSysDirectory(File sysDirectory, Map<String, String> manifest,
+          Context context)
+  {
+    File installedManifestFile = new File(context.getFilesDir(), SYS_MANIFEST);
+    Map<String, String> installedManifest = null;
+    if (installedManifestFile.exists())
+    {
+      try (InputStream in = new FileInputStream(installedManifestFile))
+      {
+        installedManifest = readManifest(in);
+      }
+      catch (IOException e)
+      {
+        Log.error("[DirectoryInitialization] Failed to read " + installedManifestFile + ": " +
+                e.getMessage());
+      }
+    }
+
+    if (installedManifest == null)
+    {
+      // We don't know what an earlier version extracted, so start over
+      deleteDirectoryRecursively(sysDirectory);
+      installedManifest = new HashMap<>();
+    }
+    else
+    {
+      for (String path : installedManifest.keySet())
+      {
+        File file = new File(sysDirectory, path);
+        if (!manifest.containsKey(path) && file.exists() && !file.delete())
+          Log.error("[DirectoryInitialization] Failed to delete " + file.getAbsolutePath());
+      }
+    }
+
+    ArrayList<String> changedPaths = new ArrayList<>();
+    HashSet<File> directories = new HashSet<>();
+    for (Map.Entry<String, String> entry : manifest.entrySet())
+    {
+      File output = new File(sysDirectory, entry.getKey());
+      if (entry.getValue().equals(installedManifest.get(entry.getKey())) && output.exists())
+        continue;
+
+      changedPaths.add(entry.getKey());
+      directories.add(output.getParentFile());
+    }
+
+    // Create the directories up front so that the copy threads don't race each other for them
+    for (File directory : directories)
+    {
+      if (!directory.isDirectory() && !directory.mkdirs())
+      {
+        Log.error("[DirectoryInitialization] Failed to create folder " +
+                directory.getAbsolutePath());
+      }
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(EXTRACTION_THREADS);
+    ArrayList<Future<Boolean>> results = new ArrayList<>(changedPaths.size());
+    for (String path : changedPaths)
+    {
+      results.add(executor.submit(() -> copyAsset("Sys" + File.separator + path,
+              new File(sysDirectory, path), true, context)));
+    }
+    executor.shutdown();
+
+    // Files that couldn't be written are left out of the new manifest so that they get retried
+    Map<String, String> extractedManifest = new LinkedHashMap<>(manifest);
+    boolean success = true;
+    for (int i = 0; i < changedPaths.size(); i++)
+    {
+      boolean copied;
+      try
+      {
+        copied = results.get(i).get();
+      }
+      catch (ExecutionException | InterruptedException e)
+      {
+        copied = false;
+      }
+
+      if (!copied)
+      {
+        extractedManifest.remove(changedPaths.get(i));
+        success = false;
+      }
+    }
+
+    Log.info("[DirectoryInitialization] Extracted " + changedPaths.size() + " of " +
+            manifest.size() + " files in Sys");
+
+    return writeManifest(installedManifestFile, extractedManifest) && success;
+  }
+
+  @Nullable
+  private static Map<String, String> readAssetManifest(Context context)
+  {
+    try (InputStream in = context.getAssets().open(SYS_MANIFEST))
+    {
+      return readManifest(in);
+    }
+    catch (IOException e)
+    {
+      Log.warning("[DirectoryInitialization] No Sys manifest, extracting everything");
+      return null;
+    }
+  }
+
+  /**
+   * Reads a manifest where each line is the SHA-1 of a file followed by a space and the path of
+   * the file relative to Sys.
+   */
+  private static Map<String, String> readManifest(InputStream in) throws IOException
+  {
+    Map<String, String> manifest = new LinkedHashMap<>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null)
+    {
+      int separator = line.indexOf(' ');
+      if (separator > 0)
+        manifest.put(line.substring(separator + 1), line.substring(0, separator));
+    }
+    return manifest;
+  }
+
+  private static boolean writeManifest(File file, Map<String, String> manifest)
+  {
+    File tempFile = new File(file.getPath() + ".tmp");
+    try
+    {
+      try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+              new FileOutputStream(tempFile), StandardCharsets.UTF_8)))
+      {
+        for (Map.Entry<String, String> entry : manifest.entrySet())
+          writer.write(entry.getValue() + " " + entry.getKey() + "\n");
+      }
+
+      if (!tempFile.renameTo(file))
+        throw new IOException("Failed to rename " + tempFile);
+
+      return true;
+    }
+    catch (IOException e)
+    {
+      Log.error("[DirectoryInitialization] Failed to write " + file + ": " + e.getMessage());
+      tempFile.delete();
+      return false;
+    }
+  }
+
   public static boolean shouldStart(Context context)
   {
     return !isDolphinDirectoryInitializationRunning.get() &&
@@ -320,7 +529,7 @@ public final class DirectoryInitialization
 
   private static void copyFile(InputStream in, OutputStream out) throws IOException
   {
-    byte[] buffer = new byte[1024];
+    byte[] buffer = new byte[COPY_BUFFER_SIZE];
     int read;
 
     while ((read = in.read(buffer)) != -1)
@@ -393,4 +602,6 @@ public final class DirectoryInitialization
   private static native void CreateUserDirectories();
 
   private static native void SetSysDirectory(String path);
+
+  private static native void SetSysGameSettingsAssets(AssetManager assets);
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.dolphinemu.dolphinemu.DolphinApplication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * On-disk cache of SAF directory listings, used by {@link ContentHandler#doFileSearch} so that
+ * directories whose last modified time hasn't changed don't have to be listed again.
+ *
+ * This doesn't reduce the number of ContentResolver queries a search makes. A directory's last
+ * modified time only covers its direct children, so every directory still needs a query for its
+ * current time. What the cache saves is listing the children of the directories that haven't
+ * changed, which for large folders is most of the work of a query.
+ *
+ * Listings are grouped by the folder a search was started from, and each search replaces the
+ * listings of its folder, which drops directories that no longer exist.
+ */
+final class DocumentListingCache
+{
+  static final class Child
+  {
+    final String displayName;
+    final String documentId;
+    final boolean isDirectory;
+    final long lastModified;
+
+    Child(String displayName, String documentId, boolean isDirectory, long lastModified)
+    {
+      this.displayName = displayName;
+      this.documentId = documentId;
+      this.isDirectory = isDirectory;
+      this.lastModified = lastModified;
+    }
+  }
+
+  static final class Listing
+  {
+    final long lastModified;
+    final Child[] children;
+
+    Listing(long lastModified, Child[] children)
+    {
+      this.lastModified = lastModified;
+      this.children = children;
+    }
+  }
+
+  private static final int CACHE_REVISION = 1;
+  private static final String CACHE_FILE_NAME = "document_listings.cache";
+
+  private static DocumentListingCache sInstance;
+
+  private final HashMap<String, Map<String, Listing>> mListings = new HashMap<>();
+
+  private DocumentListingCache()
+  {
+  }
+
+  static synchronized DocumentListingCache getInstance()
+  {
+    if (sInstance == null)
+    {
+      sInstance = new DocumentListingCache();
+      sInstance.load();
+    }
+    return sInstance;
+  }
+
+  /**
+   * Returns the listings found by the last search of the given folder, keyed by document ID.
+   */
+  @NonNull
+  synchronized Map<String, Listing> getListings(@NonNull String searchRoot)
+  {
+    Map<String, Listing> listings = mListings.get(searchRoot);
+    return listings == null ? Collections.emptyMap() : listings;
+  }
+
+  synchronized void setListings(@NonNull String searchRoot, @NonNull Map<String, Listing> listings)
+  {
+    mListings.put(searchRoot, Collections.unmodifiableMap(listings));
+    save();
+  }
+
+  private void load()
+  {
+    File file = getCacheFile();
+    if (file == null || !file.exists())
+      return;
+
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(file))))
+    {
+      if (in.readInt() != CACHE_REVISION)
+        return;
+
+      int rootCount = in.readInt();
+      for (int i = 0; i < rootCount; i++)
+      {
+        String root = in.readUTF();
+        int listingCount = in.readInt();
+        HashMap<String, Listing> listings = new HashMap<>(listingCount);
+        for (int j = 0; j < listingCount; j++)
+        {
+          String documentId = in.readUTF();
+          long lastModified = in.readLong();
+          Child[] children = new Child[in.readInt()];
+          for (int k = 0; k < children.length; k++)
+          {
+            children[k] = new Child(in.readUTF(), in.readUTF(), in.readBoolean(), in.readLong());
+          }
+          listings.put(documentId, new Listing(lastModified, children));
+        }
+        mListings.put(root, Collections.unmodifiableMap(listings));
+      }
+    }
+    catch (IOException e)
+    {
+      Log.warning("[DocumentListingCache] Discarding unreadable cache: " + e.getMessage());
+      mListings.clear();
+    }
+  }
+
+  private void save()
+  {
+    File file = getCacheFile();
+    if (file == null)
+      return;
+
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file))))
+    {
+      out.writeInt(CACHE_REVISION);
+      out.writeInt(mListings.size());
+      for (Map.Entry<String, Map<String, Listing>> root : mListings.entrySet())
+      {
+        out.writeUTF(root.getKey());
+        out.writeInt(root.getValue().size());
+        for (Map.Entry<String, Listing> entry : root.getValue().entrySet())
+        {
+          Listing listing = entry.getValue();
+          out.writeUTF(entry.getKey());
+          out.writeLong(listing.lastModified);
+          out.writeInt(listing.children.length);
+          for (Child child : listing.children)
+          {
+            out.writeUTF(child.displayName);
+            out.writeUTF(child.documentId);
+            out.writeBoolean(child.isDirectory);
+            out.writeLong(child.lastModified);
+          }
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      Log.error("[DocumentListingCache] Failed to save cache: " + e.getMessage());
+      if (!file.delete())
+        Log.error("[DocumentListingCache] Failed to delete " + file.getPath());
+    }
+  }
+
+  @Nullable
+  private static File getCacheFile()
+  {
+    File cacheDir = DolphinApplication.getAppContext().getExternalCacheDir();
+    return cacheDir == null ? null : new File(cacheDir, CACHE_FILE_NAME);
+  }
+}
@@ -1,26 +1,120 @@
 package org.dolphinemu.dolphinemu.utils;
 
-import java.util.HashMap;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-
-import java.net.URL;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
 import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import android.os.Handler;
-
+/**
+ * Downloads a file in the background.
+ *
+ * What has been downloaded so far is kept in the download folder together with a description of
+ * the download, so a download that failed or was canceled continues where it stopped the next
+ * time the same URL is downloaded, as long as the server's strong ETag or Last-Modified still
+ * match. Downloads of files that have neither always start over. A finished download is only
+ * fetched again if the server says that it has changed. Large files are downloaded over several
+ * connections at once if the server supports range requests and sends one of those validators.
+ */
 public class DownloadUtils implements Runnable
 {
-  private final HashMap<String, File> mCache = new HashMap<>();
+  private static final String STATE_FILE_NAME = "download.json";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int TIMEOUT_MS = 15000;
+
+  // A single connection is often throttled well below what the device could download,
+  // but splitting small files isn't worth the extra round trips
+  private static final int MAX_CONNECTIONS = 4;
+  private static final long MIN_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private static final long PROGRESS_INTERVAL_MS = 100;
+  private static final long SAVE_INTERVAL_MS = 1000;
+
+  // Runs both the downloads and their connections, so it must not have a fixed size
+  private static final ExecutorService sExecutor = Executors.newCachedThreadPool();
+
   private Handler mHandler;
   private DownloadCallback mListener;
   private File mDownloadPath;
   private String mUrl;
-  private HttpURLConnection mUrlConnection;
-  private boolean mIsRunning = false;
-  private boolean mIsCancelled = false;
+  private final ArrayList<HttpURLConnection> mConnections = new ArrayList<>();
+  private volatile boolean mIsRunning = false;
+  private volatile boolean mIsCancelled = false;
+
+  private long mLastProgressTime;
+  private int mLastProgress;
+  private long mLastSaveTime;
+
+  private static final class State
+  {
+    String url;
+    String fileName;
+    @Nullable String etag;
+    @Nullable String lastModified;
+
+    // -1 if the server didn't say
+    long length;
+
+    boolean complete;
+    final ArrayList<Chunk> chunks = new ArrayList<>();
+  }
+
+  private static final class Chunk
+  {
+    final long start;
+
+    // Exclusive, or -1 if the length of the file isn't known
+    long end;
+
+    volatile long done;
+
+    Chunk(long start, long end, long done)
+    {
+      this.start = start;
+      this.end = end;
+      this.done = done;
+    }
+
+    boolean isDone()
+    {
+      return end != -1 && start + done >= end;
+    }
+  }
+
+  /**
+   * Thrown when the server no longer has the file that a partial download was started from.
+   */
+  private static final class FileChangedException extends IOException
+  {
+    FileChangedException()
+    {
+      super("The file on the server has changed");
+    }
+  }
 
   /**
    * Initialize the DownloadUtils object.
@@ -51,110 +145,541 @@ public class DownloadUtils implements Runnable
   }
 
   /**
-   * Start download on a new thread.
+   * Start download on a background thread.
    */
   public void start()
   {
-    Thread downloadThread = new Thread(this);
-    downloadThread.start();
+    mIsRunning = true;
+    sExecutor.execute(this);
   }
 
   @Override
   public void run()
   {
-    if (!mCache.containsKey(mUrl))
+    mIsRunning = true;
+    mLastProgressTime = 0;
+    mLastProgress = -1;
+    mLastSaveTime = SystemClock.elapsedRealtime();
+
+    File file = null;
+    try
+    {
+      file = download();
+    }
+    catch (IOException e)
+    {
+      if (!mIsCancelled)
+        Log.error("[DownloadUtils] Failed to download " + mUrl + ": " + e.getMessage());
+    }
+
+    mIsRunning = false;
+
+    if (mHandler != null)
     {
-      downloadFile();
+      File downloadedFile = file;
+      if (mIsCancelled)
+        mHandler.post(() -> mListener.onDownloadCancelled());
+      else if (downloadedFile != null)
+        mHandler.post(() -> mListener.onDownloadComplete(downloadedFile));
+      else
+        mHandler.post(() -> mListener.onDownloadError());
     }
-    if (mHandler != null && !mIsCancelled)
-      mHandler.post(() -> mListener.onDownloadComplete(mCache.get(mUrl)));
     mIsCancelled = false;
   }
 
-  private void downloadFile()
+  private File download() throws IOException
   {
-    try
+    File stateFile = new File(mDownloadPath, STATE_FILE_NAME);
+    State state = loadState(stateFile);
+
+    if (state != null && !state.url.equals(mUrl))
+    {
+      new File(mDownloadPath, state.fileName).delete();
+      state = null;
+    }
+
+    if (state != null && state.complete)
     {
-      mIsRunning = true;
-      URL url = new URL(mUrl);
-      HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-      mUrlConnection = urlConnection;
-      urlConnection.setRequestMethod("GET");
-      urlConnection.connect();
-      if (mHandler != null) mHandler.post(() -> mListener.onDownloadStart());
-
-      String filename = "download";
-      String fieldContentDisp = urlConnection.getHeaderField("Content-Disposition");
-      if (fieldContentDisp != null && fieldContentDisp.contains("filename="))
+      File file = new File(mDownloadPath, state.fileName);
+      if (file.length() == state.length && isUnchanged(state))
       {
-        filename = fieldContentDisp.substring(fieldContentDisp.indexOf("filename=") + 9);
+        postStart();
+        postProgress(100);
+        return file;
       }
-      File file = new File(mDownloadPath, filename);
-      mCache.put(mUrl, file);
-
-      FileOutputStream fileOutput = new FileOutputStream(file);
-      InputStream inputStream = urlConnection.getInputStream();
+      file.delete();
+      state = null;
+    }
 
-      float totalSize = urlConnection.getContentLength();
-      int downloadedSize = 0;
+    // Without a validator, the server can't tell us whether the data is still from the same
+    // version of the file
+    if (state != null && getRangeValidator(state) == null)
+    {
+      new File(mDownloadPath, state.fileName).delete();
+      state = null;
+    }
 
-      byte[] buffer = new byte[1024];
-      int bufferLength;
+    // Without the data, there's nothing to continue from
+    if (state != null && !new File(mDownloadPath, state.fileName).exists())
+      state = null;
 
-      while ((bufferLength = inputStream.read(buffer)) > 0)
+    if (state != null)
+    {
+      try
+      {
+        postStart();
+        return downloadChunks(state, null, stateFile);
+      }
+      catch (FileChangedException e)
       {
-        fileOutput.write(buffer, 0, bufferLength);
-        downloadedSize += bufferLength;
+        Log.info("[DownloadUtils] " + mUrl + " has changed, starting over");
+      }
+    }
+
+    return downloadFromStart(stateFile);
+  }
+
+  private File downloadFromStart(File stateFile) throws IOException
+  {
+    // Asking for a range tells us whether the server supports them, and the response can still
+    // be used for the first chunk
+    HttpURLConnection connection = openConnection();
+    connection.setRequestProperty("Range", "bytes=0-");
+    int responseCode = connection.getResponseCode();
+    if (responseCode != HttpURLConnection.HTTP_OK &&
+            responseCode != HttpURLConnection.HTTP_PARTIAL)
+    {
+      closeConnection(connection);
+      throw new IOException("HTTP " + responseCode);
+    }
+
+    State state = new State();
+    state.url = mUrl;
+    state.fileName = getFileName(connection);
+    state.etag = connection.getHeaderField("ETag");
+    state.lastModified = connection.getHeaderField("Last-Modified");
+    state.length = responseCode == HttpURLConnection.HTTP_PARTIAL ?
+            getTotalLength(connection) : getContentLength(connection);
+
+    // The other chunks are requested separately, so they have to be checked against the same
+    // version of the file
+    boolean supportsRanges = responseCode == HttpURLConnection.HTTP_PARTIAL && state.length > 0 &&
+            getRangeValidator(state) != null;
+    int chunkCount = supportsRanges ?
+            (int) Math.max(1, Math.min(MAX_CONNECTIONS, state.length / MIN_CHUNK_SIZE)) : 1;
+    for (int i = 0; i < chunkCount; i++)
+    {
+      long start = state.length * i / chunkCount;
+      long end = state.length < 0 ? -1 : state.length * (i + 1) / chunkCount;
+      state.chunks.add(new Chunk(start, end, 0));
+    }
+
+    File file = new File(mDownloadPath, state.fileName);
+    file.delete();
+    saveState(stateFile, state);
+
+    postStart();
+    return downloadChunks(state, connection, stateFile);
+  }
 
-        int progress = (int) (downloadedSize / totalSize * 100);
-        if (mHandler != null) mHandler.post(() -> mListener.onDownloadProgress(progress));
+  /**
+   * Downloads every chunk that isn't done yet, each over its own connection.
+   *
+   * @param firstConnection A connection that has already been opened for the first chunk
+   */
+  private File downloadChunks(State state, @Nullable HttpURLConnection firstConnection,
+          File stateFile) throws IOException
+  {
+    File file = new File(mDownloadPath, state.fileName);
+
+    ArrayList<Future<?>> results = new ArrayList<>();
+    for (int i = 0; i < state.chunks.size(); i++)
+    {
+      Chunk chunk = state.chunks.get(i);
+      HttpURLConnection connection = i == 0 ? firstConnection : null;
+      if (chunk.isDone())
+      {
+        if (connection != null)
+          closeConnection(connection);
+        continue;
       }
 
-      fileOutput.close();
-      urlConnection.disconnect();
-      mIsRunning = false;
+      results.add(sExecutor.submit(() ->
+      {
+        downloadChunk(state, chunk, connection, file);
+        return null;
+      }));
     }
-    catch (Exception e)
+
+    IOException error = null;
+    for (Future<?> result : results)
     {
-      mIsRunning = false;
-      if (mHandler != null)
+      try
+      {
+        result.get();
+      }
+      catch (ExecutionException | InterruptedException e)
       {
-        if (mIsCancelled)
+        if (error == null)
         {
-          mHandler.post(() -> mListener.onDownloadCancelled());
+          error = e.getCause() instanceof IOException ? (IOException) e.getCause() :
+                  new IOException(e);
+
+          // No point in the other chunks finishing if this one can't
+          closeConnections();
         }
-        else mHandler.post(() -> mListener.onDownloadError());
       }
-      deleteFile();
+    }
+
+    if (error == null)
+    {
+      if (state.length < 0)
+        state.length = state.chunks.get(0).done;
+      state.complete = true;
+    }
+
+    // Keep what has been downloaded, unless it's of a file that no longer exists
+    if (error instanceof FileChangedException)
+    {
+      file.delete();
+      stateFile.delete();
+    }
+    else
+    {
+      saveState(stateFile, state);
+    }
+
+    if (error != null)
+      throw error;
+
+    postProgress(100);
+    return file;
+  }
+
+  private void downloadChunk(State state, Chunk chunk, @Nullable HttpURLConnection connection,
+          File file) throws IOException
+  {
+    if (connection == null)
+    {
+      connection = openConnection();
+      long from = chunk.start + chunk.done;
+      connection.setRequestProperty("Range",
+              "bytes=" + from + "-" + (chunk.end != -1 ? chunk.end - 1 : ""));
+      String validator = getRangeValidator(state);
+      if (validator != null)
+        connection.setRequestProperty("If-Range", validator);
+
+      int responseCode = connection.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_OK)
+      {
+        closeConnection(connection);
+        throw new FileChangedException();
+      }
+      else if (responseCode != HttpURLConnection.HTTP_PARTIAL)
+      {
+        closeConnection(connection);
+        throw new IOException("HTTP " + responseCode);
+      }
+    }
+
+    try (InputStream in = connection.getInputStream();
+         RandomAccessFile out = new RandomAccessFile(file, "rw"))
+    {
+      out.seek(chunk.start + chunk.done);
+
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while (!chunk.isDone())
+      {
+        int toRead = chunk.end == -1 ? buffer.length :
+                (int) Math.min(buffer.length, chunk.end - chunk.start - chunk.done);
+        int read = in.read(buffer, 0, toRead);
+        if (read == -1)
+          break;
+
+        out.write(buffer, 0, read);
+        chunk.done += read;
+        onChunkProgress(state);
+      }
+    }
+    finally
+    {
+      closeConnection(connection);
+    }
+
+    if (chunk.end == -1)
+      chunk.end = chunk.start + chunk.done;
+    else if (!chunk.isDone())
+      throw new IOException("Connection closed before the download was done");
+  }
+
+  private synchronized void onChunkProgress(State state)
+  {
+    long now = SystemClock.elapsedRealtime();
+
+    if (now - mLastSaveTime >= SAVE_INTERVAL_MS)
+    {
+      mLastSaveTime = now;
+      saveState(new File(mDownloadPath, STATE_FILE_NAME), state);
+    }
+
+    if (state.length <= 0 || now - mLastProgressTime < PROGRESS_INTERVAL_MS)
+      return;
+
+    long done = 0;
+    for (Chunk chunk : state.chunks)
+      done += chunk.done;
+
+    int progress = (int) (done * 100 / state.length);
+    if (progress != mLastProgress)
+    {
+      mLastProgressTime = now;
+      postProgress(progress);
     }
   }
 
   /**
-   * Cancel the current downloads by disconnecting from the url.
-   * Report cancelled status back to the listener if any.
+   * Returns the value for an If-Range header, or null if the server didn't send anything that
+   * can be used as one. Weak ETags can't be used with If-Range.
    */
-  public void cancel()
+  @Nullable
+  private static String getRangeValidator(State state)
   {
-    mIsCancelled = true;
-    if (mUrlConnection != null)
-      mUrlConnection.disconnect();
+    if (state.etag != null && !state.etag.startsWith("W/"))
+      return state.etag;
+    return state.lastModified;
+  }
+
+  private void postStart()
+  {
+    if (mHandler != null)
+      mHandler.post(() -> mListener.onDownloadStart());
+  }
+
+  private void postProgress(int progress)
+  {
+    mLastProgress = progress;
+    if (mHandler != null)
+      mHandler.post(() -> mListener.onDownloadProgress(progress));
   }
 
   /**
-   * Get download status.
+   * Asks the server whether a finished download is still the newest version of the file.
    */
-  public boolean isRunning()
+  private boolean isUnchanged(State state) throws IOException
   {
-    return mIsRunning;
+    if (state.etag == null && state.lastModified == null)
+      return false;
+
+    HttpURLConnection connection = openConnection();
+    try
+    {
+      connection.setRequestMethod("HEAD");
+      if (state.etag != null)
+        connection.setRequestProperty("If-None-Match", state.etag);
+      if (state.lastModified != null)
+        connection.setRequestProperty("If-Modified-Since", state.lastModified);
+
+      return connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+    finally
+    {
+      closeConnection(connection);
+    }
+  }
+
+  private HttpURLConnection openConnection() throws IOException
+  {
+    HttpURLConnection connection = (HttpURLConnection) new URL(mUrl).openConnection();
+    connection.setConnectTimeout(TIMEOUT_MS);
+    connection.setReadTimeout(TIMEOUT_MS);
+
+    synchronized (mConnections)
+    {
+      if (mIsCancelled)
+        throw new IOException("Canceled");
+      mConnections.add(connection);
+    }
+    return connection;
+  }
+
+  private void closeConnection(HttpURLConnection connection)
+  {
+    synchronized (mConnections)
+    {
+      mConnections.remove(connection);
+    }
+    connection.disconnect();
+  }
+
+  private void closeConnections()
+  {
+    List<HttpURLConnection> connections;
+    synchronized (mConnections)
+    {
+      connections = new ArrayList<>(mConnections);
+      mConnections.clear();
+    }
+
+    for (HttpURLConnection connection : connections)
+      connection.disconnect();
+  }
+
+  private static String getFileName(HttpURLConnection connection)
+  {
+    String filename = "download";
+    String fieldContentDisp = connection.getHeaderField("Content-Disposition");
+    if (fieldContentDisp != null && fieldContentDisp.contains("filename="))
+    {
+      filename = fieldContentDisp.substring(fieldContentDisp.indexOf("filename=") + 9)
+              .replace("\"", "");
+    }
+    return filename;
+  }
+
+  // HttpURLConnection.getContentLengthLong needs API level 24
+  private static long getContentLength(HttpURLConnection connection)
+  {
+    return parseLength(connection.getHeaderField("Content-Length"));
   }
 
   /**
-   * Delete downloaded file.
+   * Reads the length of the whole file from a Content-Range header like "bytes 0-99/1234".
    */
-  private void deleteFile()
+  private static long getTotalLength(HttpURLConnection connection)
   {
-    mCache.get(mUrl).delete();
-    mCache.remove(mUrl);
+    String contentRange = connection.getHeaderField("Content-Range");
+    if (contentRange == null)
+      return -1;
+
+    return parseLength(contentRange.substring(contentRange.lastIndexOf('/') + 1));
+  }
+
+  private static long parseLength(@Nullable String length)
+  {
+    if (length == null)
+      return -1;
+
+    try
+    {
+      return Long.parseLong(length.trim());
+    }
+    catch (NumberFormatException e)
+    {
+      return -1;
+    }
+  }
+
+  @Nullable
+  private static State loadState(File stateFile)
+  {
+    if (!stateFile.exists())
+      return null;
+
+    StringBuilder json = new StringBuilder();
+    try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(stateFile), StandardCharsets.UTF_8)))
+    {
+      char[] buffer = new char[4096];
+      int read;
+      while ((read = reader.read(buffer)) != -1)
+        json.append(buffer, 0, read);
+
+      JSONObject root = new JSONObject(json.toString());
+      State state = new State();
+      state.url = root.getString("url");
+      state.fileName = root.getString("file");
+      state.etag = root.has("etag") ? root.getString("etag") : null;
+      state.lastModified = root.has("lastModified") ? root.getString("lastModified") : null;
+      state.length = root.getLong("length");
+      state.complete = root.getBoolean("complete");
+
+      JSONArray chunks = root.getJSONArray("chunks");
+      for (int i = 0; i < chunks.length(); i++)
+      {
+        JSONObject chunk = chunks.getJSONObject(i);
+        state.chunks.add(new Chunk(chunk.getLong("start"), chunk.getLong("end"),
+                chunk.getLong("done")));
+      }
+      return state;
+    }
+    catch (IOException | JSONException e)
+    {
+      Log.error("[DownloadUtils] Failed to read " + stateFile + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  private static synchronized void saveState(File stateFile, State state)
+  {
+    File tempFile = new File(stateFile.getPath() + ".tmp");
+    try
+    {
+      JSONArray chunks = new JSONArray();
+      for (Chunk chunk : state.chunks)
+      {
+        chunks.put(new JSONObject()
+                .put("start", chunk.start)
+                .put("end", chunk.end)
+                .put("done", chunk.done));
+      }
+
+      JSONObject root = new JSONObject()
+              .put("url", state.url)
+              .put("file", state.fileName)
+              .put("length", state.length)
+              .put("complete", state.complete)
+              .put("chunks", chunks);
+      if (state.etag != null)
+        root.put("etag", state.etag);
+      if (state.lastModified != null)
+        root.put("lastModified", state.lastModified);
+
+      try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile),
+              StandardCharsets.UTF_8))
+      {
+        writer.write(root.toString());
+      }
+
+      if (!tempFile.renameTo(stateFile))
+        throw new IOException("Failed to rename " + tempFile);
+    }
+    catch (IOException | JSONException e)
+    {
+      Log.error("[DownloadUtils] Failed to write " + stateFile + ": " + e.getMessage());
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * Returns whether the given folder has a download that was started but not finished.
+   * Such a download is continued the next time the same URL is downloaded to the folder.
+   */
+  public static boolean hasUnfinishedDownload(File path)
+  {
+    State state = loadState(new File(path, STATE_FILE_NAME));
+    return state != null && !state.complete;
+  }
+
+  /**
+   * Cancel the current download by disconnecting from the url.
+   * Report cancelled status back to the listener if any.
+   * What has been downloaded so far is kept.
+   */
+  public void cancel()
+  {
+    synchronized (mConnections)
+    {
+      mIsCancelled = true;
+    }
+    closeConnections();
+  }
+
+  /**
+   * Get download status.
+   */
+  public boolean isRunning()
+  {
+    return mIsRunning;
   }
 
   /**
@@ -196,4 +721,4 @@ public class DownloadUtils implements Runnable
   {
     mDownloadPath = new File(path);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,137 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.dolphinemu.dolphinemu.NativeLibrary;
+import org.dolphinemu.dolphinemu.model.GameFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds data that is stored more than once in the library, such as what the regional releases
+ * or the discs of a game have in common, or a game that is in the library both before and after
+ * being converted.
+ *
+ * Only disc images whose game IDs start with the same three characters are compared with each
+ * other, since those are the ones that can be expected to have anything in common. This also
+ * keeps the memory needed for the comparison down to a few discs' worth of block hashes.
+ */
+public final class DuplicateDataReport
+{
+  public static final class Group
+  {
+    public final String title;
+    public final List<GameFile> games;
+
+    /**
+     * How much smaller the group would be if data that appears in more than one of its disc
+     * images was only stored once.
+     */
+    public final long duplicateBytes;
+
+    Group(String title, List<GameFile> games, long duplicateBytes)
+    {
+      this.title = title;
+      this.games = games;
+      this.duplicateBytes = duplicateBytes;
+    }
+  }
+
+  private DuplicateDataReport()
+  {
+  }
+
+  /**
+   * Reads every disc image that has something to be compared with. This takes a long time.
+   *
+   * @return The groups with duplicate data, most duplicate data first, or null if canceled
+   */
+  @Nullable @WorkerThread
+  public static List<Group> create(@NonNull List<GameFile> games,
+          @NonNull CompressCallback callback)
+  {
+    Map<String, List<GameFile>> candidates = new TreeMap<>();
+    for (GameFile game : games)
+    {
+      String gameId = game.getGameId();
+      if (!game.shouldAllowConversion() || gameId.length() < 4)
+        continue;
+
+      String key = gameId.substring(0, 3);
+      List<GameFile> group = candidates.get(key);
+      if (group == null)
+      {
+        group = new ArrayList<>();
+        candidates.put(key, group);
+      }
+      group.add(game);
+    }
+
+    long totalSize = 0;
+    ArrayList<List<GameFile>> groupsToCheck = new ArrayList<>();
+    for (List<GameFile> group : candidates.values())
+    {
+      if (group.size() < 2)
+        continue;
+
+      // The duplicate data is counted in the images that come later, so keep that stable
+      Collections.sort(group, Comparator.comparing(GameFile::getPath));
+      groupsToCheck.add(group);
+      for (GameFile game : group)
+        totalSize += game.getFileSize();
+    }
+
+    AtomicBoolean canceled = new AtomicBoolean(false);
+    ArrayList<Group> result = new ArrayList<>();
+    long sizeDone = 0;
+    for (List<GameFile> group : groupsToCheck)
+    {
+      String[] paths = new String[group.size()];
+      long groupSize = 0;
+      for (int i = 0; i < paths.length; i++)
+      {
+        paths[i] = group.get(i).getPath();
+        groupSize += group.get(i).getFileSize();
+      }
+
+      String title = group.get(0).getTitle();
+      float start = totalSize > 0 ? (float) sizeDone / totalSize : 0;
+      float share = totalSize > 0 ? (float) groupSize / totalSize : 0;
+      long[] duplicates = NativeLibrary.FindDuplicateData(paths, (text, completion) ->
+      {
+        boolean keepGoing = callback.run(title + "\n" + text, start + completion * share);
+        canceled.compareAndSet(false, !keepGoing);
+        return keepGoing;
+      });
+
+      if (canceled.get())
+        return null;
+
+      sizeDone += groupSize;
+      if (duplicates == null)
+      {
+        Log.warning("[DuplicateDataReport] Skipping " + title + " since it couldn't be read");
+        continue;
+      }
+
+      long duplicateBytes = 0;
+      for (long bytes : duplicates)
+        duplicateBytes += bytes;
+      if (duplicateBytes > 0)
+        result.add(new Group(title, group, duplicateBytes));
+    }
+
+    Collections.sort(result, (lhs, rhs) -> Long.compare(rhs.duplicateBytes, lhs.duplicateBytes));
+    return result;
+  }
+}
@@ -0,0 +1,89 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.utils;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.services.GameFileCacheManager;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps decoded game banners in memory so that they only have to be fetched from native code once.
+ *
+ * Banners are keyed by game path and the file modification time that the last library scan saw,
+ * so replacing a game file on disk invalidates its banner once the library has been rescanned.
+ * Pixels are transferred through one reusable direct buffer instead of a new int[] per banner.
+ */
+public final class GameBannerCache
+{
+  // Plenty for a few hundred banners of the usual 96x32 size
+  private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+  private static final LruCache<String, Bitmap> sBanners =
+          new LruCache<String, Bitmap>(MAX_CACHE_BYTES)
+          {
+            @Override
+            protected int sizeOf(String key, Bitmap value)
+            {
+              return value.getByteCount();
+            }
+          };
+
+  private static ByteBuffer sPixelBuffer;
+
+  private GameBannerCache()
+  {
+  }
+
+  /**
+   * Returns the banner of the game, or null if the game doesn't have one.
+   * The returned bitmap is shared and must not be modified or recycled.
+   */
+  @Nullable
+  public static Bitmap getBanner(@NonNull GameFile gameFile)
+  {
+    String key = getKey(gameFile.getPath());
+    Bitmap banner = sBanners.get(key);
+    if (banner == null)
+    {
+      banner = decodeBanner(gameFile);
+      if (banner != null)
+        sBanners.put(key, banner);
+    }
+    return banner;
+  }
+
+  @Nullable
+  private static synchronized Bitmap decodeBanner(@NonNull GameFile gameFile)
+  {
+    int width = gameFile.getBannerWidth();
+    int height = gameFile.getBannerHeight();
+    if (width <= 0 || height <= 0)
+      return null;
+
+    int size = width * height * 4;
+    if (sPixelBuffer == null || sPixelBuffer.capacity() < size)
+      sPixelBuffer = ByteBuffer.allocateDirect(size);
+
+    sPixelBuffer.clear();
+    if (!gameFile.getBannerPixels(sPixelBuffer))
+      return null;
+
+    sPixelBuffer.limit(size);
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    bitmap.copyPixelsFromBuffer(sPixelBuffer);
+    return bitmap;
+  }
+
+  @NonNull
+  private static String getKey(@NonNull String path)
+  {
+    return path + '@' + GameFileCacheManager.getScannedLastModified(path);
+  }
+}
@@ -10,6 +10,8 @@ import com.squareup.picasso.RequestHandler;
 
 import org.dolphinemu.dolphinemu.model.GameFile;
 
+import java.io.IOException;
+
 public class GameBannerRequestHandler extends RequestHandler
 {
   private final GameFile mGameFile;
@@ -26,13 +28,14 @@ public class GameBannerRequestHandler extends RequestHandler
   }
 
   @Override
-  public Result load(Request request, int networkPolicy)
+  public Result load(Request request, int networkPolicy) throws IOException
   {
-    int[] vector = mGameFile.getBanner();
-    int width = mGameFile.getBannerWidth();
-    int height = mGameFile.getBannerHeight();
-    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-    bitmap.setPixels(vector, 0, width, 0, 0, width, height);
-    return new Result(bitmap, Picasso.LoadedFrom.DISK);
+    Bitmap banner = GameBannerCache.getBanner(mGameFile);
+    if (banner == null)
+      throw new IOException("No banner for " + mGameFile.getPath());
+
+    // The cached bitmap is shared, so requests for banners must not have any transformations.
+    // Picasso recycles the bitmaps it transforms.
+    return new Result(banner, Picasso.LoadedFrom.MEMORY);
   }
 }
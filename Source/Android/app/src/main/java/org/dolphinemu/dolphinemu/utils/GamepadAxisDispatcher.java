@@ -0,0 +1,166 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.utils;
+
+import android.content.Context;
+import android.hardware.input.InputManager;
+import android.util.SparseArray;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.dolphinemu.dolphinemu.NativeLibrary;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forwards joystick axis values from MotionEvents to native code.
+ *
+ * The motion ranges of each device are looked up once and kept until the device changes or is
+ * removed. Axes whose value hasn't moved by more than {@link #AXIS_EPSILON} since it was last
+ * sent are skipped, and the rest of an event goes to native code in one call.
+ */
+public final class GamepadAxisDispatcher implements InputManager.InputDeviceListener
+{
+  // About one step of an 8-bit axis
+  private static final float AXIS_EPSILON = 1.0f / 256;
+
+  private static final class DeviceAxes
+  {
+    final String descriptor;
+    final int[] axes;
+    final float[] flats;
+    final boolean[] needsScaling;
+    final float[] lastValues;
+
+    // Packed (type, ID, value) tuples for NativeLibrary.onGamePadEvents
+    final float[] events;
+
+    DeviceAxes(InputDevice device)
+    {
+      descriptor = device.getDescriptor();
+
+      List<InputDevice.MotionRange> ranges = device.getMotionRanges();
+      axes = new int[ranges.size()];
+      flats = new float[ranges.size()];
+      needsScaling = new boolean[ranges.size()];
+      for (int i = 0; i < axes.length; i++)
+      {
+        InputDevice.MotionRange range = ranges.get(i);
+        axes[i] = range.getAxis();
+        flats[i] = range.getFlat();
+        needsScaling[i] = ControllerMappingHelper.needsAxisScaling(device, axes[i]);
+      }
+
+      lastValues = new float[axes.length];
+      Arrays.fill(lastValues, Float.NaN);
+
+      events = new float[axes.length * 3];
+    }
+  }
+
+  private final InputManager mInputManager;
+  private final SparseArray<DeviceAxes> mDevices = new SparseArray<>();
+
+  public GamepadAxisDispatcher(@NonNull Context context)
+  {
+    mInputManager = (InputManager) context.getSystemService(Context.INPUT_SERVICE);
+  }
+
+  /**
+   * Starts tracking device changes. Must be called on a thread with a Looper.
+   */
+  public void register()
+  {
+    mInputManager.registerInputDeviceListener(this, null);
+  }
+
+  public void unregister()
+  {
+    mInputManager.unregisterInputDeviceListener(this);
+
+    // Devices may change without us being notified from now on
+    mDevices.clear();
+  }
+
+  /**
+   * Sends the axis values of a joystick MotionEvent to native code.
+   */
+  public void dispatch(@NonNull MotionEvent event)
+  {
+    DeviceAxes device = getDeviceAxes(event.getDeviceId());
+    if (device == null)
+      return;
+
+    int count = 0;
+    for (int i = 0; i < device.axes.length; i++)
+    {
+      float value = event.getAxisValue(device.axes[i]);
+      if (device.needsScaling[i])
+        value = (value + 1) / 2.0f;
+
+      // If the input is still in the "flat" area, that means it's really zero.
+      // This is used to compensate for imprecision in joysticks.
+      if (Math.abs(value) <= device.flats[i])
+        value = 0.0f;
+
+      float lastValue = device.lastValues[i];
+      if (value == lastValue)
+        continue;
+
+      // Always send the resting and extreme positions exactly
+      if (Math.abs(value - lastValue) < AXIS_EPSILON && value != 0.0f && Math.abs(value) < 1.0f)
+        continue;
+
+      device.lastValues[i] = value;
+
+      int offset = count * 3;
+      device.events[offset] = NativeLibrary.INPUT_EVENT_AXIS;
+      device.events[offset + 1] = device.axes[i];
+      device.events[offset + 2] = value;
+      count++;
+    }
+
+    if (count > 0)
+      NativeLibrary.onGamePadEvents(device.descriptor, device.events, count);
+  }
+
+  @Nullable
+  private DeviceAxes getDeviceAxes(int deviceId)
+  {
+    DeviceAxes device = mDevices.get(deviceId);
+    if (device == null)
+    {
+      InputDevice inputDevice = InputDevice.getDevice(deviceId);
+      if (inputDevice == null)
+        return null;
+
+      device = new DeviceAxes(inputDevice);
+      mDevices.put(deviceId, device);
+    }
+    return device;
+  }
+
+  @Override
+  public void onInputDeviceAdded(int deviceId)
+  {
+    getDeviceAxes(deviceId);
+  }
+
+  @Override
+  public void onInputDeviceRemoved(int deviceId)
+  {
+    mDevices.remove(deviceId);
+  }
+
+  @Override
+  public void onInputDeviceChanged(int deviceId)
+  {
+    // Rebuilt on the next event. The new table starts without last values, so the next event
+    // sends every axis again.
+    mDevices.remove(deviceId);
+  }
+}
@@ -3,10 +3,19 @@
 package org.dolphinemu.dolphinemu.utils;
 
 import androidx.annotation.Keep;
+import androidx.annotation.Nullable;
 
 import java.io.File;
-
-// An in-memory copy of an INI file
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// An in-memory copy of an INI file.
+//
+// Changes made through this class are remembered so that they can be written to disk with
+// takeChanges and Changes.write without overwriting anything else that was written to the file
+// in the meantime.
 public class IniFile
 {
   // This class is non-static to ensure that the IniFile parent does not get garbage collected
@@ -17,6 +26,8 @@ public class IniFile
     @Keep
     private long mPointer;
 
+    private String mName;
+
     @Keep
     private Section(long pointer)
     {
@@ -25,7 +36,11 @@ public class IniFile
 
     public native boolean exists(String key);
 
-    public native boolean delete(String key);
+    public boolean delete(String key)
+    {
+      onKeyChanged(mName, key);
+      return deleteImpl(key);
+    }
 
     public native String getString(String key, String defaultValue);
 
@@ -35,18 +50,138 @@ public class IniFile
 
     public native float getFloat(String key, float defaultValue);
 
-    public native void setString(String key, String newValue);
+    public void setString(String key, String newValue)
+    {
+      onKeyChanged(mName, key);
+      setStringImpl(key, newValue);
+    }
+
+    public void setBoolean(String key, boolean newValue)
+    {
+      onKeyChanged(mName, key);
+      setBooleanImpl(key, newValue);
+    }
+
+    public void setInt(String key, int newValue)
+    {
+      onKeyChanged(mName, key);
+      setIntImpl(key, newValue);
+    }
+
+    public void setFloat(String key, float newFloat)
+    {
+      onKeyChanged(mName, key);
+      setFloatImpl(key, newFloat);
+    }
+
+    private native boolean deleteImpl(String key);
+
+    private native void setStringImpl(String key, String newValue);
+
+    private native void setBooleanImpl(String key, boolean newValue);
+
+    private native void setIntImpl(String key, int newValue);
+
+    private native void setFloatImpl(String key, float newFloat);
+  }
+
+  /**
+   * The changes made to an IniFile, detached from it so that they can be written on any thread.
+   */
+  public static final class Changes
+  {
+    private final IniFile mReplacement;
+    private final List<String> mDeletedSections;
+    private final List<String[]> mKeys;
 
-    public native void setBoolean(String key, boolean newValue);
+    private Changes(IniFile replacement, List<String> deletedSections, List<String[]> keys)
+    {
+      mReplacement = replacement;
+      mDeletedSections = deletedSections;
+      mKeys = keys;
+    }
 
-    public native void setInt(String key, int newValue);
+    /**
+     * Whether a key in the given section was changed, or the whole section or file was replaced.
+     */
+    public boolean affectsSection(String sectionName)
+    {
+      if (mReplacement != null)
+        return true;
+
+      for (String deletedSection : mDeletedSections)
+      {
+        if (deletedSection.equalsIgnoreCase(sectionName))
+          return true;
+      }
+
+      for (String[] key : mKeys)
+      {
+        if (key[0].equalsIgnoreCase(sectionName))
+          return true;
+      }
+      return false;
+    }
 
-    public native void setFloat(String key, float newFloat);
+    /**
+     * Applies the given changes to the file on disk in order, leaving all other keys the way
+     * they are there.
+     */
+    public static boolean write(String path, List<Changes> changesList)
+    {
+      // Changes made before the whole file was replaced don't matter
+      int first = 0;
+      IniFile ini = null;
+      for (int i = changesList.size() - 1; i >= 0; i--)
+      {
+        if (changesList.get(i).mReplacement != null)
+        {
+          first = i + 1;
+          ini = changesList.get(i).mReplacement;
+          break;
+        }
+      }
+
+      if (ini == null)
+      {
+        ini = new IniFile();
+
+        // A file that doesn't exist yet is written from scratch
+        ini.loadImpl(path, false);
+      }
+
+      for (Changes changes : changesList.subList(first, changesList.size()))
+      {
+        for (String sectionName : changes.mDeletedSections)
+          ini.deleteSectionImpl(sectionName);
+
+        for (String[] key : changes.mKeys)
+        {
+          if (key[2] == null)
+            ini.deleteKeyImpl(key[0], key[1]);
+          else
+            ini.setStringImpl(key[0], key[1], key[2]);
+        }
+      }
+
+      return ini.save(path);
+    }
   }
 
   @Keep
   private long mPointer;
 
+  // The path that the current contents were loaded from, if any
+  private String mLoadedPath;
+
+  // Set when the contents no longer come from mLoadedPath, so they have to be written whole
+  private boolean mReplaced;
+
+  private final List<String> mDeletedSections = new ArrayList<>();
+
+  // Section and key, in lower case, mapped to the section and key as they were last written
+  private final Map<String, String[]> mChangedKeys = new LinkedHashMap<>();
+
   public IniFile()
   {
     mPointer = newIniFile();
@@ -55,6 +190,7 @@ public class IniFile
   public IniFile(IniFile other)
   {
     mPointer = copyIniFile(other);
+    mReplaced = true;
   }
 
   public IniFile(String path)
@@ -69,7 +205,28 @@ public class IniFile
     load(file, false);
   }
 
-  public native boolean load(String path, boolean keepCurrentData);
+  public boolean load(String path, boolean keepCurrentData)
+  {
+    boolean result = loadImpl(path, keepCurrentData);
+
+    if (!keepCurrentData)
+    {
+      mLoadedPath = path;
+      mReplaced = false;
+      mDeletedSections.clear();
+      mChangedKeys.clear();
+    }
+    else if (mLoadedPath == null && !hasChanges())
+    {
+      mLoadedPath = path;
+    }
+    else if (!path.equals(mLoadedPath))
+    {
+      mReplaced = true;
+    }
+
+    return result;
+  }
 
   public boolean load(File file, boolean keepCurrentData)
   {
@@ -83,15 +240,42 @@ public class IniFile
     return save(file.getPath());
   }
 
-  public native Section getOrCreateSection(String sectionName);
+  /**
+   * Removes all sections. The next call to takeChanges returns the whole (empty) file.
+   * Sections that were gotten before calling this must not be used anymore.
+   */
+  public void clear()
+  {
+    clearImpl();
+    mReplaced = true;
+    mDeletedSections.clear();
+    mChangedKeys.clear();
+  }
+
+  public Section getOrCreateSection(String sectionName)
+  {
+    Section section = getOrCreateSectionImpl(sectionName);
+    section.mName = sectionName;
+    return section;
+  }
 
   public native boolean exists(String sectionName);
 
   public native boolean exists(String sectionName, String key);
 
-  public native boolean deleteSection(String sectionName);
+  public boolean deleteSection(String sectionName)
+  {
+    String prefix = sectionName.toLowerCase() + '\n';
+    mChangedKeys.keySet().removeIf(changedKey -> changedKey.startsWith(prefix));
+    mDeletedSections.add(sectionName);
+    return deleteSectionImpl(sectionName);
+  }
 
-  public native boolean deleteKey(String sectionName, String key);
+  public boolean deleteKey(String sectionName, String key)
+  {
+    onKeyChanged(sectionName, key);
+    return deleteKeyImpl(sectionName, key);
+  }
 
   public native String getString(String sectionName, String key, String defaultValue);
 
@@ -101,13 +285,104 @@ public class IniFile
 
   public native float getFloat(String sectionName, String key, float defaultValue);
 
-  public native void setString(String sectionName, String key, String newValue);
+  public void setString(String sectionName, String key, String newValue)
+  {
+    onKeyChanged(sectionName, key);
+    setStringImpl(sectionName, key, newValue);
+  }
+
+  public void setBoolean(String sectionName, String key, boolean newValue)
+  {
+    onKeyChanged(sectionName, key);
+    setBooleanImpl(sectionName, key, newValue);
+  }
+
+  public void setInt(String sectionName, String key, int newValue)
+  {
+    onKeyChanged(sectionName, key);
+    setIntImpl(sectionName, key, newValue);
+  }
+
+  public void setFloat(String sectionName, String key, float newValue)
+  {
+    onKeyChanged(sectionName, key);
+    setFloatImpl(sectionName, key, newValue);
+  }
+
+  /**
+   * Whether anything was changed since the file was loaded or the changes were last taken.
+   */
+  public boolean hasChanges()
+  {
+    return mReplaced || !mDeletedSections.isEmpty() || !mChangedKeys.isEmpty();
+  }
+
+  /**
+   * Returns the changes made to this object since it was loaded or this method was last called,
+   * or null if there are none. Must be called on the thread that makes the changes.
+   *
+   * @param path The file that the changes are going to be written to. If it isn't the file that
+   *             was loaded, the whole contents have to be written.
+   */
+  @Nullable
+  public Changes takeChanges(String path)
+  {
+    if (!hasChanges())
+      return null;
+
+    Changes changes;
+    if (mReplaced || !path.equals(mLoadedPath))
+    {
+      changes = new Changes(new IniFile(this), null, null);
+    }
+    else
+    {
+      List<String[]> keys = new ArrayList<>(mChangedKeys.size());
+      for (String[] key : mChangedKeys.values())
+      {
+        String value = exists(key[0], key[1]) ? getString(key[0], key[1], "") : null;
+        keys.add(new String[]{key[0], key[1], value});
+      }
+      changes = new Changes(null, new ArrayList<>(mDeletedSections), keys);
+    }
+
+    mLoadedPath = path;
+    mReplaced = false;
+    mDeletedSections.clear();
+    mChangedKeys.clear();
+    return changes;
+  }
+
+  @Nullable
+  public Changes takeChanges(File file)
+  {
+    return takeChanges(file.getPath());
+  }
+
+  private void onKeyChanged(String sectionName, String key)
+  {
+    // Like in native code, section names and keys are case-insensitive
+    mChangedKeys.put(sectionName.toLowerCase() + '\n' + key.toLowerCase(),
+            new String[]{sectionName, key});
+  }
+
+  private native boolean loadImpl(String path, boolean keepCurrentData);
+
+  private native void clearImpl();
+
+  private native Section getOrCreateSectionImpl(String sectionName);
+
+  private native boolean deleteSectionImpl(String sectionName);
+
+  private native boolean deleteKeyImpl(String sectionName, String key);
+
+  private native void setStringImpl(String sectionName, String key, String newValue);
 
-  public native void setBoolean(String sectionName, String key, boolean newValue);
+  private native void setBooleanImpl(String sectionName, String key, boolean newValue);
 
-  public native void setInt(String sectionName, String key, int newValue);
+  private native void setIntImpl(String sectionName, String key, int newValue);
 
-  public native void setFloat(String sectionName, String key, float newValue);
+  private native void setFloatImpl(String sectionName, String key, float newValue);
 
   @Override
   public native void finalize();
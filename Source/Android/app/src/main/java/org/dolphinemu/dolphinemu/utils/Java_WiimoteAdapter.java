@@ -12,15 +12,17 @@ import android.hardware.usb.UsbEndpoint;
 import android.hardware.usb.UsbInterface;
 import android.hardware.usb.UsbManager;
 import android.os.Build;
+import android.os.SystemClock;
 
 import androidx.annotation.Keep;
 
 import org.dolphinemu.dolphinemu.DolphinApplication;
 import org.dolphinemu.dolphinemu.services.USBPermService;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Java_WiimoteAdapter
 {
@@ -29,6 +31,24 @@ public class Java_WiimoteAdapter
   final static int TIMEOUT = 200;
   final static short NINTENDO_VENDOR_ID = 0x057e;
   final static short NINTENDO_WIIMOTE_PRODUCT_ID = 0x0306;
+
+  // Output reports are queued and sent by a writer thread per Wii Remote, and input reports are
+  // read ahead by a reader thread per Wii Remote, so that Input and Output never wait on USB.
+  final static int INPUT_QUEUE_SIZE = 32;
+  final static int OUTPUT_QUEUE_SIZE = 64;
+  final static int OUTPUT_TIMEOUT = 1000;
+  // How long Output waits for room in a full output queue before treating the write as failed
+  final static int OUTPUT_QUEUE_TIMEOUT = 1000;
+
+  // Output report IDs which only set state. When several of them are queued back to back,
+  // only the last one needs to be sent.
+  final static int REPORT_RUMBLE = 0x10;
+  final static int REPORT_LEDS = 0x11;
+  // Speaker data is the only report that is dropped rather than waited for when queues are full
+  final static int REPORT_SPEAKER_DATA = 0x18;
+  // Set in the first data byte of a report that the Wii Remote has to acknowledge
+  final static int REPORT_ACK_BIT = 0x02;
+
   public static UsbManager manager;
 
   static UsbDeviceConnection usb_con;
@@ -38,6 +58,31 @@ public class Java_WiimoteAdapter
   @Keep
   public static byte[][] wiimote_payload = new byte[MAX_WIIMOTES][MAX_PAYLOAD];
 
+  static final WiimoteReportRing[] input_queue = new WiimoteReportRing[MAX_WIIMOTES];
+  static final WiimoteReportRing[] output_queue = new WiimoteReportRing[MAX_WIIMOTES];
+  static final AtomicLong[] dropped_input_reports = new AtomicLong[MAX_WIIMOTES];
+  static final AtomicLong[] dropped_output_reports = new AtomicLong[MAX_WIIMOTES];
+  static final AtomicLong[] coalesced_output_reports = new AtomicLong[MAX_WIIMOTES];
+  static final boolean[] output_failed = new boolean[MAX_WIIMOTES];
+
+  // The IO threads of each slot run while its Wii Remote is connected. Guarded by the class.
+  static final Thread[] reader_threads = new Thread[MAX_WIIMOTES];
+  static final Thread[] writer_threads = new Thread[MAX_WIIMOTES];
+  static final AtomicBoolean[] io_running = new AtomicBoolean[MAX_WIIMOTES];
+
+  static
+  {
+    for (int i = 0; i < MAX_WIIMOTES; ++i)
+    {
+      input_queue[i] = new WiimoteReportRing(INPUT_QUEUE_SIZE, MAX_PAYLOAD);
+      output_queue[i] = new WiimoteReportRing(OUTPUT_QUEUE_SIZE, MAX_PAYLOAD + 1);
+      dropped_input_reports[i] = new AtomicLong();
+      dropped_output_reports[i] = new AtomicLong();
+      coalesced_output_reports[i] = new AtomicLong();
+      io_running[i] = new AtomicBoolean();
+    }
+  }
+
   private static void RequestPermission()
   {
     HashMap<String, UsbDevice> devices = manager.getDeviceList();
@@ -83,19 +128,267 @@ public class Java_WiimoteAdapter
     return false;
   }
 
+  /**
+   * Copies the oldest input report read ahead for the given Wii Remote into wiimote_payload,
+   * waiting up to TIMEOUT for one to arrive if there is none.
+   *
+   * @return the size of the report, or -1 if no report arrived
+   */
   @Keep
   public static int Input(int index)
   {
-    return usb_con.bulkTransfer(usb_in[index], wiimote_payload[index], MAX_PAYLOAD, TIMEOUT);
+    return input_queue[index].poll(wiimote_payload[index], TIMEOUT);
   }
 
+  /**
+   * Makes a pending call to Input return early, so that the caller can send queued output.
+   */
+  @Keep
+  public static void Wakeup(int index)
+  {
+    input_queue[index].wakeConsumer();
+  }
+
+  /**
+   * Queues an output report for the writer thread of the given Wii Remote. If the queue is full,
+   * waits up to OUTPUT_QUEUE_TIMEOUT for the writer thread to make room.
+   *
+   * @return size if the report was queued or dropped, or 0 if a previous write failed, the slot
+   * was closed or the report couldn't be queued in time
+   */
   @Keep
   public static int Output(int index, byte[] buf, int size)
+  {
+    if (takeOutputFailure(index))
+      return 0;
+
+    WiimoteReportRing queue = output_queue[index];
+    long deadline = SystemClock.uptimeMillis() + OUTPUT_QUEUE_TIMEOUT;
+    while (!queue.tryOffer(buf, 0, size))
+    {
+      if (size > 1 && (buf[1] & 0xFF) == REPORT_SPEAKER_DATA)
+      {
+        dropped_output_reports[index].incrementAndGet();
+        break;
+      }
+
+      long remaining = deadline - SystemClock.uptimeMillis();
+      if (remaining <= 0 || !io_running[index].get() || takeOutputFailure(index))
+      {
+        dropped_output_reports[index].incrementAndGet();
+        return 0;
+      }
+      queue.awaitRoom(remaining);
+    }
+
+    return size;
+  }
+
+  private static boolean takeOutputFailure(int index)
+  {
+    synchronized (output_failed)
+    {
+      if (!output_failed[index])
+        return false;
+
+      output_failed[index] = false;
+      return true;
+    }
+  }
+
+  public static int getOutputQueueDepth(int index)
+  {
+    return output_queue[index].size();
+  }
+
+  public static int getInputQueueDepth(int index)
+  {
+    return input_queue[index].size();
+  }
+
+  public static long getDroppedOutputReports(int index)
+  {
+    return dropped_output_reports[index].get();
+  }
+
+  public static long getDroppedInputReports(int index)
+  {
+    return dropped_input_reports[index].get();
+  }
+
+  public static long getCoalescedOutputReports(int index)
+  {
+    return coalesced_output_reports[index].get();
+  }
+
+  /**
+   * Starts the IO threads of a slot, opening the adapter first if it was closed.
+   *
+   * @return false if the adapter couldn't be opened
+   */
+  @Keep
+  public static synchronized boolean OpenSlot(int index)
+  {
+    if (io_running[index].get())
+      return true;
+
+    if (!OpenAdapter())
+      return false;
+
+    // Whatever is left over from the last connection is stale
+    input_queue[index].clear();
+    output_queue[index].clear();
+    synchronized (output_failed)
+    {
+      output_failed[index] = false;
+    }
+
+    io_running[index].set(true);
+
+    Thread reader = new Thread(() -> readReports(index), "Wii Remote Reader " + index);
+    reader.setDaemon(true);
+    reader.setPriority(Thread.MAX_PRIORITY);
+    reader.start();
+    reader_threads[index] = reader;
+
+    Thread writer = new Thread(() -> writeReports(index), "Wii Remote Writer " + index);
+    writer.setDaemon(true);
+    writer.start();
+    writer_threads[index] = writer;
+
+    return true;
+  }
+
+  /**
+   * Stops the IO threads of a slot and waits for them to exit. The adapter is closed once no
+   * slot is open anymore.
+   */
+  @Keep
+  public static synchronized void CloseSlot(int index)
+  {
+    if (!io_running[index].getAndSet(false))
+      return;
+
+    output_queue[index].wakeConsumer();
+    output_queue[index].wakeProducer();
+    joinThread(reader_threads[index]);
+    joinThread(writer_threads[index]);
+    reader_threads[index] = null;
+    writer_threads[index] = null;
+
+    for (AtomicBoolean running : io_running)
+    {
+      if (running.get())
+        return;
+    }
+    CloseAdapter();
+  }
+
+  private static void joinThread(Thread thread)
+  {
+    boolean interrupted = false;
+    while (true)
+    {
+      try
+      {
+        thread.join();
+        break;
+      }
+      catch (InterruptedException e)
+      {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted)
+      Thread.currentThread().interrupt();
+  }
+
+  private static void CloseAdapter()
+  {
+    if (usb_con == null)
+      return;
+
+    for (int i = 0; i < MAX_WIIMOTES; ++i)
+    {
+      if (usb_intf[i] != null)
+        usb_con.releaseInterface(usb_intf[i]);
+      usb_intf[i] = null;
+      usb_in[i] = null;
+    }
+    usb_con.close();
+    usb_con = null;
+  }
+
+  private static void readReports(int index)
+  {
+    byte[] report = new byte[MAX_PAYLOAD];
+    while (io_running[index].get())
+    {
+      // Times out after TIMEOUT, so the thread notices when it's stopped
+      int read = usb_con.bulkTransfer(usb_in[index], report, MAX_PAYLOAD, TIMEOUT);
+      if (read > 0)
+      {
+        if (!input_queue[index].offer(report, 0, read))
+          dropped_input_reports[index].incrementAndGet();
+      }
+      else
+      {
+        // Timeouts have already waited, but errors return immediately. Don't spin on those.
+        SystemClock.sleep(1);
+      }
+    }
+  }
+
+  private static void writeReports(int index)
+  {
+    WiimoteReportRing queue = output_queue[index];
+    byte[] report = new byte[MAX_PAYLOAD + 1];
+    while (io_running[index].get())
+    {
+      int size = queue.poll(report, OUTPUT_TIMEOUT);
+      if (size < 0)
+        continue;
+
+      // Send everything that is queued in one go, skipping state reports that
+      // are immediately superseded by a report of the same type.
+      while (canCoalesce(report, size) && queue.peek(1) == (report[1] & 0xFF))
+      {
+        size = queue.poll(report);
+        coalesced_output_reports[index].incrementAndGet();
+      }
+
+      if (sendReport(index, report, size) == 0)
+      {
+        synchronized (output_failed)
+        {
+          output_failed[index] = true;
+        }
+        queue.wakeProducer();
+      }
+    }
+  }
+
+  /**
+   * Whether the report may be skipped in favor of a later report of the same type. Reports that
+   * ask for an acknowledgement have to be sent, since the core waits for their ack.
+   */
+  private static boolean canCoalesce(byte[] report, int size)
+  {
+    return size > 2 && isStateReport(report[1] & 0xFF) && (report[2] & REPORT_ACK_BIT) == 0;
+  }
+
+  private static boolean isStateReport(int reportId)
+  {
+    return reportId == REPORT_RUMBLE || reportId == REPORT_LEDS;
+  }
+
+  private static int sendReport(int index, byte[] buf, int size)
   {
     byte report_number = buf[0];
 
-    // Remove the report number from the buffer
-    buf = Arrays.copyOfRange(buf, 1, buf.length);
+    // Skip the report number in the buffer
+    final int offset = 1;
     size--;
 
     final int LIBUSB_REQUEST_TYPE_CLASS = (1 << 5);
@@ -110,7 +403,7 @@ public class Java_WiimoteAdapter
             HID_SET_REPORT,
             HID_OUTPUT | report_number,
             index,
-            buf, size,
+            buf, offset, size,
             1000);
 
     if (write < 0)
@@ -120,7 +413,7 @@ public class Java_WiimoteAdapter
   }
 
   @Keep
-  public static boolean OpenAdapter()
+  public static synchronized boolean OpenAdapter()
   {
     // If the adapter is already open. Don't attempt to do it again
     if (usb_con != null && usb_con.getFileDescriptor() != -1)
@@ -8,29 +8,76 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.view.Surface;
 
 import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.NativeLibrary.ButtonType;
 
-public class MotionListener implements SensorEventListener
+/**
+ * Passes accelerometer and gyroscope data to the emulated Wii Remote.
+ *
+ * The latest reading of each sensor is combined into one sample, and samples are sent to native
+ * code at most at the Wii Remote report rate, however fast the sensors deliver readings.
+ */
+public class MotionListener implements SensorEventListener, DisplayManager.DisplayListener
 {
   private final Activity mActivity;
   private final SensorManager mSensorManager;
+  private final DisplayManager mDisplayManager;
   private final Sensor mAccelSensor;
   private final Sensor mGyroSensor;
 
   private boolean mEnabled = false;
+  private HandlerThread mSensorThread;
 
   // The same sampling period as for Wii Remotes
   private static final int SAMPLING_PERIOD_US = 1000000 / 200;
+  private static final long SAMPLING_PERIOD_NS = SAMPLING_PERIOD_US * 1000L;
+
+  // Sensor timestamps jitter, so accept readings that arrive a little early
+  private static final long SAMPLING_TOLERANCE_NS = SAMPLING_PERIOD_NS / 4;
+
+  private static final int[] ACCEL_AXES = {
+          ButtonType.WIIMOTE_ACCEL_LEFT, ButtonType.WIIMOTE_ACCEL_RIGHT,
+          ButtonType.WIIMOTE_ACCEL_FORWARD, ButtonType.WIIMOTE_ACCEL_BACKWARD,
+          ButtonType.WIIMOTE_ACCEL_UP, ButtonType.WIIMOTE_ACCEL_DOWN};
+  private static final int[] GYRO_AXES = {
+          ButtonType.WIIMOTE_GYRO_PITCH_UP, ButtonType.WIIMOTE_GYRO_PITCH_DOWN,
+          ButtonType.WIIMOTE_GYRO_ROLL_LEFT, ButtonType.WIIMOTE_GYRO_ROLL_RIGHT,
+          ButtonType.WIIMOTE_GYRO_YAW_LEFT, ButtonType.WIIMOTE_GYRO_YAW_RIGHT};
+
+  // Only updated from the display listener, but read on the sensor thread
+  private volatile int mRotation;
+
+  // Everything below is only accessed on the sensor thread.
+
+  // Packed (type, ID, value) tuples for NativeLibrary.onGamePadEvents
+  private final float[] mSample = new float[(ACCEL_AXES.length + GYRO_AXES.length) * 3];
+  private long mNextSampleTimestamp = 0;
 
   public MotionListener(Activity activity)
   {
     mActivity = activity;
     mSensorManager = (SensorManager) activity.getSystemService(Context.SENSOR_SERVICE);
+    mDisplayManager = (DisplayManager) activity.getSystemService(Context.DISPLAY_SERVICE);
     mAccelSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
     mGyroSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+
+    int offset = 0;
+    for (int axis : ACCEL_AXES)
+      offset = initSampleAxis(offset, axis);
+    for (int axis : GYRO_AXES)
+      offset = initSampleAxis(offset, axis);
+  }
+
+  private int initSampleAxis(int offset, int axis)
+  {
+    mSample[offset] = NativeLibrary.INPUT_EVENT_AXIS;
+    mSample[offset + 1] = axis;
+    return offset + 3;
   }
 
   @Override
@@ -38,8 +85,7 @@ public class MotionListener implements SensorEventListener
   {
     float x, y;
     float z = sensorEvent.values[2];
-    int orientation = mActivity.getWindowManager().getDefaultDisplay().getRotation();
-    switch (orientation)
+    switch (mRotation)
     {
       default:
       case Surface.ROTATION_0:
@@ -62,35 +108,43 @@ public class MotionListener implements SensorEventListener
 
     if (sensorEvent.sensor == mAccelSensor)
     {
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_ACCEL_LEFT, x);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_ACCEL_RIGHT, x);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_ACCEL_FORWARD, y);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_ACCEL_BACKWARD, y);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_ACCEL_UP, z);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_ACCEL_DOWN, z);
+      setSampleValues(0, x, y, z);
     }
-
-    if (sensorEvent.sensor == mGyroSensor)
+    else if (sensorEvent.sensor == mGyroSensor)
     {
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_GYRO_PITCH_UP, x);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_GYRO_PITCH_DOWN, x);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_GYRO_ROLL_LEFT, y);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_GYRO_ROLL_RIGHT, y);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_GYRO_YAW_LEFT, z);
-      NativeLibrary.onGamePadMoveEvent(NativeLibrary.TouchScreenDevice,
-              ButtonType.WIIMOTE_GYRO_YAW_RIGHT, z);
+      setSampleValues(ACCEL_AXES.length, x, y, z);
     }
+    else
+    {
+      return;
+    }
+
+    long timestamp = sensorEvent.timestamp;
+    if (timestamp < mNextSampleTimestamp - SAMPLING_TOLERANCE_NS)
+      return;
+
+    // Stay on a fixed grid so that early readings don't lower the rate,
+    // but don't try to catch up after the sensors have been quiet for a while
+    mNextSampleTimestamp += SAMPLING_PERIOD_NS;
+    if (mNextSampleTimestamp < timestamp)
+      mNextSampleTimestamp = timestamp + SAMPLING_PERIOD_NS;
+
+    submitSample();
+  }
+
+  private void setSampleValues(int firstAxis, float x, float y, float z)
+  {
+    int offset = firstAxis * 3 + 2;
+    mSample[offset] = mSample[offset + 3] = x;
+    mSample[offset + 6] = mSample[offset + 9] = y;
+    mSample[offset + 12] = mSample[offset + 15] = z;
+  }
+
+  private void submitSample()
+  {
+    // Axes of a missing sensor stay at 0, which is also what native code starts out with
+    NativeLibrary.onGamePadEvents(NativeLibrary.TouchScreenDevice, mSample,
+            ACCEL_AXES.length + GYRO_AXES.length);
   }
 
   @Override
@@ -99,15 +153,43 @@ public class MotionListener implements SensorEventListener
     // We don't care about this
   }
 
+  @Override
+  public void onDisplayAdded(int displayId)
+  {
+  }
+
+  @Override
+  public void onDisplayRemoved(int displayId)
+  {
+  }
+
+  @Override
+  public void onDisplayChanged(int displayId)
+  {
+    updateRotation();
+  }
+
+  private void updateRotation()
+  {
+    mRotation = mActivity.getWindowManager().getDefaultDisplay().getRotation();
+  }
+
   public void enable()
   {
     if (mEnabled)
       return;
 
+    updateRotation();
+    mDisplayManager.registerDisplayListener(this, null);
+
+    mSensorThread = new HandlerThread("MotionListener");
+    mSensorThread.start();
+    Handler handler = new Handler(mSensorThread.getLooper());
+
     if (mAccelSensor != null)
-      mSensorManager.registerListener(this, mAccelSensor, SAMPLING_PERIOD_US);
+      mSensorManager.registerListener(this, mAccelSensor, SAMPLING_PERIOD_US, handler);
     if (mGyroSensor != null)
-      mSensorManager.registerListener(this, mGyroSensor, SAMPLING_PERIOD_US);
+      mSensorManager.registerListener(this, mGyroSensor, SAMPLING_PERIOD_US, handler);
 
     NativeLibrary.SetMotionSensorsEnabled(mAccelSensor != null, mGyroSensor != null);
 
@@ -120,6 +202,11 @@ public class MotionListener implements SensorEventListener
       return;
 
     mSensorManager.unregisterListener(this);
+    mDisplayManager.unregisterDisplayListener(this);
+
+    // Lets already queued sensor events finish before the thread exits
+    mSensorThread.quitSafely();
+    mSensorThread = null;
 
     NativeLibrary.SetMotionSensorsEnabled(false, false);
 
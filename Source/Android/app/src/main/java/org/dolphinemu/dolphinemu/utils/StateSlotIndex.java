@@ -0,0 +1,337 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.dolphinemu.dolphinemu.NativeLibrary;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps track of the savestate slots of a game: when each state was saved, how big it is, and a
+ * small picture of what was on screen at the time.
+ *
+ * The index is stored next to the states as "[game ID].slots.json" and is checked against the
+ * state files whenever it's loaded, so states that were saved or deleted some other way still
+ * show up correctly, just without a thumbnail. All file access happens on a background thread.
+ */
+public final class StateSlotIndex
+{
+  public static final int QUICK_SAVE_SLOT = 9;
+
+  public static final int THUMBNAIL_WIDTH = 256;
+  private static final int THUMBNAIL_QUALITY = 85;
+
+  // A slot is recorded when the state is requested, but the file is written a little later in
+  // the background. Within this time, a missing or newer file still belongs to the recorded save.
+  private static final long PENDING_WRITE_MS = 60 * 1000;
+
+  // File systems that store modification times in whole seconds round them down
+  private static final long TIME_GRANULARITY_MS = 2000;
+
+  private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+  private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+  public interface Callback
+  {
+    void onLoaded(SparseArray<Slot> slots);
+  }
+
+  public static final class Slot
+  {
+    public final int number;
+    public final long time;
+    public final long size;
+    @Nullable public final File thumbnail;
+
+    public Slot(int number, long time, long size, @Nullable File thumbnail)
+    {
+      this.number = number;
+      this.time = time;
+      this.size = size;
+      this.thumbnail = thumbnail;
+    }
+  }
+
+  private static final class Entry
+  {
+    long time;
+    // Both are 0 until the state file has been seen on disk
+    long size;
+    long modified;
+    boolean hasThumbnail;
+  }
+
+  private StateSlotIndex()
+  {
+  }
+
+  /**
+   * Reads the slots of the given game and passes them to the callback on the main thread.
+   * Empty slots are left out.
+   */
+  public static void load(@NonNull String gameId, @NonNull Callback callback)
+  {
+    String directory = getStateDirectory();
+    sExecutor.execute(() ->
+    {
+      SparseArray<Entry> entries = readIndex(directory, gameId);
+      if (reconcile(directory, gameId, entries))
+        writeIndex(directory, gameId, entries);
+
+      SparseArray<Slot> slots = new SparseArray<>(entries.size());
+      for (int i = 0; i < entries.size(); i++)
+      {
+        int number = entries.keyAt(i);
+        Entry entry = entries.valueAt(i);
+        File thumbnail = entry.hasThumbnail ? getThumbnailFile(directory, gameId, number) : null;
+        slots.put(number, new Slot(number, entry.time, entry.size, thumbnail));
+      }
+
+      sMainHandler.post(() -> callback.onLoaded(slots));
+    });
+  }
+
+  /**
+   * Records that a state is being saved to the given slot, replacing any previous thumbnail.
+   * The index takes ownership of the thumbnail and recycles it once it has been written.
+   */
+  public static void recordSave(@NonNull String gameId, int slot, @Nullable Bitmap thumbnail)
+  {
+    String directory = getStateDirectory();
+    long time = System.currentTimeMillis();
+    sExecutor.execute(() ->
+    {
+      boolean hasThumbnail = false;
+      File thumbnailFile = getThumbnailFile(directory, gameId, slot);
+      if (thumbnail != null)
+      {
+        hasThumbnail = writeThumbnail(thumbnail, thumbnailFile);
+        thumbnail.recycle();
+      }
+      if (!hasThumbnail)
+        thumbnailFile.delete();
+
+      SparseArray<Entry> entries = readIndex(directory, gameId);
+      Entry entry = new Entry();
+      entry.time = time;
+      entry.hasThumbnail = hasThumbnail;
+      entries.put(slot, entry);
+      writeIndex(directory, gameId, entries);
+    });
+  }
+
+  /**
+   * Brings the index up to date with the state files on disk. Returns whether anything changed.
+   */
+  private static boolean reconcile(String directory, String gameId, SparseArray<Entry> entries)
+  {
+    boolean changed = false;
+    SparseArray<File> stateFiles = findStateFiles(directory, gameId);
+    long now = System.currentTimeMillis();
+
+    for (int i = entries.size() - 1; i >= 0; i--)
+    {
+      int slot = entries.keyAt(i);
+      Entry entry = entries.valueAt(i);
+      File stateFile = stateFiles.get(slot);
+      boolean pending = entry.modified == 0;
+
+      if (stateFile == null)
+      {
+        if (pending && now - entry.time < PENDING_WRITE_MS)
+          continue;
+
+        getThumbnailFile(directory, gameId, slot).delete();
+        entries.removeAt(i);
+        changed = true;
+        continue;
+      }
+
+      long size = stateFile.length();
+      long modified = stateFile.lastModified();
+      if (entry.size == size && entry.modified == modified)
+        continue;
+
+      boolean sameSave = pending && modified >= entry.time - TIME_GRANULARITY_MS &&
+              modified < entry.time + PENDING_WRITE_MS;
+      if (!sameSave)
+      {
+        // Saved without going through the index, so the thumbnail shows something else
+        if (entry.hasThumbnail)
+          getThumbnailFile(directory, gameId, slot).delete();
+        entry.time = modified;
+        entry.hasThumbnail = false;
+      }
+      entry.size = size;
+      entry.modified = modified;
+      changed = true;
+    }
+
+    for (int i = 0; i < stateFiles.size(); i++)
+    {
+      int slot = stateFiles.keyAt(i);
+      if (entries.get(slot) != null)
+        continue;
+
+      File stateFile = stateFiles.valueAt(i);
+      Entry entry = new Entry();
+      entry.time = stateFile.lastModified();
+      entry.size = stateFile.length();
+      entry.modified = entry.time;
+      entries.put(slot, entry);
+      changed = true;
+    }
+
+    return changed;
+  }
+
+  private static SparseArray<File> findStateFiles(String directory, String gameId)
+  {
+    SparseArray<File> stateFiles = new SparseArray<>();
+    File[] files = new File(directory).listFiles();
+    if (files == null)
+      return stateFiles;
+
+    // Matches the names that MakeStateFilename in Core/State.cpp creates
+    String prefix = gameId + ".s";
+    for (File file : files)
+    {
+      String name = file.getName();
+      if (!name.startsWith(prefix) || name.length() - prefix.length() < 2 || !file.isFile())
+        continue;
+
+      String number = name.substring(prefix.length());
+      boolean digitsOnly = true;
+      for (int i = 0; i < number.length(); i++)
+        digitsOnly &= Character.isDigit(number.charAt(i));
+
+      if (digitsOnly && number.length() < 10)
+        stateFiles.put(Integer.parseInt(number), file);
+    }
+    return stateFiles;
+  }
+
+  private static SparseArray<Entry> readIndex(String directory, String gameId)
+  {
+    SparseArray<Entry> entries = new SparseArray<>();
+    File indexFile = getIndexFile(directory, gameId);
+    if (!indexFile.exists())
+      return entries;
+
+    StringBuilder json = new StringBuilder();
+    try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8)))
+    {
+      char[] buffer = new char[4096];
+      int read;
+      while ((read = reader.read(buffer)) != -1)
+        json.append(buffer, 0, read);
+
+      JSONArray slots = new JSONObject(json.toString()).getJSONArray("slots");
+      for (int i = 0; i < slots.length(); i++)
+      {
+        JSONObject slot = slots.getJSONObject(i);
+        Entry entry = new Entry();
+        entry.time = slot.getLong("time");
+        entry.size = slot.optLong("size");
+        entry.modified = slot.optLong("modified");
+        entry.hasThumbnail = slot.optBoolean("thumbnail");
+        entries.put(slot.getInt("slot"), entry);
+      }
+    }
+    catch (IOException | JSONException e)
+    {
+      // Rebuilt from the state files by reconcile
+      Log.warning("[StateSlotIndex] Failed to read " + indexFile + ": " + e.getMessage());
+      entries.clear();
+    }
+    return entries;
+  }
+
+  private static void writeIndex(String directory, String gameId, SparseArray<Entry> entries)
+  {
+    File indexFile = getIndexFile(directory, gameId);
+    File tempFile = new File(indexFile.getPath() + ".tmp");
+    try
+    {
+      JSONArray slots = new JSONArray();
+      for (int i = 0; i < entries.size(); i++)
+      {
+        Entry entry = entries.valueAt(i);
+        JSONObject slot = new JSONObject();
+        slot.put("slot", entries.keyAt(i));
+        slot.put("time", entry.time);
+        slot.put("size", entry.size);
+        slot.put("modified", entry.modified);
+        slot.put("thumbnail", entry.hasThumbnail);
+        slots.put(slot);
+      }
+
+      indexFile.getParentFile().mkdirs();
+      try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile),
+              StandardCharsets.UTF_8))
+      {
+        writer.write(new JSONObject().put("slots", slots).toString());
+      }
+
+      if (!tempFile.renameTo(indexFile))
+        throw new IOException("Failed to rename " + tempFile);
+    }
+    catch (IOException | JSONException e)
+    {
+      Log.error("[StateSlotIndex] Failed to write " + indexFile + ": " + e.getMessage());
+      tempFile.delete();
+    }
+  }
+
+  private static boolean writeThumbnail(Bitmap thumbnail, File file)
+  {
+    file.getParentFile().mkdirs();
+    try (FileOutputStream out = new FileOutputStream(file))
+    {
+      return thumbnail.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out);
+    }
+    catch (IOException e)
+    {
+      Log.error("[StateSlotIndex] Failed to write " + file + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  private static String getStateDirectory()
+  {
+    return NativeLibrary.GetUserDirectory() + File.separator + "StateSaves";
+  }
+
+  private static File getIndexFile(String directory, String gameId)
+  {
+    return new File(directory, gameId + ".slots.json");
+  }
+
+  private static File getThumbnailFile(String directory, String gameId, int slot)
+  {
+    return new File(directory, String.format(Locale.US, "%s.s%02d.jpg", gameId, slot));
+  }
+}
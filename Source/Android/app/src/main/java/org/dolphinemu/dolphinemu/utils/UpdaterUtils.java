@@ -10,7 +10,9 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
 
+import com.android.volley.NetworkResponse;
 import com.android.volley.Request;
+import com.android.volley.Response;
 import com.android.volley.toolbox.JsonArrayRequest;
 import com.android.volley.toolbox.JsonObjectRequest;
 
@@ -20,6 +22,10 @@ import org.dolphinemu.dolphinemu.dialogs.UpdaterDialog;
 import org.dolphinemu.dolphinemu.features.settings.model.BooleanSetting;
 import org.dolphinemu.dolphinemu.features.settings.model.StringSetting;
 import org.dolphinemu.dolphinemu.features.settings.model.Settings;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class UpdaterUtils
 {
@@ -27,6 +33,12 @@ public class UpdaterUtils
           "https://api.github.com/repos/Bankaimaster999/Dolphin-MMJR/releases"; // for old release check.
   public static final String LATEST = "/latest"; // for latest release check.
 
+  // GitHub only lets its responses be cached for a minute, but releases don't come that often.
+  private static final long RELEASES_MAX_AGE_MS = 60 * 60 * 1000;
+  // When checking at startup, an old answer right away beats waiting for the network.
+  // The answer is revalidated in the background, and a newer release still gets shown.
+  private static final long LATEST_RELEASE_MAX_STALE_MS = 7 * 24 * 60 * 60 * 1000L;
+
   public static void openUpdaterWindow(Context context, UpdaterData data)
   {
     FragmentManager fm = ((FragmentActivity) context).getSupportFragmentManager();
@@ -39,7 +51,7 @@ public class UpdaterUtils
   {
     new AfterDirectoryInitializationRunner().run(context, false, () ->
     {
-      cleanDownloadFolder(context);
+      new Thread(() -> cleanDownloadFolder(context), "cleanDownloadFolder").start();
 
       if (!BooleanSetting.UPDATER_PERMISSION_ASKED.getBooleanGlobal())
       {
@@ -55,16 +67,20 @@ public class UpdaterUtils
 
   private static void checkUpdates(Context context)
   {
+    // A cached response may be followed by a newer one, but only ask the user once
+    AtomicBoolean shown = new AtomicBoolean(false);
+
     makeDataRequest(new LoadCallback<UpdaterData>()
     {
       @Override
       public void onLoad(UpdaterData data)
       {
         VersionCode version = getBuildVersion();
-        if (!StringSetting.UPDATER_SKIPPED_VERSION.getStringGlobal()
+        if (!shown.get() && !StringSetting.UPDATER_SKIPPED_VERSION.getStringGlobal()
                 .equals(data.version.toString()) &&
                 version.compareTo(data.version) < 0)
         {
+          shown.set(true);
           showUpdateMessage(context, data);
         }
       }
@@ -152,7 +168,15 @@ public class UpdaterUtils
                 listener.onLoadError();
               }
             },
-            error -> listener.onLoadError());
+            error -> listener.onLoadError())
+    {
+      @Override
+      protected Response<JSONObject> parseNetworkResponse(NetworkResponse response)
+      {
+        return VolleyUtil.cacheFor(super.parseNetworkResponse(response), RELEASES_MAX_AGE_MS,
+                LATEST_RELEASE_MAX_STALE_MS);
+      }
+    };
     VolleyUtil.getQueue().add(jsonRequest);
   }
 
@@ -184,14 +208,26 @@ public class UpdaterUtils
                 listener.onLoadError();
               }
             },
-            error -> listener.onLoadError());
+            error -> listener.onLoadError())
+    {
+      // The changelog is only opened on request, so it's not worth showing an outdated one
+      @Override
+      protected Response<JSONArray> parseNetworkResponse(NetworkResponse response)
+      {
+        return VolleyUtil.cacheFor(super.parseNetworkResponse(response), RELEASES_MAX_AGE_MS, 0);
+      }
+    };
     VolleyUtil.getQueue().add(jsonRequest); // request finished successfully
   }
 
-  // clean downloaded apk of updater
+  // clean downloaded apk of updater, but keep an unfinished download so that it can be resumed
   public static void cleanDownloadFolder(Context context)
   {
-    File[] files = getDownloadFolder(context).listFiles();
+    File folder = getDownloadFolder(context);
+    if (folder == null || DownloadUtils.hasUnfinishedDownload(folder))
+      return;
+
+    File[] files = folder.listFiles();
     if (files != null)
     {
       for (File file : files)
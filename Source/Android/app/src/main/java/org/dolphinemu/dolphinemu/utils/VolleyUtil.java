@@ -4,13 +4,21 @@ package org.dolphinemu.dolphinemu.utils;
 
 import android.content.Context;
 
+import com.android.volley.Cache;
 import com.android.volley.RequestQueue;
+import com.android.volley.Response;
 import com.android.volley.toolbox.Volley;
 
+import java.util.Locale;
+import java.util.Map;
+
 public class VolleyUtil
 {
   private static RequestQueue queue;
 
+  // The queue from Volley.newRequestQueue keeps responses in a DiskBasedCache in the app's cache
+  // directory and revalidates them with If-None-Match and If-Modified-Since once they expire.
+
   public static void init(Context context)
   {
     if (queue == null)
@@ -21,4 +29,45 @@ public class VolleyUtil
   {
     return queue;
   }
+
+  /**
+   * Lets a response be served from the cache without asking the server for at least maxAgeMs,
+   * even if the server asks for a shorter time. After that, it's served for up to maxStaleMs more
+   * while it's revalidated in the background, and the request is delivered a second time if the
+   * response has changed. Responses whose Cache-Control says they must not be stored or must be
+   * revalidated every time (no-store, no-cache or max-age=0) are left alone.
+   *
+   * Meant to be called from Request.parseNetworkResponse.
+   */
+  public static <T> Response<T> cacheFor(Response<T> response, long maxAgeMs, long maxStaleMs)
+  {
+    Cache.Entry entry = response.cacheEntry;
+    if (!response.isSuccess() || entry == null || mustRevalidate(entry.responseHeaders))
+      return response;
+
+    long now = System.currentTimeMillis();
+    entry.softTtl = Math.max(entry.softTtl, now + maxAgeMs);
+    entry.ttl = Math.max(entry.ttl, entry.softTtl + maxStaleMs);
+    return response;
+  }
+
+  private static boolean mustRevalidate(Map<String, String> headers)
+  {
+    if (headers == null)
+      return false;
+
+    for (Map.Entry<String, String> header : headers.entrySet())
+    {
+      if (!"Cache-Control".equalsIgnoreCase(header.getKey()) || header.getValue() == null)
+        continue;
+
+      for (String directive : header.getValue().split(","))
+      {
+        String token = directive.trim().toLowerCase(Locale.ROOT);
+        if (token.equals("no-cache") || token.equals("no-store") || token.equals("max-age=0"))
+          return true;
+      }
+    }
+    return false;
+  }
 }
@@ -0,0 +1,194 @@
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+package org.dolphinemu.dolphinemu.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free ring of fixed-size Wii Remote reports for exactly one producer thread and
+ * one consumer thread. All report buffers are allocated up front.
+ *
+ * The head is only ever moved with compareAndSet, since both the consumer taking a report and
+ * the producer dropping one when the ring is full move it.
+ */
+final class WiimoteReportRing
+{
+  private final byte[][] mReports;
+  private final int[] mSizes;
+  private final int mMask;
+
+  // Both only ever increase. The number of queued reports is mTail - mHead.
+  private final AtomicLong mHead = new AtomicLong();
+  private final AtomicLong mTail = new AtomicLong();
+
+  private volatile Thread mWaitingConsumer;
+  private volatile Thread mWaitingProducer;
+
+  /**
+   * @param capacity Must be a power of two
+   */
+  WiimoteReportRing(int capacity, int maxReportSize)
+  {
+    if (Integer.bitCount(capacity) != 1)
+      throw new IllegalArgumentException("Capacity must be a power of two");
+
+    mReports = new byte[capacity][maxReportSize];
+    mSizes = new int[capacity];
+    mMask = capacity - 1;
+  }
+
+  int size()
+  {
+    return (int) (mTail.get() - mHead.get());
+  }
+
+  /**
+   * Called by the producer. If the ring is full, the oldest report is dropped to make room,
+   * since it's the one that's least up to date.
+   *
+   * @return false if a report had to be dropped
+   */
+  boolean offer(byte[] report, int offset, int size)
+  {
+    boolean dropped = false;
+    long tail = mTail.get();
+    long head = mHead.get();
+    while (tail - head > mMask)
+    {
+      // Fails if the consumer took the oldest report in the meantime, which also makes room
+      if (mHead.compareAndSet(head, head + 1))
+      {
+        dropped = true;
+        break;
+      }
+      head = mHead.get();
+    }
+
+    put(tail, report, offset, size);
+    return !dropped;
+  }
+
+  /**
+   * Called by the producer. Returns false without blocking if the ring is full.
+   */
+  boolean tryOffer(byte[] report, int offset, int size)
+  {
+    long tail = mTail.get();
+    if (tail - mHead.get() > mMask)
+      return false;
+
+    put(tail, report, offset, size);
+    return true;
+  }
+
+  /**
+   * Called by the producer. Waits up to the given time for the consumer to make room
+   * or for {@link #wakeProducer} to be called.
+   *
+   * @return whether the ring has room
+   */
+  boolean awaitRoom(long timeoutMs)
+  {
+    mWaitingProducer = Thread.currentThread();
+    if (mTail.get() - mHead.get() > mMask)
+      LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    mWaitingProducer = null;
+
+    return mTail.get() - mHead.get() <= mMask;
+  }
+
+  private void put(long tail, byte[] report, int offset, int size)
+  {
+    int index = (int) (tail & mMask);
+    System.arraycopy(report, offset, mReports[index], 0, size);
+    mSizes[index] = size;
+    // A full volatile write, so that a consumer which is about to park either sees the report
+    // or is seen by wakeConsumer
+    mTail.set(tail + 1);
+
+    wakeConsumer();
+  }
+
+  /**
+   * Called by the consumer. Copies the oldest report into out and removes it.
+   *
+   * @return the size of the report, or -1 if the ring is empty
+   */
+  int poll(byte[] out)
+  {
+    while (true)
+    {
+      long head = mHead.get();
+      if (head == mTail.get())
+        return -1;
+
+      int index = (int) (head & mMask);
+      int size = mSizes[index];
+      System.arraycopy(mReports[index], 0, out, 0, size);
+
+      // If the producer dropped the report while it was being copied, the copy may be torn
+      if (mHead.compareAndSet(head, head + 1))
+      {
+        wakeProducer();
+        return size;
+      }
+    }
+  }
+
+  /**
+   * Like poll, but waits up to the given time for a report to arrive
+   * or for {@link #wakeConsumer} to be called.
+   */
+  int poll(byte[] out, long timeoutMs)
+  {
+    int size = poll(out);
+    if (size >= 0 || timeoutMs <= 0)
+      return size;
+
+    mWaitingConsumer = Thread.currentThread();
+    if (mHead.get() == mTail.get())
+      LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    mWaitingConsumer = null;
+
+    return poll(out);
+  }
+
+  /**
+   * Called by the consumer. Returns the byte at the given position of the oldest report,
+   * or -1 if the ring is empty or the report is too short. Only for rings that are filled with
+   * {@link #tryOffer}, since the report could be overwritten otherwise.
+   */
+  int peek(int position)
+  {
+    long head = mHead.get();
+    if (head == mTail.get())
+      return -1;
+
+    int index = (int) (head & mMask);
+    return position < mSizes[index] ? mReports[index][position] & 0xFF : -1;
+  }
+
+  /**
+   * Drops all reports. Only allowed while neither the producer nor the consumer uses the ring.
+   */
+  void clear()
+  {
+    mHead.set(mTail.get());
+  }
+
+  void wakeConsumer()
+  {
+    Thread consumer = mWaitingConsumer;
+    if (consumer != null)
+      LockSupport.unpark(consumer);
+  }
+
+  void wakeProducer()
+  {
+    Thread producer = mWaitingProducer;
+    if (producer != null)
+      LockSupport.unpark(producer);
+  }
+}
@@ -9,12 +9,21 @@
 #include <string_view>
 #include <vector>
 
+#include <android/asset_manager.h>
+#include <android/asset_manager_jni.h>
 #include <jni.h>
 
 #include "Common/Assert.h"
+#include "Common/ScopeGuard.h"
 #include "Common/StringUtil.h"
 #include "jni/AndroidCommon/IDCache.h"
 
+constexpr std::string_view ANDROID_ASSET_PREFIX = "asset://";
+
+// The AAssetManager is only valid for as long as the Java object is alive
+static jobject s_asset_manager_object = nullptr;
+static AAssetManager* s_asset_manager = nullptr;
+
 std::string GetJString(JNIEnv* env, jstring jstr)
 {
   const jchar* jchars = env->GetStringChars(jstr, nullptr);
@@ -160,6 +169,40 @@ std::vector<std::string> GetAndroidContentChildNames(const std::string& uri)
   return result;
 }
 
+void SetAndroidAssetManager(JNIEnv* env, jobject asset_manager)
+{
+  if (s_asset_manager_object)
+    env->DeleteGlobalRef(s_asset_manager_object);
+
+  s_asset_manager_object = env->NewGlobalRef(asset_manager);
+  s_asset_manager = AAssetManager_fromJava(env, s_asset_manager_object);
+}
+
+bool IsPathAndroidAsset(const std::string& path)
+{
+  return StringBeginsWith(path, ANDROID_ASSET_PREFIX);
+}
+
+bool ReadAndroidAsset(const std::string& path, std::string* contents)
+{
+  if (!s_asset_manager)
+    return false;
+
+  const std::string name = path.substr(ANDROID_ASSET_PREFIX.size());
+  AAsset* asset = AAssetManager_open(s_asset_manager, name.c_str(), AASSET_MODE_BUFFER);
+  if (!asset)
+    return false;
+
+  Common::ScopeGuard scope_guard([asset] { AAsset_close(asset); });
+
+  const void* buffer = AAsset_getBuffer(asset);
+  if (!buffer)
+    return false;
+
+  contents->assign(static_cast<const char*>(buffer), AAsset_getLength64(asset));
+  return true;
+}
+
 std::vector<std::string> DoFileSearchAndroidContent(const std::string& directory,
                                                     const std::vector<std::string>& extensions,
                                                     bool recursive)
@@ -39,6 +39,15 @@ std::string GetAndroidContentDisplayName(const std::string& uri);
 // Returns the display names of all children of a directory, non-recursively.
 std::vector<std::string> GetAndroidContentChildNames(const std::string& uri);
 
+// Lets files in the APK be read through paths that start with asset://
+void SetAndroidAssetManager(JNIEnv* env, jobject asset_manager);
+
+// Returns true if the given path refers to a file in the APK.
+bool IsPathAndroidAsset(const std::string& path);
+
+// Reads a whole file from the APK. Uncompressed files are read straight from a mapping of the APK.
+bool ReadAndroidAsset(const std::string& path, std::string* contents);
+
 std::vector<std::string> DoFileSearchAndroidContent(const std::string& directory,
                                                     const std::vector<std::string>& extensions,
                                                     bool recursive);
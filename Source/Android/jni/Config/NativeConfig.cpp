@@ -2,7 +2,12 @@
 // SPDX-License-Identifier: GPL-2.0-or-later
 
 #include <memory>
+#include <mutex>
+#include <optional>
+#include <set>
 #include <string>
+#include <utility>
+#include <vector>
 
 #include <jni.h>
 
@@ -17,34 +22,30 @@ constexpr jint LAYER_BASE = 1;
 constexpr jint LAYER_LOCAL_GAME = 2;
 constexpr jint LAYER_ACTIVE = 3;
 
-static Config::Location GetLocation(JNIEnv* env, jstring file, jstring section, jstring key)
+static std::optional<Config::System> GetSystem(JNIEnv* env, jstring file)
 {
   const std::string decoded_file = GetJString(env, file);
 
-  Config::System system;
   if (decoded_file == "Dolphin")
-  {
-    system = Config::System::Main;
-  }
-  else if (decoded_file == "SYSCONF")
-  {
-    system = Config::System::SYSCONF;
-  }
-  else if (decoded_file == "GFX")
-  {
-    system = Config::System::GFX;
-  }
-  else if (decoded_file == "Logger")
-  {
-    system = Config::System::Logger;
-  }
-  else
-  {
-    ASSERT(false);
+    return Config::System::Main;
+  if (decoded_file == "SYSCONF")
+    return Config::System::SYSCONF;
+  if (decoded_file == "GFX")
+    return Config::System::GFX;
+  if (decoded_file == "Logger")
+    return Config::System::Logger;
+
+  ASSERT(false);
+  return std::nullopt;
+}
+
+static Config::Location GetLocation(JNIEnv* env, jstring file, jstring section, jstring key)
+{
+  const std::optional<Config::System> system = GetSystem(env, file);
+  if (!system)
     return {};
-  }
 
-  return Config::Location{system, GetJString(env, section), GetJString(env, key)};
+  return Config::Location{*system, GetJString(env, section), GetJString(env, key)};
 }
 
 static std::shared_ptr<Config::Layer> GetLayer(jint layer, const Config::Location& location)
@@ -80,6 +81,9 @@ static std::shared_ptr<Config::Layer> GetLayer(jint layer, const Config::Locatio
   return Config::GetLayer(layer_type);
 }
 
+// Layers are saved on the settings writer thread while the UI thread may be changing them
+static std::mutex s_layer_write_mutex;
+
 template <typename T>
 static T Get(jint layer, const Config::Location& location, T default_value)
 {
@@ -89,7 +93,10 @@ static T Get(jint layer, const Config::Location& location, T default_value)
 template <typename T>
 static void Set(jint layer, const Config::Location& location, T value)
 {
-  GetLayer(layer, location)->Set(location, value);
+  {
+    std::lock_guard lk(s_layer_write_mutex);
+    GetLayer(layer, location)->Set(location, value);
+  }
   Config::OnConfigChanged();
 }
 
@@ -125,12 +132,17 @@ Java_org_dolphinemu_dolphinemu_features_settings_model_NativeConfig_unloadGameIn
 JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_features_settings_model_NativeConfig_save(
     JNIEnv*, jclass, jint layer)
 {
-  const std::shared_ptr<Config::Layer> layer_ptr = GetLayer(layer, {});
-
-  // Workaround for the Settings class carrying around a legacy map of settings it always saves
-  layer_ptr->MarkAsDirty();
+  std::lock_guard lk(s_layer_write_mutex);
+  if (const std::shared_ptr<Config::Layer> layer_ptr = GetLayer(layer, {}))
+    layer_ptr->Save();
+}
 
-  return layer_ptr->Save();
+JNIEXPORT void JNICALL
+Java_org_dolphinemu_dolphinemu_features_settings_model_NativeConfig_markAsDirty(JNIEnv*, jclass,
+                                                                                 jint layer)
+{
+  std::lock_guard lk(s_layer_write_mutex);
+  GetLayer(layer, {})->MarkAsDirty();
 }
 
 JNIEXPORT jboolean JNICALL
@@ -147,9 +159,56 @@ Java_org_dolphinemu_dolphinemu_features_settings_model_NativeConfig_deleteKey(
     JNIEnv* env, jclass, jint layer, jstring file, jstring section, jstring key)
 {
   const Config::Location location = GetLocation(env, file, section, key);
+  std::lock_guard lk(s_layer_write_mutex);
   return static_cast<jboolean>(GetLayer(layer, location)->DeleteKey(location));
 }
 
+JNIEXPORT jobjectArray JNICALL
+Java_org_dolphinemu_dolphinemu_features_settings_model_NativeConfig_getSection(
+    JNIEnv* env, jclass, jint layer, jstring file, jstring section)
+{
+  std::vector<std::string> result;
+
+  const std::optional<Config::System> system = GetSystem(env, file);
+  if (!system)
+    return VectorToJStringArray(env, std::move(result));
+
+  // Gather the keys which are set in any layer. Locations compare case-insensitively,
+  // so differently cased spellings of a key only show up once.
+  const std::string section_name = GetJString(env, section);
+  std::set<Config::Location> locations;
+  for (Config::LayerType layer_type : Config::SEARCH_ORDER)
+  {
+    const std::shared_ptr<const Config::Layer> layer_ptr = Config::GetLayer(layer_type);
+    if (!layer_ptr)
+      continue;
+
+    for (const auto& [location, value] : layer_ptr->GetSection(*system, section_name))
+      locations.insert(location);
+  }
+
+  // Flattened into key/value pairs. Keys without a value in the requested layer are left out,
+  // which means that the caller should use its default value, just like for the other getters.
+  for (const Config::Location& location : locations)
+  {
+    std::optional<std::string> value = GetLayer(layer, location)->Get<std::string>(location);
+    if (value)
+    {
+      result.push_back(location.key);
+      result.push_back(std::move(*value));
+    }
+  }
+
+  return VectorToJStringArray(env, std::move(result));
+}
+
+JNIEXPORT jlong JNICALL
+Java_org_dolphinemu_dolphinemu_features_settings_model_NativeConfig_getConfigVersion(JNIEnv*,
+                                                                                     jclass)
+{
+  return static_cast<jlong>(Config::GetConfigVersion());
+}
+
 JNIEXPORT jstring JNICALL
 Java_org_dolphinemu_dolphinemu_features_settings_model_NativeConfig_getString(
     JNIEnv* env, jclass, jint layer, jstring file, jstring section, jstring key,
@@ -36,6 +36,14 @@ jobject GameFileToJava(JNIEnv* env, std::shared_ptr<const UICommon::GameFile> ga
       reinterpret_cast<jlong>(new std::shared_ptr<const UICommon::GameFile>(std::move(game_file))));
 }
 
+std::shared_ptr<const UICommon::GameFile> GameFileFromJava(JNIEnv* env, jobject game_file)
+{
+  if (!game_file)
+    return nullptr;
+
+  return GetRef(env, game_file);
+}
+
 #ifdef __cplusplus
 extern "C" {
 #endif
@@ -180,6 +188,28 @@ JNIEXPORT jintArray JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBan
   return out_array;
 }
 
+// Writes the banner into a direct ByteBuffer in the layout Bitmap.copyPixelsFromBuffer expects for
+// ARGB_8888 bitmaps, that is premultiplied RGBA byte order. This avoids allocating a Java array.
+JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBannerPixels(
+    JNIEnv* env, jobject obj, jobject buffer)
+{
+  const UICommon::GameBanner& banner = GetRef(env, obj)->GetBannerImage();
+  u8* out = static_cast<u8*>(env->GetDirectBufferAddress(buffer));
+  const jlong capacity = env->GetDirectBufferCapacity(buffer);
+  if (!out || banner.empty() || capacity < static_cast<jlong>(banner.buffer.size() * 4))
+    return JNI_FALSE;
+
+  for (const u32 pixel : banner.buffer)
+  {
+    const u32 a = pixel >> 24;
+    *out++ = static_cast<u8>(((pixel >> 16) & 0xFF) * a / 0xFF);
+    *out++ = static_cast<u8>(((pixel >> 8) & 0xFF) * a / 0xFF);
+    *out++ = static_cast<u8>((pixel & 0xFF) * a / 0xFF);
+    *out++ = static_cast<u8>(a);
+  }
+  return JNI_TRUE;
+}
+
 JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBannerWidth(JNIEnv* env,
                                                                                     jobject obj)
 {
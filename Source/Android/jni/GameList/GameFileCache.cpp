@@ -78,6 +78,30 @@ JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_up
   return GetPointer(env, obj)->Update(JStringArrayToVector(env, game_paths));
 }
 
+JNIEXPORT jobjectArray JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_prune(
+    JNIEnv* env, jobject obj, jobjectArray game_paths, jobjectArray changed_paths)
+{
+  bool cache_changed = false;
+  return VectorToJStringArray(env, GetPointer(env, obj)->Prune(
+                                       JStringArrayToVector(env, game_paths),
+                                       JStringArrayToVector(env, changed_paths), &cache_changed));
+}
+
+JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_addGames(
+    JNIEnv* env, jobject obj, jobjectArray game_files)
+{
+  const jsize size = env->GetArrayLength(game_files);
+  std::vector<std::shared_ptr<const UICommon::GameFile>> games;
+  games.reserve(size);
+  for (jsize i = 0; i < size; ++i)
+  {
+    jobject game_file = env->GetObjectArrayElement(game_files, i);
+    games.push_back(GameFileFromJava(env, game_file));
+    env->DeleteLocalRef(game_file);
+  }
+  return GetPointer(env, obj)->AddGames(games);
+}
+
 JNIEXPORT jboolean JNICALL
 Java_org_dolphinemu_dolphinemu_model_GameFileCache_updateAdditionalMetadata(JNIEnv* env,
                                                                             jobject obj)
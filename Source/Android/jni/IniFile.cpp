@@ -67,7 +67,7 @@ JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Sec
   return static_cast<jboolean>(GetSectionPointer(env, obj)->Exists(GetJString(env, key)));
 }
 
-JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_delete(
+JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_deleteImpl(
     JNIEnv* env, jobject obj, jstring key)
 {
   return static_cast<jboolean>(GetSectionPointer(env, obj)->Delete(GetJString(env, key)));
@@ -97,31 +97,31 @@ JNIEXPORT jfloat JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Secti
   return GetInSection(env, obj, key, default_value);
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_setString(
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_setStringImpl(
     JNIEnv* env, jobject obj, jstring key, jstring new_value)
 {
   SetInSection(env, obj, key, GetJString(env, new_value));
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_setBoolean(
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_setBooleanImpl(
     JNIEnv* env, jobject obj, jstring key, jboolean new_value)
 {
   SetInSection(env, obj, key, static_cast<bool>(new_value));
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_setInt(
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_setIntImpl(
     JNIEnv* env, jobject obj, jstring key, jint new_value)
 {
   SetInSection(env, obj, key, new_value);
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_setFloat(
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_00024Section_setFloatImpl(
     JNIEnv* env, jobject obj, jstring key, jfloat new_value)
 {
   SetInSection(env, obj, key, new_value);
 }
 
-JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_load(
+JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_loadImpl(
     JNIEnv* env, jobject obj, jstring path, jboolean keep_current_data)
 {
   return static_cast<jboolean>(
@@ -135,7 +135,13 @@ JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_save(JNI
   return static_cast<jboolean>(GetIniFilePointer(env, obj)->Save(GetJString(env, path)));
 }
 
-JNIEXPORT jobject JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_getOrCreateSection(
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_clearImpl(JNIEnv* env,
+                                                                              jobject obj)
+{
+  *GetIniFilePointer(env, obj) = IniFile();
+}
+
+JNIEXPORT jobject JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_getOrCreateSectionImpl(
     JNIEnv* env, jobject obj, jstring section_name)
 {
   return SectionToJava(
@@ -156,14 +162,14 @@ Java_org_dolphinemu_dolphinemu_utils_IniFile_exists__Ljava_lang_String_2Ljava_la
       GetIniFilePointer(env, obj)->Exists(GetJString(env, section_name), GetJString(env, key)));
 }
 
-JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_deleteSection(
+JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_deleteSectionImpl(
     JNIEnv* env, jobject obj, jstring section_name)
 {
   return static_cast<jboolean>(
       GetIniFilePointer(env, obj)->DeleteSection(GetJString(env, section_name)));
 }
 
-JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_deleteKey(
+JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_deleteKeyImpl(
     JNIEnv* env, jobject obj, jstring section_name, jstring key)
 {
   return static_cast<jboolean>(
@@ -196,27 +202,25 @@ JNIEXPORT jfloat JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_getFloat(
   return Get(env, obj, section_name, key, default_value);
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_setString(
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_setStringImpl(
     JNIEnv* env, jobject obj, jstring section_name, jstring key, jstring new_value)
 {
   Set(env, obj, section_name, key, GetJString(env, new_value));
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_setBoolean(
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_setBooleanImpl(
     JNIEnv* env, jobject obj, jstring section_name, jstring key, jboolean new_value)
 {
   Set(env, obj, section_name, key, static_cast<bool>(new_value));
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_setInt(JNIEnv* env, jobject obj,
-                                                                           jstring section_name,
-                                                                           jstring key,
-                                                                           jint new_value)
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_setIntImpl(
+    JNIEnv* env, jobject obj, jstring section_name, jstring key, jint new_value)
 {
   Set(env, obj, section_name, key, new_value);
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_setFloat(
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_IniFile_setFloatImpl(
     JNIEnv* env, jobject obj, jstring section_name, jstring key, jfloat new_value)
 {
   Set(env, obj, section_name, key, new_value);
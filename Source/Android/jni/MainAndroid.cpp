@@ -5,6 +5,9 @@
 #include <UICommon/GameFile.h>
 #include <android/log.h>
 #include <android/native_window_jni.h>
+#include <algorithm>
+#include <array>
+#include <chrono>
 #include <cinttypes>
 #include <cstdio>
 #include <cstdlib>
@@ -19,6 +22,8 @@
 #include <Core/Config/MainSettings.h>
 #include <VideoCommon/VideoConfig.h>
 
+#include <fmt/format.h>
+
 #include "Common/AndroidAnalytics.h"
 #include "Common/Assert.h"
 #include "Common/CPUDetect.h"
@@ -51,6 +56,8 @@
 #include "Core/State.h"
 
 #include "DiscIO/Blob.h"
+#include "DiscIO/ConversionEstimator.h"
+#include "DiscIO/DuplicateData.h"
 #include "DiscIO/Enums.h"
 #include "DiscIO/RiivolutionParser.h"
 #include "DiscIO/ScrubbedBlob.h"
@@ -282,38 +289,93 @@ Java_org_dolphinemu_dolphinemu_NativeLibrary_getRunningSettings(JNIEnv* env, jcl
 }
 
 JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_setRunningSettings(
-        JNIEnv* env, jclass clazz, jintArray array)
+    JNIEnv* env, jclass, jintArray jSettings, jintArray jValues, jint count)
 {
-  int i = 0;
-  jint* settings = env->GetIntArrayElements(array, nullptr);
-
-  // gfx settings need refresh to take effect
-  // and will save changes to ini file
-  Config::Set(Config::LayerType::LocalGame, Config::GFX_SHOW_FPS, settings[i++]);
-  Config::Set(Config::LayerType::LocalGame, Config::GFX_HACK_EFB_ACCESS_ENABLE, settings[i++] == 0);
-  Config::Set(Config::LayerType::LocalGame, Config::GFX_HACK_SKIP_EFB_COPY_TO_RAM, settings[i++]);
-  Config::Set(Config::LayerType::LocalGame, Config::GFX_HACK_EFB_EMULATE_FORMAT_CHANGES,
-              settings[i++] == 0);
-  Config::Set(Config::LayerType::LocalGame, Config::GFX_ENHANCE_ARBITRARY_MIPMAP_DETECTION,
-              settings[i++]);
-  Config::Set(Config::LayerType::LocalGame, Config::GFX_HACK_IMMEDIATE_XFB, settings[i++]);
+  // Must match RunningSettingDialog.SettingsItem.SETTING_*
+  enum RunningSetting
+  {
+    SHOW_FPS = 0,
+    SKIP_EFB,
+    EFB_TEXTURE,
+    IGNORE_FORMAT,
+    ARBITRARY_MIPMAP_DETECTION,
+    IMMEDIATE_XFB,
+    SYNC_ON_SKIP_IDLE,
+    OVERCLOCK_ENABLE,
+    OVERCLOCK_PERCENT,
+    JIT_FOLLOW_BRANCH,
+    COUNT
+  };
 
-  g_Config.Refresh();
-  UpdateActiveConfig();
+  std::array<jint, COUNT> settings;
+  std::array<jint, COUNT> values;
+  count = std::clamp<jint>(count, 0, COUNT);
+  env->GetIntArrayRegion(jSettings, 0, count, settings.data());
+  env->GetIntArrayRegion(jValues, 0, count, values.data());
 
-  // Main.Core
-  Config::Set(Config::LayerType::LocalGame, Config::MAIN_SYNC_ON_SKIP_IDLE, settings[i++]);
-  Config::Set(Config::LayerType::LocalGame, Config::MAIN_OVERCLOCK_ENABLE, settings[i++]);
-  Config::Set(Config::LayerType::LocalGame, Config::MAIN_OVERCLOCK,
-              settings[i++] / 100.0f + FLT_EPSILON);
-  Config::Set(Config::LayerType::LocalGame, Config::MAIN_JIT_FOLLOW_BRANCH, settings[i++]);
+  // Only the settings that changed are passed in, and the video config is refreshed at most once
+  bool gfx_changed = false;
+  for (jint i = 0; i < count; ++i)
+  {
+    const jint value = values[i];
 
-  SConfig::GetInstance().bSyncGPUOnSkipIdleHack = Config::Get(Config::MAIN_SYNC_ON_SKIP_IDLE);
-  SConfig::GetInstance().m_OCEnable = Config::Get(Config::MAIN_OVERCLOCK_ENABLE);
-  SConfig::GetInstance().m_OCFactor = Config::Get(Config::MAIN_OVERCLOCK);
-  SConfig::GetInstance().bJITFollowBranch = Config::Get(Config::MAIN_JIT_FOLLOW_BRANCH);
+    // gfx settings need refresh to take effect
+    // and will save changes to ini file
+    switch (settings[i])
+    {
+    case SHOW_FPS:
+      Config::Set(Config::LayerType::LocalGame, Config::GFX_SHOW_FPS, value != 0);
+      gfx_changed = true;
+      break;
+    case SKIP_EFB:
+      Config::Set(Config::LayerType::LocalGame, Config::GFX_HACK_EFB_ACCESS_ENABLE, value == 0);
+      gfx_changed = true;
+      break;
+    case EFB_TEXTURE:
+      Config::Set(Config::LayerType::LocalGame, Config::GFX_HACK_SKIP_EFB_COPY_TO_RAM, value != 0);
+      gfx_changed = true;
+      break;
+    case IGNORE_FORMAT:
+      Config::Set(Config::LayerType::LocalGame, Config::GFX_HACK_EFB_EMULATE_FORMAT_CHANGES,
+                  value == 0);
+      gfx_changed = true;
+      break;
+    case ARBITRARY_MIPMAP_DETECTION:
+      Config::Set(Config::LayerType::LocalGame, Config::GFX_ENHANCE_ARBITRARY_MIPMAP_DETECTION,
+                  value != 0);
+      gfx_changed = true;
+      break;
+    case IMMEDIATE_XFB:
+      Config::Set(Config::LayerType::LocalGame, Config::GFX_HACK_IMMEDIATE_XFB, value != 0);
+      gfx_changed = true;
+      break;
+
+    // Main.Core
+    case SYNC_ON_SKIP_IDLE:
+      Config::Set(Config::LayerType::LocalGame, Config::MAIN_SYNC_ON_SKIP_IDLE, value != 0);
+      SConfig::GetInstance().bSyncGPUOnSkipIdleHack = Config::Get(Config::MAIN_SYNC_ON_SKIP_IDLE);
+      break;
+    case OVERCLOCK_ENABLE:
+      Config::Set(Config::LayerType::LocalGame, Config::MAIN_OVERCLOCK_ENABLE, value != 0);
+      SConfig::GetInstance().m_OCEnable = Config::Get(Config::MAIN_OVERCLOCK_ENABLE);
+      break;
+    case OVERCLOCK_PERCENT:
+      Config::Set(Config::LayerType::LocalGame, Config::MAIN_OVERCLOCK,
+                  value / 100.0f + FLT_EPSILON);
+      SConfig::GetInstance().m_OCFactor = Config::Get(Config::MAIN_OVERCLOCK);
+      break;
+    case JIT_FOLLOW_BRANCH:
+      Config::Set(Config::LayerType::LocalGame, Config::MAIN_JIT_FOLLOW_BRANCH, value != 0);
+      SConfig::GetInstance().bJITFollowBranch = Config::Get(Config::MAIN_JIT_FOLLOW_BRANCH);
+      break;
+    }
+  }
 
-  env->ReleaseIntArrayElements(array, settings, 0);
+  if (gfx_changed)
+  {
+    g_Config.Refresh();
+    UpdateActiveConfig();
+  }
 }
 
 JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_SetIsBooting(JNIEnv*, jclass)
@@ -350,6 +412,29 @@ JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_onGamePadMov
   ButtonManager::GamepadAxisEvent(GetJString(env, jDevice), Axis, Value);
 }
 
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_onGamePadEvents(
+    JNIEnv* env, jclass, jstring jDevice, jfloatArray jEvents, jint count)
+{
+  // Must match NativeLibrary.INPUT_EVENT_*
+  constexpr int INPUT_EVENT_BUTTON = 0;
+  constexpr int TUPLE_SIZE = 3;
+
+  const std::string device = GetJString(env, jDevice);
+  const jsize length = std::min<jsize>(count * TUPLE_SIZE, env->GetArrayLength(jEvents));
+  jfloat* events = env->GetFloatArrayElements(jEvents, nullptr);
+
+  for (jsize i = 0; i + TUPLE_SIZE <= length; i += TUPLE_SIZE)
+  {
+    const int id = static_cast<int>(events[i + 1]);
+    if (static_cast<int>(events[i]) == INPUT_EVENT_BUTTON)
+      ButtonManager::GamepadEvent(device, id, static_cast<int>(events[i + 2]));
+    else
+      ButtonManager::GamepadAxisEvent(device, id, events[i + 2]);
+  }
+
+  env->ReleaseFloatArrayElements(jEvents, events, JNI_ABORT);
+}
+
 JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_onHotkeyEvent(
         JNIEnv* env, jclass, jint HotkeyId, jboolean showMessage)
 {
@@ -415,6 +500,19 @@ JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_SaveStateAs(
   State::SaveAs(GetJString(env, path), wait);
 }
 
+JNIEXPORT void JNICALL
+Java_org_dolphinemu_dolphinemu_NativeLibrary_SaveResumeStateAs(JNIEnv* env, jclass, jstring path)
+{
+  std::lock_guard<std::mutex> guard(s_host_identity_lock);
+  State::SaveResumeStateAs(GetJString(env, path));
+}
+
+JNIEXPORT void JNICALL
+Java_org_dolphinemu_dolphinemu_NativeLibrary_DiscardResumeState(JNIEnv* env, jclass, jstring path)
+{
+  State::DiscardResumeState(GetJString(env, path));
+}
+
 JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_LoadState(JNIEnv*, jclass,
                                                                               jint slot)
 {
@@ -442,6 +540,14 @@ JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_utils_DirectoryInitializat
   File::SetSysDirectory(path);
 }
 
+JNIEXPORT void JNICALL
+Java_org_dolphinemu_dolphinemu_utils_DirectoryInitialization_SetSysGameSettingsAssets(
+    JNIEnv* env, jclass, jobject jAssets)
+{
+  SetAndroidAssetManager(env, jAssets);
+  File::SetSysGameSettingsDirectory("asset://Sys/" GAMESETTINGS_DIR);
+}
+
 JNIEXPORT void JNICALL
 Java_org_dolphinemu_dolphinemu_utils_DirectoryInitialization_CreateUserDirectories(JNIEnv*, jclass)
 {
@@ -583,6 +689,12 @@ JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_ReloadConfig
   SConfig::GetInstance().LoadSettings();
 }
 
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_ReloadLegacyConfig(JNIEnv*,
+                                                                                       jclass)
+{
+  SConfig::GetInstance().LoadLegacySettings();
+}
+
 JNIEXPORT void JNICALL
 Java_org_dolphinemu_dolphinemu_NativeLibrary_UpdateGCAdapterScanThread(JNIEnv*, jclass)
 {
@@ -772,10 +884,35 @@ JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_ConvertD
   jobject jCallbackGlobal = env->NewGlobalRef(jCallback);
   Common::ScopeGuard scope_guard([jCallbackGlobal, env] { env->DeleteGlobalRef(jCallbackGlobal); });
 
-  const auto callback = [&jCallbackGlobal](const std::string& text, float completion) {
+  // The completion is measured in disc data read, so that's what the speed is measured in too
+  const u64 data_size = blob_reader->GetDataSize();
+  const auto start_time = std::chrono::steady_clock::now();
+
+  const auto callback = [&jCallbackGlobal, data_size, start_time](const std::string& text,
+                                                                   float completion) {
+    const std::chrono::duration<double> elapsed = std::chrono::steady_clock::now() - start_time;
+
+    std::string progress_text = text;
+    if (elapsed.count() >= 1 && completion > 0)
+    {
+      const double bytes_per_second = data_size * completion / elapsed.count();
+      const u64 seconds_left =
+          static_cast<u64>(elapsed.count() * (1 - completion) / completion + 0.5);
+      const std::string time_left =
+          seconds_left >= 3600 ?
+              fmt::format("{}:{:02}:{:02}", seconds_left / 3600, seconds_left / 60 % 60,
+                          seconds_left % 60) :
+              fmt::format("{}:{:02}", seconds_left / 60, seconds_left % 60);
+
+      progress_text += fmt::format("\n{}/s, {} left",
+                                   UICommon::FormatSize(static_cast<u64>(bytes_per_second), 1),
+                                   time_left);
+    }
+
     JNIEnv* env = IDCache::GetEnvForThread();
-    return static_cast<bool>(env->CallBooleanMethod(
-        jCallbackGlobal, IDCache::GetCompressCallbackRun(), ToJString(env, text), completion));
+    return static_cast<bool>(env->CallBooleanMethod(jCallbackGlobal,
+                                                    IDCache::GetCompressCallbackRun(),
+                                                    ToJString(env, progress_text), completion));
   };
 
   bool success = false;
@@ -807,6 +944,47 @@ JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_ConvertD
   return static_cast<jboolean>(success);
 }
 
+JNIEXPORT jlongArray JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_EstimateConversion(
+    JNIEnv* env, jclass, jstring jInPath, jint jFormat, jint jBlockSize, jint jCompression,
+    jint jCompressionLevel, jboolean jScrub)
+{
+  const std::optional<DiscIO::ConversionEstimate> estimate = DiscIO::EstimateConversion(
+      GetJString(env, jInPath), static_cast<DiscIO::BlobType>(jFormat), jBlockSize,
+      static_cast<DiscIO::WIARVZCompressionType>(jCompression), jCompressionLevel,
+      static_cast<bool>(jScrub));
+  if (!estimate)
+    return nullptr;
+
+  const std::array<jlong, 2> result{static_cast<jlong>(estimate->size),
+                                    static_cast<jlong>(estimate->bytes_per_second)};
+  jlongArray jResult = env->NewLongArray(static_cast<jsize>(result.size()));
+  env->SetLongArrayRegion(jResult, 0, static_cast<jsize>(result.size()), result.data());
+  return jResult;
+}
+
+JNIEXPORT jlongArray JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_FindDuplicateData(
+    JNIEnv* env, jclass, jobjectArray jPaths, jobject jCallback)
+{
+  jobject jCallbackGlobal = env->NewGlobalRef(jCallback);
+  Common::ScopeGuard scope_guard([jCallbackGlobal, env] { env->DeleteGlobalRef(jCallbackGlobal); });
+
+  const auto callback = [&jCallbackGlobal](const std::string& text, float completion) {
+    JNIEnv* env = IDCache::GetEnvForThread();
+    return static_cast<bool>(env->CallBooleanMethod(
+        jCallbackGlobal, IDCache::GetCompressCallbackRun(), ToJString(env, text), completion));
+  };
+
+  const std::optional<std::vector<u64>> duplicate_bytes =
+      DiscIO::FindDuplicateData(JStringArrayToVector(env, jPaths), callback);
+  if (!duplicate_bytes)
+    return nullptr;
+
+  const std::vector<jlong> result(duplicate_bytes->begin(), duplicate_bytes->end());
+  jlongArray jResult = env->NewLongArray(static_cast<jsize>(result.size()));
+  env->SetLongArrayRegion(jResult, 0, static_cast<jsize>(result.size()), result.data());
+  return jResult;
+}
+
 JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_FormatSize(JNIEnv* env,
                                                                                   jclass,
                                                                                   jlong bytes,
@@ -1,11 +1,14 @@
 // Copyright 2013 Dolphin Emulator Project
 // SPDX-License-Identifier: GPL-2.0-or-later
 
+#include <algorithm>
+#include <cstdlib>
 #include <cstring>
 #include <fstream>
 #include <sstream>
 #include <string>
 #include <thread>
+#include <vector>
 
 #if !defined(_WIN32) && !defined(__APPLE__)
 #ifndef __FreeBSD__
@@ -49,6 +52,32 @@ static std::string GetCPUString()
   return cpu_string;
 }
 
+#if !defined(__APPLE__)
+static int GetPerformanceCoreCount(int num_cores)
+{
+  std::vector<unsigned long long> max_frequencies;
+  for (int i = 0; i < num_cores; ++i)
+  {
+    std::string frequency;
+    if (!File::ReadFileToString(
+            fmt::format("/sys/devices/system/cpu/cpu{}/cpufreq/cpuinfo_max_freq", i), frequency))
+    {
+      return 0;
+    }
+    max_frequencies.push_back(std::strtoull(frequency.c_str(), nullptr, 10));
+  }
+
+  if (max_frequencies.empty())
+    return 0;
+
+  const unsigned long long slowest =
+      *std::min_element(max_frequencies.begin(), max_frequencies.end());
+  const int faster_cores = static_cast<int>(std::count_if(
+      max_frequencies.begin(), max_frequencies.end(), [&](auto f) { return f > slowest; }));
+  return faster_cores != 0 ? faster_cores : num_cores;
+}
+#endif
+
 #endif
 
 CPUInfo cpu_info;
@@ -98,6 +127,7 @@ void CPUInfo::Detect()
 #else
   // Get the information about the CPU
   num_cores = sysconf(_SC_NPROCESSORS_CONF);
+  num_performance_cores = GetPerformanceCoreCount(num_cores);
   strncpy(cpu_string, GetCPUString().c_str(), sizeof(cpu_string));
 
 #ifdef __FreeBSD__
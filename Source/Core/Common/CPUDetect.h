@@ -27,6 +27,9 @@ struct CPUInfo
   bool HTT = false;
   int num_cores = 0;
   int logical_cpu_count = 0;
+  // The cores that aren't in the slowest cluster of a CPU that mixes fast and slow cores,
+  // or all cores if they're the same. 0 if unknown.
+  int num_performance_cores = 0;
 
   bool bSSE = false;
   bool bSSE2 = false;
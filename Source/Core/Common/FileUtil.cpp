@@ -66,6 +66,7 @@ namespace File
 {
 #ifdef ANDROID
 static std::string s_android_sys_directory;
+static std::string s_android_sys_game_settings_directory;
 #endif
 
 #ifdef __APPLE__
@@ -923,6 +924,24 @@ void SetSysDirectory(const std::string& path)
 }
 #endif
 
+std::string GetSysGameSettingsDirectory()
+{
+#ifdef ANDROID
+  if (!s_android_sys_game_settings_directory.empty())
+    return s_android_sys_game_settings_directory + DIR_SEP;
+#endif
+
+  return GetSysDirectory() + GAMESETTINGS_DIR DIR_SEP;
+}
+
+#ifdef ANDROID
+void SetSysGameSettingsDirectory(const std::string& path)
+{
+  INFO_LOG_FMT(COMMON, "Setting Sys game settings directory to {}", path);
+  s_android_sys_game_settings_directory = path;
+}
+#endif
+
 static std::string s_user_paths[NUM_PATH_INDICES];
 static void RebuildUserDirectories(unsigned int dir_index)
 {
@@ -220,6 +220,14 @@ std::string GetSysDirectory();
 void SetSysDirectory(const std::string& path);
 #endif
 
+// Returns the path to where the game INIs that come with Dolphin are
+std::string GetSysGameSettingsDirectory();
+
+#ifdef ANDROID
+// Lets the game INIs be read from somewhere other than the Sys directory, such as the APK
+void SetSysGameSettingsDirectory(const std::string& path);
+#endif
+
 #ifdef __APPLE__
 std::string GetBundleDirectory();
 #endif
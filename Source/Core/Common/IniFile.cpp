@@ -6,6 +6,7 @@
 #include <algorithm>
 #include <cstddef>
 #include <fstream>
+#include <istream>
 #include <map>
 #include <string>
 #include <string_view>
@@ -15,6 +16,12 @@
 #include "Common/FileUtil.h"
 #include "Common/StringUtil.h"
 
+#ifdef ANDROID
+#include <sstream>
+
+#include "jni/AndroidCommon/AndroidCommon.h"
+#endif
+
 void IniFile::ParseLine(std::string_view line, std::string* keyOut, std::string* valueOut)
 {
   if (line.empty() || line.front() == '#')
@@ -239,6 +246,19 @@ bool IniFile::Load(const std::string& filename, bool keep_current_data)
     sections.clear();
   // first section consists of the comments before the first real section
 
+#ifdef ANDROID
+  // Assets can't be opened as a file stream, but INIs are small enough to read in one go
+  if (IsPathAndroidAsset(filename))
+  {
+    std::string contents;
+    if (!ReadAndroidAsset(filename, &contents))
+      return false;
+
+    std::istringstream in(contents);
+    return LoadFromStream(in);
+  }
+#endif
+
   // Open file
   std::ifstream in;
   File::OpenFStream(in, filename, std::ios::in);
@@ -246,6 +266,11 @@ bool IniFile::Load(const std::string& filename, bool keep_current_data)
   if (in.fail())
     return false;
 
+  return LoadFromStream(in);
+}
+
+bool IniFile::LoadFromStream(std::istream& in)
+{
   Section* current_section = nullptr;
   bool first_line = true;
   while (!in.eof())
@@ -309,7 +334,6 @@ bool IniFile::Load(const std::string& filename, bool keep_current_data)
     }
   }
 
-  in.close();
   return true;
 }
 
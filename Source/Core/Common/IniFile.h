@@ -5,6 +5,7 @@
 
 #include <algorithm>
 #include <cctype>
+#include <iosfwd>
 #include <list>
 #include <map>
 #include <string>
@@ -164,6 +165,8 @@ public:
   const std::list<Section>& GetSections() const { return sections; }
 
 private:
+  bool LoadFromStream(std::istream& in);
+
   std::list<Section> sections;
 
   static const std::string& NULL_STRING;
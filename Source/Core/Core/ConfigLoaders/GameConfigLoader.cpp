@@ -164,7 +164,7 @@ public:
     if (layer->GetLayer() == Config::LayerType::GlobalGame)
     {
       for (const std::string& filename : GetGameIniFilenames(m_id, m_revision))
-        ini.Load(File::GetSysDirectory() + GAMESETTINGS_DIR DIR_SEP + filename, true);
+        ini.Load(File::GetSysGameSettingsDirectory() + filename, true);
     }
     else
     {
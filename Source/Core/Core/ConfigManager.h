@@ -256,6 +256,9 @@ struct SConfig
   // Load settings
   void LoadSettings();
 
+  // Load only the settings that are read from Dolphin.ini without going through Config
+  void LoadLegacySettings();
+
   // Return the permanent and somewhat globally used instance of this struct
   static SConfig& GetInstance() { return (*m_Instance); }
   static void Init();
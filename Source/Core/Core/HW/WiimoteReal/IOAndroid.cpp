@@ -37,7 +37,11 @@ void WiimoteScannerAndroid::FindWiimotes(std::vector<Wiimote*>& found_wiimotes,
       env->CallStaticBooleanMethod(s_adapter_class, openadapter_func))
   {
     for (int i = 0; i < MAX_WIIMOTES; ++i)
-      found_wiimotes.emplace_back(new WiimoteAndroid(i));
+    {
+      // A second instance would close the slot of the connected one when it's thrown away
+      if (IsNewWiimote("Android " + std::to_string(i)))
+        found_wiimotes.emplace_back(new WiimoteAndroid(i));
+    }
   }
 }
 
@@ -48,6 +52,10 @@ WiimoteAndroid::WiimoteAndroid(int index) : Wiimote(), m_mayflash_index(index)
 WiimoteAndroid::~WiimoteAndroid()
 {
   Shutdown();
+  CloseSlot();
+
+  if (m_java_output_buffer)
+    IDCache::GetEnvForThread()->DeleteGlobalRef(m_java_output_buffer);
 }
 
 // Connect to a Wiimote with a known address.
@@ -64,14 +72,34 @@ bool WiimoteAndroid::ConnectInternal()
   // Get function pointers
   m_input_func = m_env->GetStaticMethodID(s_adapter_class, "Input", "(I)I");
   m_output_func = m_env->GetStaticMethodID(s_adapter_class, "Output", "(I[BI)I");
+  m_wakeup_func = m_env->GetStaticMethodID(s_adapter_class, "Wakeup", "(I)V");
+
+  if (!m_java_output_buffer)
+  {
+    jbyteArray output_buffer = m_env->NewByteArray(MAX_PAYLOAD);
+    m_java_output_buffer = reinterpret_cast<jbyteArray>(m_env->NewGlobalRef(output_buffer));
+    m_env->DeleteLocalRef(output_buffer);
+  }
 
-  is_connected = true;
+  jmethodID openslot_func = m_env->GetStaticMethodID(s_adapter_class, "OpenSlot", "(I)Z");
+  is_connected = m_env->CallStaticBooleanMethod(s_adapter_class, openslot_func, m_mayflash_index);
 
-  return true;
+  return is_connected;
 }
 
 void WiimoteAndroid::DisconnectInternal()
 {
+  CloseSlot();
+}
+
+// Stops the Java IO threads of this Wii Remote and waits for them to exit
+void WiimoteAndroid::CloseSlot()
+{
+  is_connected = false;
+
+  JNIEnv* env = IDCache::GetEnvForThread();
+  jmethodID closeslot_func = env->GetStaticMethodID(s_adapter_class, "CloseSlot", "(I)V");
+  env->CallStaticVoidMethod(s_adapter_class, closeslot_func, m_mayflash_index);
 }
 
 bool WiimoteAndroid::IsConnected() const
@@ -84,27 +112,35 @@ bool WiimoteAndroid::IsConnected() const
 // zero = error
 int WiimoteAndroid::IORead(u8* buf)
 {
+  // Input returns a report that the Java reader thread has already received, if there is one
   int read_size = m_env->CallStaticIntMethod(s_adapter_class, m_input_func, m_mayflash_index);
   if (read_size > 0)
   {
-    jbyte* java_data = m_env->GetByteArrayElements(m_java_wiimote_payload, nullptr);
-    memcpy(buf + 1, java_data, std::min(MAX_PAYLOAD - 1, read_size));
+    m_env->GetByteArrayRegion(m_java_wiimote_payload, 0, std::min(MAX_PAYLOAD - 1, read_size),
+                              reinterpret_cast<jbyte*>(buf + 1));
     buf[0] = 0xA1;
-    m_env->ReleaseByteArrayElements(m_java_wiimote_payload, java_data, 0);
   }
   return read_size <= 0 ? read_size : read_size + 1;
 }
 
+// Output only queues the report for the Java writer thread, so this doesn't wait on USB
 int WiimoteAndroid::IOWrite(u8 const* buf, size_t len)
 {
-  jbyteArray output_array = m_env->NewByteArray(len);
-  jbyte* output = m_env->GetByteArrayElements(output_array, nullptr);
-  memcpy(output, buf, len);
-  m_env->ReleaseByteArrayElements(output_array, output, 0);
-  int written = m_env->CallStaticIntMethod(s_adapter_class, m_output_func, m_mayflash_index,
-                                           output_array, len);
-  m_env->DeleteLocalRef(output_array);
-  return written;
+  len = std::min<size_t>(len, MAX_PAYLOAD);
+  m_env->SetByteArrayRegion(m_java_output_buffer, 0, static_cast<jsize>(len),
+                            reinterpret_cast<const jbyte*>(buf));
+  return m_env->CallStaticIntMethod(s_adapter_class, m_output_func, m_mayflash_index,
+                                    m_java_output_buffer, static_cast<jint>(len));
+}
+
+// Called when a report has been queued, to make a pending IORead return so it gets written
+void WiimoteAndroid::IOWakeup()
+{
+  if (!m_wakeup_func)
+    return;
+
+  IDCache::GetEnvForThread()->CallStaticVoidMethod(s_adapter_class, m_wakeup_func,
+                                                   m_mayflash_index);
 }
 
 void InitAdapterClass()
@@ -23,11 +23,13 @@ protected:
   bool ConnectInternal() override;
   void DisconnectInternal() override;
   bool IsConnected() const override;
-  void IOWakeup() override{};
+  void IOWakeup() override;
   int IORead(u8* buf) override;
   int IOWrite(u8 const* buf, size_t len) override;
 
 private:
+  void CloseSlot();
+
   int m_mayflash_index;
   bool is_connected = true;
 
@@ -35,8 +37,11 @@ private:
 
   jmethodID m_input_func;
   jmethodID m_output_func;
+  jmethodID m_wakeup_func = nullptr;
 
   jbyteArray m_java_wiimote_payload;
+  // Global reference, reused for every output report
+  jbyteArray m_java_output_buffer = nullptr;
 };
 
 class WiimoteScannerAndroid final : public WiimoteScannerBackend
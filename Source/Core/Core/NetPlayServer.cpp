@@ -1874,7 +1874,7 @@ bool NetPlayServer::SyncCodes()
   const auto revision = game->GetRevision();
   IniFile globalIni;
   for (const std::string& filename : ConfigLoaders::GetGameIniFilenames(game_id, revision))
-    globalIni.Load(File::GetSysDirectory() + GAMESETTINGS_DIR DIR_SEP + filename, true);
+    globalIni.Load(File::GetSysGameSettingsDirectory() + filename, true);
   IniFile localIni;
   for (const std::string& filename : ConfigLoaders::GetGameIniFilenames(game_id, revision))
     localIni.Load(File::GetUserPath(D_GAMESETTINGS_IDX) + filename, true);
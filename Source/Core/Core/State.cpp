@@ -3,6 +3,7 @@
 
 #include "Core/State.h"
 
+#include <algorithm>
 #include <lzo/lzo1x.h>
 #include <map>
 #include <mutex>
@@ -12,12 +13,21 @@
 #include <vector>
 
 #include <fmt/format.h>
+#include <xxhash.h>
+
+#ifndef _WIN32
+#include <fcntl.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
+#include <unistd.h>
+#endif
 
 #include "Common/ChunkFile.h"
 #include "Common/CommonTypes.h"
 #include "Common/Event.h"
 #include "Common/FileUtil.h"
 #include "Common/IOFile.h"
+#include "Common/Logging/Log.h"
 #include "Common/MsgHandler.h"
 #include "Common/ScopeGuard.h"
 #include "Common/Thread.h"
@@ -72,6 +82,67 @@ static Common::Event g_compressAndDumpStateSyncEvent;
 
 static std::thread g_save_thread;
 
+// The compressed chunks of the last state that was saved. Chunks that haven't changed since then
+// are copied from here instead of being compressed again. Only used on the save thread, and
+// cleared on shutdown so that it doesn't hold on to a whole state for the life of the process.
+struct CompressedChunks
+{
+  std::string game_id;
+  std::vector<u64> hashes;
+  std::vector<u32> raw_sizes;
+  std::vector<size_t> offsets;
+  std::vector<u8> data;
+};
+static CompressedChunks s_previous_chunks;
+
+#ifndef _WIN32
+// The resume state file as it was left by the last call to DumpResumeState, so that the next
+// resume state only has to write the chunks that changed. Only used on the save thread.
+struct ResumeStateFile
+{
+  std::string filename;
+  u64 size = 0;
+  u64 inode = 0;
+  s64 modified = 0;
+  std::vector<u64> hashes;
+};
+static ResumeStateFile s_resume_state;
+
+// A memory mapping of a whole file, which is unmapped when this goes out of scope
+class MappedFile
+{
+public:
+  MappedFile() = default;
+  MappedFile(const MappedFile&) = delete;
+  MappedFile& operator=(const MappedFile&) = delete;
+  ~MappedFile()
+  {
+    if (m_data)
+      munmap(m_data, m_size);
+  }
+
+  // Writes through a shared mapping end up in the file. Writes through a private mapping don't.
+  bool Map(int fd, size_t size, bool shared)
+  {
+    void* data = mmap(nullptr, size, PROT_READ | PROT_WRITE, shared ? MAP_SHARED : MAP_PRIVATE,
+                      fd, 0);
+    if (data == MAP_FAILED)
+      return false;
+
+    m_data = static_cast<u8*>(data);
+    m_size = size;
+    return true;
+  }
+
+  u8* GetData() const { return m_data; }
+  size_t GetSize() const { return m_size; }
+
+private:
+  u8* m_data = nullptr;
+  size_t m_size = 0;
+};
+#endif
+
 // Don't forget to increase this after doing changes on the savestate system
 constexpr u32 STATE_VERSION = 139;  // Last changed in PR 8350
 
@@ -328,6 +399,100 @@ static void CompressAndDumpState(CompressAndDumpState_args save_args)
   // For easy debugging
   Common::SetCurrentThreadName("SaveState thread");
 
+  // Written under a temporary name first, so that a state that was only partially written
+  // (for instance because the app got killed) never replaces a good one
+  const std::string temp_filename = filename + ".tmp";
+  {
+    File::IOFile f(temp_filename, "wb");
+    if (!f)
+    {
+      Core::DisplayMessage("Could not save state", 2000);
+      return;
+    }
+
+    // Setting up the header
+    StateHeader header{};
+    SConfig::GetInstance().GetGameID().copy(header.gameID, std::size(header.gameID));
+    header.size = s_use_compression ? (u32)buffer_size : 0;
+    header.time = Common::Timer::GetDoubleTime();
+
+    f.WriteArray(&header, 1);
+
+    if (header.size != 0)  // non-zero header size means the state is compressed
+    {
+      // Most of the emulated memory usually is the same as in the last saved state, so chunks
+      // that are unchanged reuse the compressed data from back then. Every state file still
+      // contains all of its chunks.
+      CompressedChunks chunks;
+      chunks.game_id = SConfig::GetInstance().GetGameID();
+      if (s_previous_chunks.game_id != chunks.game_id)
+        s_previous_chunks = {};
+
+      lzo_uint i = 0;
+      while (true)
+      {
+        lzo_uint32 cur_len = 0;
+        lzo_uint out_len = 0;
+        const u8* out_data = out;
+
+        if ((i + IN_LEN) >= buffer_size)
+        {
+          cur_len = (lzo_uint32)(buffer_size - i);
+        }
+        else
+        {
+          cur_len = IN_LEN;
+        }
+
+        const size_t chunk = chunks.hashes.size();
+        const u64 hash = XXH64(buffer_data + i, cur_len, 0);
+        if (chunk < s_previous_chunks.hashes.size() && s_previous_chunks.hashes[chunk] == hash &&
+            s_previous_chunks.raw_sizes[chunk] == cur_len)
+        {
+          const size_t offset = s_previous_chunks.offsets[chunk];
+          const size_t end = chunk + 1 < s_previous_chunks.offsets.size() ?
+                                 s_previous_chunks.offsets[chunk + 1] :
+                                 s_previous_chunks.data.size();
+          out_data = s_previous_chunks.data.data() + offset;
+          out_len = end - offset;
+        }
+        else if (lzo1x_1_compress(buffer_data + i, cur_len, out, &out_len, wrkmem) != LZO_E_OK)
+        {
+          PanicAlertFmtT("Internal LZO Error - compression failed");
+        }
+
+        chunks.hashes.push_back(hash);
+        chunks.raw_sizes.push_back(cur_len);
+        chunks.offsets.push_back(chunks.data.size());
+        chunks.data.insert(chunks.data.end(), out_data, out_data + out_len);
+
+        // The size of the data to write is 'out_len'
+        f.WriteArray((lzo_uint32*)&out_len, 1);
+        f.WriteBytes(out_data, out_len);
+
+        if (cur_len != IN_LEN)
+          break;
+
+        i += cur_len;
+      }
+
+      s_previous_chunks = std::move(chunks);
+    }
+    else  // uncompressed
+    {
+      s_previous_chunks = {};
+      f.WriteBytes(buffer_data, buffer_size);
+    }
+
+    if (!f.IsGood())
+    {
+      f.Close();
+      File::Delete(temp_filename);
+      Core::DisplayMessage("Could not save state", 2000);
+      return;
+    }
+  }
+
   // Moving to last overwritten save-state
   if (File::Exists(filename))
   {
@@ -347,59 +512,139 @@ static void CompressAndDumpState(CompressAndDumpState_args save_args)
   else if (!Movie::IsMovieActive())
     File::Delete(filename + ".dtm");
 
-  File::IOFile f(filename, "wb");
-  if (!f)
+  if (!File::RenameSync(temp_filename, filename))
   {
     Core::DisplayMessage("Could not save state", 2000);
     return;
   }
 
-  // Setting up the header
-  StateHeader header{};
-  SConfig::GetInstance().GetGameID().copy(header.gameID, std::size(header.gameID));
-  header.size = s_use_compression ? (u32)buffer_size : 0;
-  header.time = Common::Timer::GetDoubleTime();
+  Core::DisplayMessage(fmt::format("Saved State to {}", filename), 2000);
+  Host_UpdateMainFrame();
+}
 
-  f.WriteArray(&header, 1);
+#ifndef _WIN32
+static bool IsUnchangedResumeStateFile(const std::string& filename, size_t file_size)
+{
+  struct stat st;
+  return filename == s_resume_state.filename && file_size == s_resume_state.size &&
+         stat(filename.c_str(), &st) == 0 && static_cast<u64>(st.st_size) == file_size &&
+         static_cast<u64>(st.st_ino) == s_resume_state.inode &&
+         static_cast<s64>(st.st_mtime) == s_resume_state.modified;
+}
 
-  if (header.size != 0)  // non-zero header size means the state is compressed
+// Updates the chunks of an existing resume state file that differ from the given hashes.
+// Returns how many chunks were written, or -1 on failure.
+static ptrdiff_t UpdateResumeStateFile(const std::string& filename, const StateHeader& header,
+                                       const u8* data, size_t size,
+                                       const std::vector<u64>& hashes)
+{
+  const int fd = open(filename.c_str(), O_RDWR | O_CLOEXEC);
+  if (fd < 0)
+    return -1;
+  Common::ScopeGuard close_fd([fd] { close(fd); });
+
+  MappedFile mapping;
+  if (!mapping.Map(fd, sizeof(StateHeader) + size, true))
+    return -1;
+
+  // Clearing the game ID first makes a file that was only partially updated (for instance
+  // because the app got killed) fail to load instead of loading an inconsistent state
+  u8* const file_data = mapping.GetData();
+  const long page_size = sysconf(_SC_PAGESIZE);
+  std::fill(file_data, file_data + sizeof(header.gameID), 0);
+  if (msync(file_data, page_size, MS_SYNC) != 0)
+    return -1;
+
+  ptrdiff_t written_chunks = 0;
+  for (size_t chunk = 0; chunk < hashes.size(); chunk++)
   {
-    lzo_uint i = 0;
-    while (true)
-    {
-      lzo_uint32 cur_len = 0;
-      lzo_uint out_len = 0;
+    if (hashes[chunk] == s_resume_state.hashes[chunk])
+      continue;
 
-      if ((i + IN_LEN) >= buffer_size)
-      {
-        cur_len = (lzo_uint32)(buffer_size - i);
-      }
-      else
-      {
-        cur_len = IN_LEN;
-      }
+    const size_t offset = chunk * IN_LEN;
+    const size_t length = std::min<size_t>(IN_LEN, size - offset);
+    std::copy(data + offset, data + offset + length, file_data + sizeof(StateHeader) + offset);
+    written_chunks++;
+  }
 
-      if (lzo1x_1_compress(buffer_data + i, cur_len, out, &out_len, wrkmem) != LZO_E_OK)
-        PanicAlertFmtT("Internal LZO Error - compression failed");
+  if (msync(file_data, mapping.GetSize(), MS_SYNC) != 0)
+    return -1;
 
-      // The size of the data to write is 'out_len'
-      f.WriteArray((lzo_uint32*)&out_len, 1);
-      f.WriteBytes(out, out_len);
+  std::copy_n(reinterpret_cast<const u8*>(&header), sizeof(header), file_data);
+  if (msync(file_data, page_size, MS_SYNC) != 0)
+    return -1;
 
-      if (cur_len != IN_LEN)
-        break;
+  return written_chunks;
+}
 
-      i += cur_len;
-    }
+// Writes an uncompressed state for resuming emulation. If the file hasn't been touched since the
+// last resume state was written to it, only the chunks that changed since then are written, so
+// saving again while emulation is paused costs little more than hashing the state.
+static void DumpResumeState(std::string filename)
+{
+  std::lock_guard lk(g_cs_current_buffer);
+
+  // For easy debugging
+  Common::SetCurrentThreadName("SaveState thread");
+
+  const u64 start_time = Common::Timer::GetTimeUs();
+  const u8* const buffer_data = g_current_buffer.data();
+  const size_t buffer_size = g_current_buffer.size();
+  const size_t file_size = sizeof(StateHeader) + buffer_size;
+
+  StateHeader header{};
+  SConfig::GetInstance().GetGameID().copy(header.gameID, std::size(header.gameID));
+  header.size = 0;  // uncompressed
+  header.time = Common::Timer::GetDoubleTime();
+
+  std::vector<u64> hashes;
+  hashes.reserve((buffer_size + IN_LEN - 1) / IN_LEN);
+  for (size_t offset = 0; offset < buffer_size; offset += IN_LEN)
+  {
+    const size_t length = std::min<size_t>(IN_LEN, buffer_size - offset);
+    hashes.push_back(XXH64(buffer_data + offset, length, 0));
   }
-  else  // uncompressed
+
+  ptrdiff_t written_chunks = -1;
+  if (IsUnchangedResumeStateFile(filename, file_size))
+    written_chunks = UpdateResumeStateFile(filename, header, buffer_data, buffer_size, hashes);
+  s_resume_state = {};
+
+  if (written_chunks < 0)
   {
+    // Written in full under a temporary name, so that a good resume state is never replaced by
+    // one that was only partially written
+    const std::string temp_filename = filename + ".tmp";
+    File::IOFile f(temp_filename, "wb");
+    f.WriteArray(&header, 1);
     f.WriteBytes(buffer_data, buffer_size);
+    const bool good = f.IsGood();
+    f.Close();
+
+    if (!good || !File::RenameSync(temp_filename, filename))
+    {
+      File::Delete(temp_filename);
+      Core::DisplayMessage("Could not save state", 2000);
+      return;
+    }
+    written_chunks = static_cast<ptrdiff_t>(hashes.size());
   }
 
-  Core::DisplayMessage(fmt::format("Saved State to {}", filename), 2000);
-  Host_UpdateMainFrame();
+  struct stat st;
+  if (stat(filename.c_str(), &st) == 0)
+  {
+    s_resume_state.filename = filename;
+    s_resume_state.size = file_size;
+    s_resume_state.inode = static_cast<u64>(st.st_ino);
+    s_resume_state.modified = static_cast<s64>(st.st_mtime);
+    s_resume_state.hashes = std::move(hashes);
+  }
+
+  INFO_LOG_FMT(CORE, "Wrote resume state {} in {} ms ({} of {} chunks changed)", filename,
+               (Common::Timer::GetTimeUs() - start_time) / 1000, written_chunks,
+               (buffer_size + IN_LEN - 1) / IN_LEN);
 }
+#endif
 
 void SaveAs(const std::string& filename, bool wait)
 {
@@ -450,6 +695,79 @@ void SaveAs(const std::string& filename, bool wait)
   s_load_or_save_in_progress = false;
 }
 
+void SaveResumeStateAs(const std::string& filename)
+{
+#ifdef _WIN32
+  SaveAs(filename);
+#else
+  if (s_load_or_save_in_progress)
+    return;
+
+  s_load_or_save_in_progress = true;
+
+  Core::RunOnCPUThread(
+      [&] {
+        const u64 start_time = Common::Timer::GetTimeUs();
+
+        // The previous save thread may still be using the buffer
+        Flush();
+        {
+          std::lock_guard lk(g_cs_current_buffer);
+          SaveToBuffer(g_current_buffer);
+        }
+        g_save_thread = std::thread(DumpResumeState, filename);
+
+        INFO_LOG_FMT(CORE, "Captured resume state in {} ms",
+                     (Common::Timer::GetTimeUs() - start_time) / 1000);
+      },
+      true);
+
+  s_load_or_save_in_progress = false;
+#endif
+}
+
+static void DiscardResumeStateOnSaveThread(const std::string& filename)
+{
+#ifndef _WIN32
+  // Clearing the game ID keeps the file from being loaded, while the next resume state can still
+  // reuse everything else that hasn't changed
+  if (s_resume_state.filename == filename &&
+      IsUnchangedResumeStateFile(filename, s_resume_state.size))
+  {
+    const int fd = open(filename.c_str(), O_WRONLY | O_CLOEXEC);
+    if (fd >= 0)
+    {
+      const char game_id[sizeof(StateHeader::gameID)] = {};
+      const bool cleared = pwrite(fd, game_id, sizeof(game_id), 0) == sizeof(game_id);
+      close(fd);
+
+      struct stat st;
+      if (cleared && stat(filename.c_str(), &st) == 0)
+      {
+        s_resume_state.modified = static_cast<s64>(st.st_mtime);
+        return;
+      }
+    }
+  }
+  s_resume_state = {};
+#endif
+
+  File::Delete(filename);
+}
+
+void DiscardResumeState(const std::string& filename)
+{
+  // A resume state that is still being written has to be finished before it can be discarded.
+  // That can take a while, so the discarding is done on the save thread after it.
+  std::thread previous_save_thread = std::move(g_save_thread);
+  g_save_thread = std::thread(
+      [previous_save_thread = std::move(previous_save_thread), filename]() mutable {
+        if (previous_save_thread.joinable())
+          previous_save_thread.join();
+        DiscardResumeStateOnSaveThread(filename);
+      });
+}
+
 bool ReadHeader(const std::string& filename, StateHeader& header)
 {
   Flush();
@@ -548,6 +866,34 @@ static void LoadFileStateData(const std::string& filename, std::vector<u8>& ret_
   ret_data.swap(buffer);
 }
 
+#ifndef _WIN32
+// Maps an uncompressed state into memory, so that it doesn't have to be copied into a buffer
+// before it's loaded. Returns nullptr for anything else, which LoadFileStateData then handles.
+static u8* MapFileStateData(const std::string& filename, MappedFile& mapping)
+{
+  Flush();
+  const int fd = open(filename.c_str(), O_RDONLY | O_CLOEXEC);
+  if (fd < 0)
+    return nullptr;
+  Common::ScopeGuard close_fd([fd] { close(fd); });
+
+  // A private mapping, since DoState may briefly write to the data it reads
+  struct stat st;
+  if (fstat(fd, &st) != 0 || static_cast<u64>(st.st_size) <= sizeof(StateHeader) ||
+      !mapping.Map(fd, static_cast<size_t>(st.st_size), false))
+  {
+    return nullptr;
+  }
+
+  StateHeader header;
+  std::copy_n(mapping.GetData(), sizeof(header), reinterpret_cast<u8*>(&header));
+  if (header.size != 0 || strncmp(SConfig::GetInstance().GetGameID().c_str(), header.gameID, 6))
+    return nullptr;
+
+  return mapping.GetData() + sizeof(StateHeader);
+}
+#endif
+
 void LoadAs(const std::string& filename)
 {
   if (!Core::IsRunning() || s_load_or_save_in_progress)
@@ -580,16 +926,34 @@ void LoadAs(const std::string& filename)
 
         // brackets here are so buffer gets freed ASAP
         {
+          const u64 start_time = Common::Timer::GetTimeUs();
+
           std::vector<u8> buffer;
-          LoadFileStateData(filename, buffer);
+          u8* ptr = nullptr;
+#ifndef _WIN32
+          MappedFile mapping;
+          ptr = MapFileStateData(filename, mapping);
+#endif
+          if (!ptr)
+          {
+            LoadFileStateData(filename, buffer);
+            if (!buffer.empty())
+              ptr = &buffer[0];
+          }
 
-          if (!buffer.empty())
+          if (ptr)
           {
-            u8* ptr = &buffer[0];
+            const u64 read_time = Common::Timer::GetTimeUs();
+
             PointerWrap p(&ptr, PointerWrap::MODE_READ);
             DoState(p);
             loaded = true;
             loadedSuccessfully = (p.GetMode() == PointerWrap::MODE_READ);
+
+            INFO_LOG_FMT(CORE, "Loaded state {} in {} ms ({} ms reading, {} ms restoring)",
+                         filename, (Common::Timer::GetTimeUs() - start_time) / 1000,
+                         (read_time - start_time) / 1000,
+                         (Common::Timer::GetTimeUs() - read_time) / 1000);
           }
         }
 
@@ -636,6 +1000,9 @@ void Shutdown()
 {
   Flush();
 
+  // The save thread is done, so this can be touched here
+  s_previous_chunks = {};
+
   // swapping with an empty vector, rather than clear()ing
   // this gives a better guarantee to free the allocated memory right NOW (as opposed to, actually,
   // never)
@@ -47,6 +47,11 @@ void Save(int slot, bool wait = false);
 void Load(int slot);
 
 void SaveAs(const std::string& filename, bool wait = false);
+// Saves an uncompressed state that can be loaded quickly, for resuming emulation later. Saving
+// to the same file again only rewrites the parts of the state that changed.
+void SaveResumeStateAs(const std::string& filename);
+// Makes sure a resume state won't be loaded anymore, keeping what can be reused for the next one
+void DiscardResumeState(const std::string& filename);
 void LoadAs(const std::string& filename);
 
 void SaveToBuffer(std::vector<u8>& buffer);
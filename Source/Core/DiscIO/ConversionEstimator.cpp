@@ -0,0 +1,304 @@
+// Copyright 2026 Dolphin Emulator Project
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+#include "DiscIO/ConversionEstimator.h"
+
+#include <algorithm>
+#include <chrono>
+#include <memory>
+#include <optional>
+#include <string>
+#include <utility>
+#include <vector>
+
+#include <zlib.h>
+
+#include "Common/CommonTypes.h"
+#include "Common/Logging/Log.h"
+#include "DiscIO/DiscScrubber.h"
+#include "DiscIO/DiscUtils.h"
+#include "DiscIO/MultithreadedCompressor.h"
+#include "DiscIO/Volume.h"
+#include "DiscIO/VolumeDisc.h"
+#include "DiscIO/VolumeWii.h"
+#include "DiscIO/WIABlob.h"
+#include "DiscIO/WIACompression.h"
+
+namespace DiscIO
+{
+namespace
+{
+// Enough samples to even out the differences between file system data, game data and padding,
+// but few enough that even slow storage gets through them in a few seconds
+constexpr u64 SAMPLE_COUNT = 64;
+constexpr u64 MIN_SAMPLE_SIZE = 0x100000;
+
+// Each GCZ block has an 8-byte offset and a 4-byte hash in the header
+constexpr u64 GCZ_BLOCK_OVERHEAD = 12;
+
+struct PartitionDataArea
+{
+  u64 start;
+  u64 end;
+  Partition partition;
+};
+
+struct EstimateThreadState
+{
+  EstimateThreadState() : z{} {}
+  ~EstimateThreadState()
+  {
+    if (z_initialized)
+      deflateEnd(&z);
+  }
+
+  // z_stream will stop working if it changes address, so this object must not be moved
+  EstimateThreadState(const EstimateThreadState&) = delete;
+  EstimateThreadState(EstimateThreadState&&) = delete;
+  EstimateThreadState& operator=(const EstimateThreadState&) = delete;
+  EstimateThreadState& operator=(EstimateThreadState&&) = delete;
+
+  z_stream z;
+  bool z_initialized = false;
+  std::vector<u8> z_buffer;
+
+  std::unique_ptr<Compressor> compressor;
+};
+
+struct SampleParameters
+{
+  // Each block is compressed on its own, like the GCZ blocks or WIA/RVZ chunks of a conversion
+  std::vector<std::vector<u8>> blocks;
+};
+}  // namespace
+
+static std::vector<PartitionDataArea> GetPartitionDataAreas(const Volume& volume)
+{
+  std::vector<PartitionDataArea> areas;
+  for (const Partition& partition : volume.GetPartitions())
+  {
+    if (const auto range = GetPartitionDataRange(volume, partition))
+      areas.push_back(PartitionDataArea{range->first, range->second, partition});
+  }
+  return areas;
+}
+
+static std::unique_ptr<Compressor> CreateCompressor(WIARVZCompressionType compression,
+                                                    int compression_level)
+{
+  switch (compression)
+  {
+  case WIARVZCompressionType::Purge:
+    return std::make_unique<PurgeCompressor>();
+  case WIARVZCompressionType::Bzip2:
+    return std::make_unique<Bzip2Compressor>(compression_level);
+  case WIARVZCompressionType::LZMA:
+  case WIARVZCompressionType::LZMA2:
+    return std::make_unique<LZMACompressor>(compression == WIARVZCompressionType::LZMA2,
+                                            compression_level, nullptr, nullptr);
+  case WIARVZCompressionType::Zstd:
+    return std::make_unique<ZstdCompressor>(compression_level);
+  case WIARVZCompressionType::None:
+  default:
+    return nullptr;
+  }
+}
+
+// Reads the data that a conversion would compress for the given range of the disc.
+// WIA and RVZ store Wii partitions decrypted and without hashes, and unused data is left out
+// when scrubbing and stored as a tiny seed by RVZ, which zeroes come close to.
+static bool ReadBlock(const Volume& volume, const std::vector<PartitionDataArea>& areas,
+                      const DiscScrubber* scrubber, u64 offset, u64 size, std::vector<u8>* out)
+{
+  out->clear();
+
+  for (u64 cluster = offset; cluster < offset + size; cluster += DiscScrubber::CLUSTER_SIZE)
+  {
+    const u64 cluster_size = std::min<u64>(DiscScrubber::CLUSTER_SIZE, offset + size - cluster);
+
+    const auto area = std::find_if(areas.begin(), areas.end(), [cluster](const auto& a) {
+      return cluster >= a.start && cluster < a.end;
+    });
+    const bool decrypt = area != areas.end();
+    const u64 read_size =
+        decrypt ? cluster_size / VolumeWii::BLOCK_TOTAL_SIZE * VolumeWii::BLOCK_DATA_SIZE :
+                  cluster_size;
+
+    const size_t out_offset = out->size();
+    out->resize(out_offset + read_size);
+
+    if (scrubber && scrubber->CanBlockBeScrubbed(cluster))
+      continue;
+
+    const bool success =
+        decrypt ? volume.Read((cluster - area->start) / VolumeWii::BLOCK_TOTAL_SIZE *
+                                  VolumeWii::BLOCK_DATA_SIZE,
+                              read_size, out->data() + out_offset, area->partition) :
+                  volume.Read(cluster, read_size, out->data() + out_offset, PARTITION_NONE);
+    if (!success)
+      return false;
+  }
+
+  return true;
+}
+
+static u64 CompressGCZBlock(EstimateThreadState* state, const std::vector<u8>& block)
+{
+  state->z_buffer.resize(block.size());
+
+  if (deflateReset(&state->z) != Z_OK)
+    return block.size();
+
+  state->z.next_in = const_cast<u8*>(block.data());
+  state->z.avail_in = static_cast<uInt>(block.size());
+  state->z.next_out = state->z_buffer.data();
+  state->z.avail_out = static_cast<uInt>(block.size());
+
+  // Same rule as ConvertToGCZ for when a block is stored uncompressed
+  const int status = deflate(&state->z, Z_FINISH);
+  if (status != Z_STREAM_END || state->z.avail_out < 10)
+    return block.size();
+
+  return block.size() - state->z.avail_out;
+}
+
+static ConversionResult<u64> CompressSample(EstimateThreadState* state,
+                                            SampleParameters parameters, BlobType format)
+{
+  u64 size = 0;
+  for (const std::vector<u8>& block : parameters.blocks)
+  {
+    if (format == BlobType::GCZ)
+    {
+      size += CompressGCZBlock(state, block) + GCZ_BLOCK_OVERHEAD;
+    }
+    else if (state->compressor)
+    {
+      Compressor* compressor = state->compressor.get();
+      if (!compressor->Start(block.size()) || !compressor->Compress(block.data(), block.size()) ||
+          !compressor->End())
+      {
+        return ConversionResultCode::InternalError;
+      }
+
+      // RVZ stores chunks uncompressed when compressing doesn't make them smaller
+      if (format == BlobType::RVZ)
+        size += std::min<u64>(compressor->GetSize(), block.size());
+      else
+        size += compressor->GetSize();
+    }
+    else
+    {
+      size += block.size();
+    }
+  }
+  return size;
+}
+
+std::optional<ConversionEstimate> EstimateConversion(const std::string& path, BlobType format,
+                                                     int block_size,
+                                                     WIARVZCompressionType compression,
+                                                     int compression_level, bool scrub)
+{
+  const std::unique_ptr<VolumeDisc> volume = CreateDisc(path);
+  if (!volume)
+    return std::nullopt;
+
+  const u64 data_size = volume->GetSize();
+  if (data_size == 0)
+    return std::nullopt;
+
+  const bool wia_or_rvz = format == BlobType::WIA || format == BlobType::RVZ;
+
+  DiscScrubber scrubber;
+  const bool use_scrubber =
+      (scrub || format == BlobType::RVZ) && scrubber.SetupScrub(volume.get());
+
+  std::vector<PartitionDataArea> areas;
+  if (wia_or_rvz)
+    areas = GetPartitionDataAreas(*volume);
+
+  const u64 unit = block_size > 0 ? static_cast<u64>(block_size) : MIN_SAMPLE_SIZE;
+  const u64 total_blocks = (data_size + unit - 1) / unit;
+  const u64 blocks_per_sample = std::max<u64>(1, MIN_SAMPLE_SIZE / unit);
+
+  const auto set_up_compress_thread_state = [&](EstimateThreadState* state) {
+    if (format == BlobType::GCZ)
+    {
+      state->z_initialized = deflateInit(&state->z, 9) == Z_OK;
+      return state->z_initialized ? ConversionResultCode::Success :
+                                    ConversionResultCode::InternalError;
+    }
+
+    if (wia_or_rvz)
+      state->compressor = CreateCompressor(compression, compression_level);
+    return ConversionResultCode::Success;
+  };
+
+  const auto compress = [format](EstimateThreadState* state, SampleParameters parameters) {
+    return CompressSample(state, std::move(parameters), format);
+  };
+
+  u64 compressed_bytes = 0;
+  const auto output = [&compressed_bytes](u64 size) {
+    compressed_bytes += size;
+    return ConversionResultCode::Success;
+  };
+
+  MultithreadedCompressor<EstimateThreadState, SampleParameters, u64> mt_compressor(
+      set_up_compress_thread_state, compress, output);
+
+  const auto start_time = std::chrono::steady_clock::now();
+
+  u64 sampled_bytes = 0;
+  u64 next_block = 0;
+  for (u64 i = 0; i < SAMPLE_COUNT; ++i)
+  {
+    const u64 first_block = std::max(next_block, total_blocks * i / SAMPLE_COUNT);
+    const u64 end_block = std::min(first_block + blocks_per_sample, total_blocks);
+    if (first_block >= end_block)
+      break;
+    next_block = end_block;
+
+    SampleParameters parameters;
+    for (u64 block = first_block; block < end_block; ++block)
+    {
+      const u64 offset = block * unit;
+      const u64 size = std::min(unit, data_size - offset);
+
+      std::vector<u8> data;
+      if (!ReadBlock(*volume, areas, use_scrubber ? &scrubber : nullptr, offset, size, &data))
+      {
+        mt_compressor.SetError(ConversionResultCode::ReadFailed);
+        break;
+      }
+
+      parameters.blocks.push_back(std::move(data));
+      sampled_bytes += size;
+    }
+
+    mt_compressor.CompressAndWrite(std::move(parameters));
+    if (mt_compressor.GetStatus() != ConversionResultCode::Success)
+      break;
+  }
+
+  mt_compressor.Shutdown();
+
+  const std::chrono::duration<double> elapsed = std::chrono::steady_clock::now() - start_time;
+
+  if (mt_compressor.GetStatus() != ConversionResultCode::Success || sampled_bytes == 0)
+  {
+    WARN_LOG_FMT(DISCIO, "Failed to estimate conversion of {}", path);
+    return std::nullopt;
+  }
+
+  const double ratio = static_cast<double>(compressed_bytes) / sampled_bytes;
+  const u64 size = static_cast<u64>(data_size * ratio);
+  const double bytes_per_second = sampled_bytes / std::max(elapsed.count(), 0.001);
+
+  INFO_LOG_FMT(DISCIO, "Estimated conversion of {}: {} bytes at {:.0f} bytes/s", path, size,
+               bytes_per_second);
+
+  return ConversionEstimate{size, bytes_per_second};
+}
+}  // namespace DiscIO
@@ -0,0 +1,29 @@
+// Copyright 2026 Dolphin Emulator Project
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+#pragma once
+
+#include <optional>
+#include <string>
+
+#include "Common/CommonTypes.h"
+#include "DiscIO/Blob.h"
+
+namespace DiscIO
+{
+struct ConversionEstimate
+{
+  // The projected size of the converted file
+  u64 size;
+  // The projected speed of the conversion, measured in disc data read per second
+  double bytes_per_second;
+};
+
+// Compresses a spread of samples from the given disc image the way a conversion with the given
+// settings would, without writing anything, and extrapolates the size and speed of a full
+// conversion from that. Takes a few seconds at most.
+std::optional<ConversionEstimate> EstimateConversion(const std::string& path, BlobType format,
+                                                     int block_size,
+                                                     WIARVZCompressionType compression,
+                                                     int compression_level, bool scrub);
+}  // namespace DiscIO
@@ -7,6 +7,7 @@
 #include <locale>
 #include <optional>
 #include <string>
+#include <utility>
 #include <vector>
 
 #include <fmt/format.h>
@@ -121,6 +122,20 @@ std::optional<u64> GetFSTSize(const Volume& volume, const Partition& partition)
   return volume.ReadSwappedAndShifted(0x428, partition);
 }
 
+std::optional<std::pair<u64, u64>> GetPartitionDataRange(const Volume& volume,
+                                                         const Partition& partition)
+{
+  const std::optional<u64> data_offset =
+      volume.ReadSwappedAndShifted(partition.offset + 0x2b8, PARTITION_NONE);
+  const std::optional<u64> data_size =
+      volume.ReadSwappedAndShifted(partition.offset + 0x2bc, PARTITION_NONE);
+  if (!data_offset || !data_size)
+    return std::nullopt;
+
+  const u64 start = partition.offset + *data_offset;
+  return std::make_pair(start, start + *data_size);
+}
+
 u64 GetBiggestReferencedOffset(const Volume& volume)
 {
   std::vector<Partition> partitions = volume.GetPartitions();
@@ -5,6 +5,7 @@
 
 #include <optional>
 #include <string>
+#include <utility>
 #include <vector>
 
 #include "Common/CommonTypes.h"
@@ -57,6 +58,10 @@ std::optional<u32> GetBootDOLSize(const Volume& volume, const Partition& partiti
 std::optional<u64> GetFSTOffset(const Volume& volume, const Partition& partition);
 std::optional<u64> GetFSTSize(const Volume& volume, const Partition& partition);
 
+// Returns where the encrypted data of a Wii partition starts and ends on the disc
+std::optional<std::pair<u64, u64>> GetPartitionDataRange(const Volume& volume,
+                                                         const Partition& partition);
+
 u64 GetBiggestReferencedOffset(const Volume& volume);
 u64 GetBiggestReferencedOffset(const Volume& volume, const std::vector<Partition>& partitions);
 }  // namespace DiscIO
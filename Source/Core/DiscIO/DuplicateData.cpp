@@ -0,0 +1,143 @@
+// Copyright 2026 Dolphin Emulator Project
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+#include "DiscIO/DuplicateData.h"
+
+#include <algorithm>
+#include <array>
+#include <cstring>
+#include <memory>
+#include <optional>
+#include <string>
+#include <unordered_set>
+#include <utility>
+#include <vector>
+
+#include <mbedtls/sha1.h>
+
+#include "Common/CommonTypes.h"
+#include "Common/Logging/Log.h"
+#include "Common/MsgHandler.h"
+#include "DiscIO/DiscUtils.h"
+#include "DiscIO/Volume.h"
+#include "DiscIO/VolumeDisc.h"
+#include "DiscIO/VolumeWii.h"
+
+namespace DiscIO
+{
+// The size that Wii discs are encrypted and hashed in, which is also the smallest chunk size
+// of WIA and RVZ, so it's the smallest block that could be shared between two images
+constexpr u64 BLOCK_SIZE = VolumeWii::BLOCK_TOTAL_SIZE;
+
+constexpr u64 BLOCKS_PER_CALLBACK = 0x1000;
+
+// The first 64 bits of the SHA-1 of a block. That's plenty to tell apart the blocks of a few
+// discs, and a lot less memory than the whole hash.
+using BlockHash = u64;
+
+static BlockHash HashBlock(const u8* data, size_t size)
+{
+  std::array<u8, 20> hash;
+  mbedtls_sha1_ret(data, size, hash.data());
+
+  BlockHash result;
+  std::memcpy(&result, hash.data(), sizeof(result));
+  return result;
+}
+
+std::optional<std::vector<u64>> FindDuplicateData(const std::vector<std::string>& paths,
+                                                  const CompressCB& callback)
+{
+  std::vector<std::unique_ptr<VolumeDisc>> volumes;
+  u64 total_size = 0;
+  for (const std::string& path : paths)
+  {
+    std::unique_ptr<VolumeDisc> volume = CreateDisc(path);
+    if (!volume)
+    {
+      ERROR_LOG_FMT(DISCIO, "Failed to open {} to look for duplicate data", path);
+      return std::nullopt;
+    }
+
+    total_size += volume->GetSize();
+    volumes.push_back(std::move(volume));
+  }
+
+  std::vector<u64> duplicate_bytes(volumes.size());
+  std::unordered_set<BlockHash> previous_blocks;
+  std::vector<BlockHash> current_blocks;
+  std::vector<u8> buffer(BLOCK_SIZE);
+  u64 bytes_done = 0;
+
+  for (size_t i = 0; i < volumes.size(); ++i)
+  {
+    const VolumeDisc& volume = *volumes[i];
+    const u64 size = volume.GetSize();
+
+    std::vector<std::pair<std::pair<u64, u64>, Partition>> partition_ranges;
+    for (const Partition& partition : volume.GetPartitions())
+    {
+      if (const auto range = GetPartitionDataRange(volume, partition))
+        partition_ranges.emplace_back(*range, partition);
+    }
+
+    current_blocks.clear();
+    u64 blocks_checked = 0;
+
+    for (u64 offset = 0; offset < size; offset += BLOCK_SIZE)
+    {
+      if (blocks_checked++ % BLOCKS_PER_CALLBACK == 0)
+      {
+        const std::string text =
+            Common::FmtFormatT("Checking disc image {0} of {1}", i + 1, volumes.size());
+        if (!callback(text, static_cast<float>(bytes_done + offset) / total_size))
+          return std::nullopt;
+      }
+
+      const u64 block_size = std::min(BLOCK_SIZE, size - offset);
+
+      // The same data is encrypted differently in different partitions, so compare decrypted
+      const auto partition_range =
+          std::find_if(partition_ranges.begin(), partition_ranges.end(), [offset](const auto& r) {
+            return offset >= r.first.first && offset < r.first.second;
+          });
+
+      size_t data_size = block_size;
+      bool success;
+      if (partition_range != partition_ranges.end() && block_size == BLOCK_SIZE)
+      {
+        data_size = VolumeWii::BLOCK_DATA_SIZE;
+        const u64 partition_offset =
+            (offset - partition_range->first.first) / BLOCK_SIZE * VolumeWii::BLOCK_DATA_SIZE;
+        success = volume.Read(partition_offset, data_size, buffer.data(), partition_range->second);
+      }
+      else
+      {
+        success = volume.Read(offset, data_size, buffer.data(), PARTITION_NONE);
+      }
+
+      if (!success)
+      {
+        ERROR_LOG_FMT(DISCIO, "Failed to read {} at {:#x}", paths[i], offset);
+        return std::nullopt;
+      }
+
+      // Compression takes care of these anyway
+      if (std::all_of(buffer.begin(), buffer.begin() + data_size, [](u8 x) { return x == 0; }))
+        continue;
+
+      const BlockHash hash = HashBlock(buffer.data(), data_size);
+      if (previous_blocks.count(hash) != 0)
+        duplicate_bytes[i] += block_size;
+      else
+        current_blocks.push_back(hash);
+    }
+
+    // Repeated blocks within one image are left out, since WIA and RVZ already store those once
+    previous_blocks.insert(current_blocks.begin(), current_blocks.end());
+    bytes_done += size;
+  }
+
+  return duplicate_bytes;
+}
+}  // namespace DiscIO
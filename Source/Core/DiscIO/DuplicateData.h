@@ -0,0 +1,22 @@
+// Copyright 2026 Dolphin Emulator Project
+// SPDX-License-Identifier: GPL-2.0-or-later
+
+#pragma once
+
+#include <optional>
+#include <string>
+#include <vector>
+
+#include "Common/CommonTypes.h"
+#include "DiscIO/Blob.h"
+
+namespace DiscIO
+{
+// Finds the data in each of the given disc images that also appears in one of the images before
+// it in the list, for instance because they are different regions or discs of the same game.
+// Data is compared in blocks of 32 KiB, and Wii partitions are compared decrypted.
+// Returns the number of duplicate bytes for each image, or std::nullopt if an image couldn't be
+// read or the callback returned false.
+std::optional<std::vector<u64>> FindDuplicateData(const std::vector<std::string>& paths,
+                                                  const CompressCB& callback);
+}  // namespace DiscIO
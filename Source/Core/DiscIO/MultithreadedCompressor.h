@@ -12,6 +12,7 @@
 #include <vector>
 
 #include "Common/Assert.h"
+#include "Common/CPUDetect.h"
 #include "Common/Event.h"
 #include "Common/Result.h"
 
@@ -48,7 +49,7 @@ public:
       std::function<ConversionResultCode(OutputParameters)> output)
       : m_set_up_compress_thread_state(std::move(set_up_compress_thread_state)),
         m_compress(std::move(compress)), m_output(std::move(output)),
-        m_threads(std::max<unsigned int>(1, std::thread::hardware_concurrency()))
+        m_threads(GetDefaultThreadCount())
   {
     m_compress_threads = std::make_unique<CompressThread[]>(m_threads);
 
@@ -119,6 +120,16 @@ public:
   }
 
 private:
+  static size_t GetDefaultThreadCount()
+  {
+    // Data is handed to the compression threads in turn, so a thread on a slow core would hold
+    // back all the others. On CPUs that mix fast and slow cores, only use the fast ones.
+    if (cpu_info.num_performance_cores > 0)
+      return static_cast<size_t>(cpu_info.num_performance_cores);
+
+    return std::max<unsigned int>(1, std::thread::hardware_concurrency());
+  }
+
   struct CompressThread
   {
     std::thread thread;
@@ -774,6 +774,7 @@ void Shutdown()
 // InputDevice
 bool InputDevice::PressEvent(int button, int action)
 {
+  std::lock_guard lk(m_state_mutex);
   bool handled = false;
   for (const auto& binding : m_input_binds)
   {
@@ -791,6 +792,7 @@ bool InputDevice::PressEvent(int button, int action)
 
 void InputDevice::AxisEvent(int axis, float value)
 {
+  std::lock_guard lk(m_state_mutex);
   for (const auto& binding : m_input_binds)
   {
     if (binding.second->m_bind == axis)
@@ -809,6 +811,7 @@ bool InputDevice::ButtonValue(int pad_id, ButtonType button) const
   if (binding == m_input_binds.end())
     return false;
 
+  std::lock_guard lk(m_state_mutex);
   if (binding->second->m_bind_type == BIND_BUTTON)
   {
     const auto button = m_buttons.find(binding->second->m_button_type);
@@ -831,6 +834,7 @@ float InputDevice::AxisValue(int pad_id, ButtonType axis) const
   if (binding == m_input_binds.end())
     return 0.0f;
 
+  std::lock_guard lk(m_state_mutex);
   if (binding->second->m_bind_type == BIND_AXIS)
   {
     const auto axis = m_axes.find(binding->second->m_button_type);
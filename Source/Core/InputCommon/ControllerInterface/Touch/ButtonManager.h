@@ -4,6 +4,7 @@
 #pragma once
 
 #include <map>
+#include <mutex>
 #include <string>
 
 namespace ButtonManager
@@ -251,6 +252,10 @@ class InputDevice
 {
 private:
   const std::string m_dev;
+
+  // Events arrive from both the UI thread and the motion sensor thread,
+  // while the emulation thread reads the values
+  mutable std::mutex m_state_mutex;
   std::map<ButtonType, bool> m_buttons;
   std::map<ButtonType, float> m_axes;
 
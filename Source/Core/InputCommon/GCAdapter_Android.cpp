@@ -3,8 +3,10 @@
 
 #include <algorithm>
 #include <array>
+#include <atomic>
 #include <jni.h>
 #include <mutex>
+#include <sys/resource.h>
 
 #include "Common/Event.h"
 #include "Common/Flag.h"
@@ -38,7 +40,9 @@ static std::array<u8, SerialInterface::MAX_SI_CHANNELS> s_controller_type = {
 static u8 s_controller_rumble[4];
 
 // Input handling
-static std::mutex s_read_mutex;
+// The read thread publishes payloads through a sequence lock so that Input never waits for it.
+// The sequence is odd while a payload is being written, and readers retry if it changed.
+static std::atomic<u32> s_controller_payload_sequence{0};
 static std::array<u8, 37> s_controller_payload;
 static std::atomic<int> s_controller_payload_size{0};
 
@@ -47,6 +51,10 @@ static std::mutex s_write_mutex;
 static u8 s_controller_write_payload[5];
 static std::atomic<int> s_controller_write_payload_size{0};
 
+// The read thread is what input latency depends on, so run it at the same priority
+// as Android's own input dispatching (THREAD_PRIORITY_URGENT_DISPLAY).
+static constexpr int READ_THREAD_NICE = -8;
+
 // Adapter running thread
 static std::thread s_read_adapter_thread;
 static Common::Flag s_read_adapter_thread_running;
@@ -88,21 +96,26 @@ static void Write()
   JNIEnv* env = IDCache::GetEnvForThread();
   jmethodID output_func = env->GetStaticMethodID(s_adapter_class, "Output", "([B)I");
 
+  // Reuse one Java array for all writes, and only send payloads that differ from the last one
+  // that was sent, since the emulated game may repeat the same rumble state every frame.
+  jbyteArray jrumble_array = env->NewByteArray(sizeof(s_controller_write_payload));
+  u8 last_payload[sizeof(s_controller_write_payload)]{};
+  int last_size = 0;
+
   while (s_write_adapter_thread_running.IsSet())
   {
     s_write_happened.Wait();
-    int write_size = s_controller_write_payload_size.load();
-    if (write_size)
+    int write_size;
+    u8 payload[sizeof(s_controller_write_payload)];
     {
-      jbyteArray jrumble_array = env->NewByteArray(5);
-      jbyte* jrumble = env->GetByteArrayElements(jrumble_array, nullptr);
-
-      {
-        std::lock_guard<std::mutex> lk(s_write_mutex);
-        memcpy(jrumble, s_controller_write_payload, write_size);
-      }
+      std::lock_guard<std::mutex> lk(s_write_mutex);
+      write_size = s_controller_write_payload_size.load();
+      memcpy(payload, s_controller_write_payload, sizeof(payload));
+    }
 
-      env->ReleaseByteArrayElements(jrumble_array, jrumble, 0);
+    if (write_size && (write_size != last_size || memcmp(payload, last_payload, write_size) != 0))
+    {
+      env->SetByteArrayRegion(jrumble_array, 0, write_size, reinterpret_cast<jbyte*>(payload));
       int size = env->CallStaticIntMethod(s_adapter_class, output_func, jrumble_array);
       // Netplay sends invalid data which results in size = 0x00.  Ignore it.
       if (size != write_size && size != 0x00)
@@ -110,25 +123,67 @@ static void Write()
         ERROR_LOG_FMT(CONTROLLERINTERFACE, "error writing rumble (size: {})", size);
         Reset();
       }
+      else
+      {
+        memcpy(last_payload, payload, write_size);
+        last_size = write_size;
+      }
     }
 
     Common::YieldCPU();
   }
 
+  env->DeleteLocalRef(jrumble_array);
+
   NOTICE_LOG_FMT(CONTROLLERINTERFACE, "GC Adapter write thread stopped");
 }
 
+static void PublishPayload(const std::array<u8, 37>& payload, int size)
+{
+  const u32 sequence = s_controller_payload_sequence.load(std::memory_order_relaxed);
+  s_controller_payload_sequence.store(sequence + 1, std::memory_order_relaxed);
+  std::atomic_thread_fence(std::memory_order_release);
+
+  s_controller_payload = payload;
+  s_controller_payload_size.store(size, std::memory_order_relaxed);
+
+  s_controller_payload_sequence.store(sequence + 2, std::memory_order_release);
+}
+
+static int ReadPayload(std::array<u8, 37>* payload)
+{
+  while (true)
+  {
+    const u32 sequence = s_controller_payload_sequence.load(std::memory_order_acquire);
+    if (sequence & 1)
+    {
+      Common::YieldCPU();
+      continue;
+    }
+
+    *payload = s_controller_payload;
+    const int size = s_controller_payload_size.load(std::memory_order_relaxed);
+
+    std::atomic_thread_fence(std::memory_order_acquire);
+    if (s_controller_payload_sequence.load(std::memory_order_relaxed) == sequence)
+      return size;
+  }
+}
+
 static void Read()
 {
   Common::SetCurrentThreadName("GC Adapter Read Thread");
   NOTICE_LOG_FMT(CONTROLLERINTERFACE, "GC Adapter read thread started");
 
+  if (setpriority(PRIO_PROCESS, 0, READ_THREAD_NICE) != 0)
+    WARN_LOG_FMT(CONTROLLERINTERFACE, "Failed to raise GC Adapter read thread priority");
+
   bool first_read = true;
   JNIEnv* env = IDCache::GetEnvForThread();
 
   jfieldID payload_field = env->GetStaticFieldID(s_adapter_class, "controller_payload", "[B");
-  jobject payload_object = env->GetStaticObjectField(s_adapter_class, payload_field);
-  auto* java_controller_payload = reinterpret_cast<jbyteArray*>(&payload_object);
+  jbyteArray java_controller_payload =
+      reinterpret_cast<jbyteArray>(env->GetStaticObjectField(s_adapter_class, payload_field));
 
   // Get function pointers
   jmethodID getfd_func = env->GetStaticMethodID(s_adapter_class, "GetFD", "()I");
@@ -145,25 +200,25 @@ static void Read()
     // Reset rumble once on initial reading
     ResetRumble();
 
+    std::array<u8, 37> payload{};
     while (s_read_adapter_thread_running.IsSet())
     {
+      // Input blocks until the adapter sends its next report, which paces this loop
       int read_size = env->CallStaticIntMethod(s_adapter_class, input_func);
 
-      jbyte* java_data = env->GetByteArrayElements(*java_controller_payload, nullptr);
+      if (read_size > 0)
       {
-        std::lock_guard<std::mutex> lk(s_read_mutex);
-        std::copy(java_data, java_data + s_controller_payload.size(), s_controller_payload.begin());
-        s_controller_payload_size.store(read_size);
+        env->GetByteArrayRegion(java_controller_payload, 0,
+                                std::min<int>(read_size, static_cast<int>(payload.size())),
+                                reinterpret_cast<jbyte*>(payload.data()));
       }
-      env->ReleaseByteArrayElements(*java_controller_payload, java_data, 0);
+      PublishPayload(payload, read_size);
 
       if (first_read)
       {
         first_read = false;
         s_fd = env->CallStaticIntMethod(s_adapter_class, getfd_func);
       }
-
-      Common::YieldCPU();
     }
 
     // Terminate the write thread on leaving
@@ -257,14 +312,8 @@ GCPadStatus Input(int chan)
   if (!UseAdapter() || !s_detected || !s_fd)
     return {};
 
-  int payload_size = 0;
   std::array<u8, 37> controller_payload_copy{};
-
-  {
-    std::lock_guard<std::mutex> lk(s_read_mutex);
-    controller_payload_copy = s_controller_payload;
-    payload_size = s_controller_payload_size.load();
-  }
+  const int payload_size = ReadPayload(&controller_payload_copy);
 
   GCPadStatus pad = {};
   if (payload_size != controller_payload_copy.size())
@@ -386,7 +435,7 @@ void ResetRumble()
 {
   unsigned char rumble[5] = {0x11, 0, 0, 0, 0};
   {
-    std::lock_guard<std::mutex> lk(s_read_mutex);
+    std::lock_guard<std::mutex> lk(s_write_mutex);
     memcpy(s_controller_write_payload, rumble, 5);
     s_controller_write_payload_size.store(5);
   }
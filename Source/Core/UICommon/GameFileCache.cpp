@@ -151,6 +151,66 @@ bool GameFileCache::Update(
   return cache_changed;
 }
 
+std::vector<std::string> GameFileCache::Prune(const std::vector<std::string>& all_game_paths,
+                                             const std::vector<std::string>& changed_paths,
+                                             bool* cache_changed)
+{
+  std::unordered_set<std::string> game_paths;
+  game_paths.reserve(all_game_paths.size());
+  for (const std::string& path : all_game_paths)
+  {
+    if (!DiscIO::ShouldHideFromGameList(path))
+      game_paths.insert(path);
+  }
+
+  const std::unordered_set<std::string> changed(changed_paths.begin(), changed_paths.end());
+
+  // Same approach as in Update, except that changed games are dropped from the cache
+  // but kept in game_paths so that they get scanned again.
+  auto it = m_cached_files.begin();
+  auto end = m_cached_files.end();
+  while (it != end)
+  {
+    const std::string& path = (*it)->GetFilePath();
+    if (!changed.count(path) && game_paths.erase(path))
+    {
+      ++it;
+    }
+    else
+    {
+      *cache_changed = true;
+      --end;
+      *it = std::move(*end);
+    }
+  }
+  m_cached_files.erase(it, m_cached_files.end());
+
+  return std::vector<std::string>(game_paths.begin(), game_paths.end());
+}
+
+bool GameFileCache::AddGames(const std::vector<std::shared_ptr<const GameFile>>& games)
+{
+  std::unordered_set<std::string> cached_paths;
+  cached_paths.reserve(m_cached_files.size());
+  for (const std::shared_ptr<GameFile>& file : m_cached_files)
+    cached_paths.insert(file->GetFilePath());
+
+  bool cache_changed = false;
+
+  for (const std::shared_ptr<const GameFile>& game : games)
+  {
+    if (!game || !game->IsValid() || !cached_paths.insert(game->GetFilePath()).second)
+      continue;
+
+    // Cached GameFiles are already shared with other threads through ForEach and AddOrGet,
+    // and UpdateAdditionalMetadata only ever replaces them with updated copies.
+    m_cached_files.push_back(std::const_pointer_cast<GameFile>(game));
+    cache_changed = true;
+  }
+
+  return cache_changed;
+}
+
 bool GameFileCache::UpdateAdditionalMetadata(
     std::function<void(const std::shared_ptr<const GameFile>&)> game_updated,
     const std::atomic_bool& processing_halted)
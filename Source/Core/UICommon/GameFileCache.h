@@ -45,6 +45,13 @@ public:
               std::function<void(const std::shared_ptr<const GameFile>&)> game_added_to_cache = {},
               std::function<void(const std::string&)> game_removed_from_cache = {},
               const std::atomic_bool& processing_halted = false);
+  // Removes cached games that are missing from all_game_paths or are listed in changed_paths,
+  // and returns the paths that still have to be scanned and passed to AddGames.
+  // This lets callers scan new games themselves (for instance in parallel).
+  std::vector<std::string> Prune(const std::vector<std::string>& all_game_paths,
+                                 const std::vector<std::string>& changed_paths,
+                                 bool* cache_changed);
+  bool AddGames(const std::vector<std::shared_ptr<const GameFile>>& games);
   bool UpdateAdditionalMetadata(
       std::function<void(const std::shared_ptr<const GameFile>&)> game_updated = {},
       const std::atomic_bool& processing_halted = false);